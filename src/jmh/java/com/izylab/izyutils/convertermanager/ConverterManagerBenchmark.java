@@ -0,0 +1,66 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.izylab.izyutils.convertermanager.classes.PersonEntity;
+import com.izylab.izyutils.convertermanager.classes.PersonView;
+import com.izylab.izyutils.convertermanager.converter.StringNumberConverter;
+
+/**
+ * Conversion latency of the packaged jar.
+ */
+@SuppressWarnings("nls")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConverterManagerBenchmark {
+
+	private ConverterManager cm;
+	private Long number;
+	private PersonEntity person;
+
+	@Setup
+	public void setup() {
+		cm = new ConverterManager();
+		cm.registerConverter(StringNumberConverter.class);
+		cm.registerAutoMapping(PersonEntity.class, PersonView.class);
+		number = Long.valueOf(1234567890L);
+		person = new PersonEntity();
+		person.setName("Juan");
+		person.setAge(42);
+	}
+
+	@Benchmark
+	public String convert() {
+		return cm.convert(number, String.class);
+	}
+
+	@Benchmark
+	public PersonView autoMapping() {
+		return cm.convert(person, PersonView.class);
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Characters of a part of a text, char array or byte buffer, without copying them.
+ *
+ * <p>A slice can be reset to view another part, so a single one can be used
+ * for every field of a record. Bytes are read as ISO-8859-1 characters.
+ *
+ * <p>Converters taking a <code>CharSequence</code> must not keep it, the
+ * characters change when the slice is reset.
+ */
+public final class CharSlice implements CharSequence {
+	private CharSequence text;
+	private char[] chars;
+	private ByteBuffer bytes;
+	private int offset;
+	private int length;
+
+	/**
+	 * Creates an empty slice.
+	 */
+	public CharSlice() {
+		this.text = ""; //$NON-NLS-1$
+	}
+
+	/**
+	 * Creates a slice of a text.
+	 *
+	 * @param text Text
+	 * @param offset Index of the first character
+	 * @param length Number of characters
+	 */
+	public CharSlice(CharSequence text, int offset, int length) {
+		reset(text, offset, length);
+	}
+
+	/**
+	 * Creates a slice of a char array.
+	 *
+	 * @param chars Characters
+	 * @param offset Index of the first character
+	 * @param length Number of characters
+	 */
+	public CharSlice(char[] chars, int offset, int length) {
+		reset(chars, offset, length);
+	}
+
+	/**
+	 * Views a part of a text.
+	 *
+	 * @param text Text
+	 * @param offset Index of the first character
+	 * @param length Number of characters
+	 * @return This slice
+	 */
+	public CharSlice reset(CharSequence text, int offset, int length) {
+		checkBounds(offset, length, text.length());
+		return set(text, null, null, offset, length);
+	}
+
+	/**
+	 * Views a part of a char array.
+	 *
+	 * @param chars Characters
+	 * @param offset Index of the first character
+	 * @param length Number of characters
+	 * @return This slice
+	 */
+	public CharSlice reset(char[] chars, int offset, int length) {
+		checkBounds(offset, length, chars.length);
+		return set(null, chars, null, offset, length);
+	}
+
+	/**
+	 * Views a part of a byte buffer, one character per byte.
+	 *
+	 * @param bytes Byte buffer, its position and limit are ignored
+	 * @param offset Index of the first byte
+	 * @param length Number of bytes
+	 * @return This slice
+	 */
+	public CharSlice reset(ByteBuffer bytes, int offset, int length) {
+		checkBounds(offset, length, bytes.capacity());
+		return set(null, null, bytes, offset, length);
+	}
+
+	private CharSlice set(CharSequence text, char[] chars, ByteBuffer bytes, int offset, int length) {
+		this.text = text;
+		this.chars = chars;
+		this.bytes = bytes;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+
+	private static void checkBounds(int offset, int length, int size) {
+		if ( offset < 0 || length < 0 || offset > size - length ) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if ( index < 0 || index >= length ) {
+			throw new IndexOutOfBoundsException();
+		}
+		if ( chars != null ) {
+			return chars[offset + index];
+		}
+		if ( bytes != null ) {
+			return (char) (bytes.get(offset + index) & 0xff);
+		}
+		return text.charAt(offset + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		checkBounds(start, end - start, length);
+		return new CharSlice().set(text, chars, bytes, offset + start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		if ( chars != null ) {
+			return new String(chars, offset, length);
+		}
+		StringBuilder string = new StringBuilder(length);
+		for ( int i = 0; i < length; i++ ) {
+			string.append(charAt(i));
+		}
+		return string.toString();
+	}
+}
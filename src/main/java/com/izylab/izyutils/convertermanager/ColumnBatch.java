@@ -0,0 +1,368 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.izylab.izyutils.convertermanager.internal.Message;
+import com.izylab.izyutils.convertermanager.internal.PropertyMapper;
+
+/**
+ * Converted rows stored by column, one column per readable property of
+ * the target type.
+ *
+ * <p>A column of a primitive property is a primitive array on the heap, or
+ * a buffer holding the values one after the other in the native byte order.
+ * Other properties are stored in an object array.
+ *
+ * <p><pre>
+ * ColumnBatch batch = ColumnBatch.direct(OrderRow.class, orders.size());
+ * converterManager.convertColumns(orders, batch);
+ * channel.write(batch.getBuffer("amount"));
+ * </pre>
+ *
+ * <p>A batch is not thread safe.
+ *
+ * @see ConverterManager#convertColumns(Iterable, ColumnBatch)
+ */
+public final class ColumnBatch {
+	private final Class<?> targetType;
+	private final int capacity;
+	private final List<String> names;
+	private final Class<?>[] types;
+	// primitive arrays or object arrays, null for the primitive columns of buffers
+	private final Object[] arrays;
+	// buffers of primitive columns, null on the heap
+	private final ByteBuffer[] buffers;
+	private int size;
+
+	private ColumnBatch(Class<?> targetType, int capacity, PropertyDescriptor[] properties, ByteBuffer[] buffers) {
+		this.targetType = targetType;
+		this.capacity = capacity;
+		String[] columnNames = new String[properties.length];
+		this.types = new Class<?>[properties.length];
+		this.arrays = new Object[properties.length];
+		this.buffers = buffers;
+		for ( int i = 0; i < properties.length; i++ ) {
+			columnNames[i] = properties[i].getName();
+			types[i] = properties[i].getReadMethod().getReturnType();
+			if ( buffers == null || !types[i].isPrimitive() ) {
+				arrays[i] = Array.newInstance(types[i].isPrimitive() ? types[i] : Object.class, capacity);
+			}
+		}
+		this.names = Collections.unmodifiableList(Arrays.asList(columnNames));
+	}
+
+	/**
+	 * Creates a batch of arrays.
+	 *
+	 * @param targetType Target type
+	 * @param capacity Number of rows
+	 * @return Batch
+	 * @throws ConverterManagerException
+	 */
+	public static ColumnBatch heap(Class<?> targetType, int capacity) {
+		return new ColumnBatch(targetType, checkCapacity(capacity), PropertyMapper.getReadableProperties(targetType), null);
+	}
+
+	/**
+	 * Creates a batch of direct buffers for the primitive columns.
+	 *
+	 * @param targetType Target type
+	 * @param capacity Number of rows
+	 * @return Batch
+	 * @throws ConverterManagerException
+	 */
+	public static ColumnBatch direct(Class<?> targetType, int capacity) {
+		checkCapacity(capacity);
+		PropertyDescriptor[] properties = PropertyMapper.getReadableProperties(targetType);
+		ByteBuffer[] buffers = new ByteBuffer[properties.length];
+		for ( int i = 0; i < properties.length; i++ ) {
+			int width = width(properties[i].getReadMethod().getReturnType());
+			if ( width > 0 ) {
+				buffers[i] = ByteBuffer.allocateDirect(capacity * width).order(ByteOrder.nativeOrder());
+			}
+		}
+		return new ColumnBatch(targetType, capacity, properties, buffers);
+	}
+
+	/**
+	 * Creates a batch of buffers mapped from a file for the primitive
+	 * columns, one after the other from a position.
+	 *
+	 * @param targetType Target type
+	 * @param capacity Number of rows
+	 * @param channel File opened to read and write
+	 * @param position Position of the first column in the file
+	 * @return Batch
+	 * @throws IOException when the file can't be mapped
+	 * @throws ConverterManagerException
+	 */
+	public static ColumnBatch mapped(Class<?> targetType, int capacity, FileChannel channel, long position)
+			throws IOException {
+		checkCapacity(capacity);
+		PropertyDescriptor[] properties = PropertyMapper.getReadableProperties(targetType);
+		ByteBuffer[] buffers = new ByteBuffer[properties.length];
+		long offset = position;
+		for ( int i = 0; i < properties.length; i++ ) {
+			int width = width(properties[i].getReadMethod().getReturnType());
+			if ( width > 0 ) {
+				long bytes = (long) capacity * width;
+				buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset, bytes).order(ByteOrder.nativeOrder());
+				offset += bytes;
+			}
+		}
+		return new ColumnBatch(targetType, capacity, properties, buffers);
+	}
+
+	private static int checkCapacity(int capacity) {
+		if ( capacity < 0 ) {
+			throw new ConverterManagerException(String.format(Message.COLUMN_INVALID_CAPACITY.getString(),
+					Integer.valueOf(capacity)));
+		}
+		return capacity;
+	}
+
+	// bytes of a value in a buffer, 0 for objects
+	private static int width(Class<?> type) {
+		if ( type == Long.TYPE || type == Double.TYPE ) {
+			return 8;
+		} else if ( type == Integer.TYPE || type == Float.TYPE ) {
+			return 4;
+		} else if ( type == Short.TYPE || type == Character.TYPE ) {
+			return 2;
+		} else if ( type == Byte.TYPE || type == Boolean.TYPE ) {
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Get the target type.
+	 *
+	 * @return Target type
+	 */
+	public Class<?> getTargetType() {
+		return targetType;
+	}
+
+	/**
+	 * Get the number of rows the batch can hold.
+	 *
+	 * @return Capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the number of rows converted.
+	 *
+	 * @return Rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Empties the batch, to convert more rows into the same columns.
+	 */
+	public void clear() {
+		size = 0;
+		for ( int i = 0; i < arrays.length; i++ ) {
+			if ( arrays[i] instanceof Object[] ) {
+				Arrays.fill((Object[]) arrays[i], null);
+			}
+		}
+	}
+
+	/**
+	 * Get the column names, the target property names.
+	 *
+	 * @return Names
+	 */
+	public List<String> getColumnNames() {
+		return names;
+	}
+
+	/**
+	 * Get the type of a column, the target property type.
+	 *
+	 * @param column Column name
+	 * @return Type
+	 * @throws ConverterManagerException when there's no such column
+	 */
+	public Class<?> getColumnType(String column) {
+		return types[indexOf(column)];
+	}
+
+	/**
+	 * Get the array of a column.
+	 *
+	 * @param column Column name
+	 * @return Primitive array, object array for other types, null for a primitive column in a buffer
+	 * @throws ConverterManagerException when there's no such column
+	 */
+	public Object getArray(String column) {
+		return arrays[indexOf(column)];
+	}
+
+	/**
+	 * Get the buffer of a primitive column, from the first row to the last
+	 * one converted.
+	 *
+	 * @param column Column name
+	 * @return Buffer, null for a column in an array
+	 * @throws ConverterManagerException when there's no such column
+	 */
+	public ByteBuffer getBuffer(String column) {
+		int index = indexOf(column);
+		if ( buffers == null || buffers[index] == null ) {
+			return null;
+		}
+		ByteBuffer buffer = buffers[index].duplicate().order(buffers[index].order());
+		buffer.clear();
+		buffer.limit(size * width(types[index]));
+		return buffer;
+	}
+
+	/**
+	 * Get a value.
+	 *
+	 * @param row Row
+	 * @param column Column name
+	 * @return Value, boxed for primitive columns
+	 * @throws ConverterManagerException when there's no such column
+	 */
+	public Object get(int row, String column) {
+		if ( row < 0 || row >= size ) {
+			throw new IndexOutOfBoundsException();
+		}
+		int index = indexOf(column);
+		if ( arrays[index] != null ) {
+			return Array.get(arrays[index], row);
+		}
+		ByteBuffer buffer = buffers[index];
+		Class<?> type = types[index];
+		int offset = row * width(type);
+		if ( type == Long.TYPE ) {
+			return Long.valueOf(buffer.getLong(offset));
+		} else if ( type == Integer.TYPE ) {
+			return Integer.valueOf(buffer.getInt(offset));
+		} else if ( type == Double.TYPE ) {
+			return Double.valueOf(buffer.getDouble(offset));
+		} else if ( type == Float.TYPE ) {
+			return Float.valueOf(buffer.getFloat(offset));
+		} else if ( type == Short.TYPE ) {
+			return Short.valueOf(buffer.getShort(offset));
+		} else if ( type == Character.TYPE ) {
+			return Character.valueOf(buffer.getChar(offset));
+		} else if ( type == Byte.TYPE ) {
+			return Byte.valueOf(buffer.get(offset));
+		}
+		return Boolean.valueOf(buffer.get(offset) != 0);
+	}
+
+	private int indexOf(String column) {
+		int index = names.indexOf(column);
+		if ( index < 0 ) {
+			throw new ConverterManagerException(String.format(Message.COLUMN_NOT_FOUND.getString(), column, targetType));
+		}
+		return index;
+	}
+
+	// add a row, all zeros and nulls
+	int addRow() {
+		if ( size == capacity ) {
+			throw new ConversionFailedException(String.format(Message.COLUMN_BATCH_FULL.getString(),
+					Integer.valueOf(capacity), targetType));
+		}
+		return size++;
+	}
+
+	// set a value, a null sets a zero in a primitive column
+	void set(int column, int row, Object value) {
+		Class<?> type = types[column];
+		if ( !type.isPrimitive() ) {
+			((Object[]) arrays[column])[row] = value;
+		} else if ( type == Boolean.TYPE ) {
+			boolean flag = value != null && ((Boolean) value).booleanValue();
+			if ( arrays[column] != null ) {
+				((boolean[]) arrays[column])[row] = flag;
+			} else {
+				buffers[column].put(row, (byte) (flag ? 1 : 0));
+			}
+		} else if ( type == Character.TYPE ) {
+			char character = value == null ? 0 : ((Character) value).charValue();
+			if ( arrays[column] != null ) {
+				((char[]) arrays[column])[row] = character;
+			} else {
+				buffers[column].putChar(row * 2, character);
+			}
+		} else {
+			setNumber(column, row, type, value == null ? Integer.valueOf(0) : (Number) value);
+		}
+	}
+
+	private void setNumber(int column, int row, Class<?> type, Number value) {
+		Object array = arrays[column];
+		ByteBuffer buffer = buffers == null ? null : buffers[column];
+		if ( type == Long.TYPE ) {
+			if ( array != null ) {
+				((long[]) array)[row] = value.longValue();
+			} else {
+				buffer.putLong(row * 8, value.longValue());
+			}
+		} else if ( type == Integer.TYPE ) {
+			if ( array != null ) {
+				((int[]) array)[row] = value.intValue();
+			} else {
+				buffer.putInt(row * 4, value.intValue());
+			}
+		} else if ( type == Double.TYPE ) {
+			if ( array != null ) {
+				((double[]) array)[row] = value.doubleValue();
+			} else {
+				buffer.putDouble(row * 8, value.doubleValue());
+			}
+		} else if ( type == Float.TYPE ) {
+			if ( array != null ) {
+				((float[]) array)[row] = value.floatValue();
+			} else {
+				buffer.putFloat(row * 4, value.floatValue());
+			}
+		} else if ( type == Short.TYPE ) {
+			if ( array != null ) {
+				((short[]) array)[row] = value.shortValue();
+			} else {
+				buffer.putShort(row * 2, value.shortValue());
+			}
+		} else if ( array != null ) {
+			((byte[]) array)[row] = value.byteValue();
+		} else {
+			buffer.put(row, value.byteValue());
+		}
+	}
+}
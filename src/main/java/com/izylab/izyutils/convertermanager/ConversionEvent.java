@@ -0,0 +1,142 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+/**
+ * One conversion seen by a {@link ConversionListener}.
+ */
+public final class ConversionEvent {
+	private final Object source;
+	private final Class<?> targetType;
+	private final Class<?> converterClass;
+	private final Class<?> converterSourceType;
+	private final Object[] args;
+	private long startNanos;
+	private long elapsedNanos = -1;
+
+	ConversionEvent(Object source, Class<?> targetType, Class<?> converterClass, Class<?> converterSourceType,
+			Object[] args) {
+		this.source = source;
+		this.targetType = targetType;
+		this.converterClass = converterClass;
+		this.converterSourceType = converterSourceType;
+		this.args = args;
+	}
+
+	// converter about to be called, after the listeners
+	void start(long startNanos) {
+		this.startNanos = startNanos;
+	}
+
+	// conversion done
+	void finish(long endNanos) {
+		elapsedNanos = endNanos - startNanos;
+	}
+
+	/**
+	 * Object being converted.
+	 * 
+	 * @return Source object
+	 */
+	public Object getSource() {
+		return source;
+	}
+
+	/**
+	 * Type of the object being converted.
+	 * 
+	 * @return Source type
+	 */
+	public Class<?> getSourceType() {
+		return source.getClass();
+	}
+
+	/**
+	 * Type converted to.
+	 * 
+	 * @return Target type
+	 */
+	public Class<?> getTargetType() {
+		return targetType;
+	}
+
+	/**
+	 * Class of the converter doing the conversion.
+	 * 
+	 * @return Converter class
+	 */
+	public Class<?> getConverterClass() {
+		return converterClass;
+	}
+
+	/**
+	 * Source type the converter was registered for, an interface or a
+	 * superclass of the source type on a hierarchy fallback.
+	 * 
+	 * @return Registered source type
+	 */
+	public Class<?> getConverterSourceType() {
+		return converterSourceType;
+	}
+
+	/**
+	 * Additional arguments passed to the converter.
+	 * 
+	 * @return Arguments, never null
+	 */
+	public Object[] getArgs() {
+		return args == null ? new Object[0] : args.clone();
+	}
+
+	/**
+	 * Number of additional arguments passed to the converter.
+	 * 
+	 * @return Argument count
+	 */
+	public int getArgCount() {
+		return args == null ? 0 : args.length;
+	}
+
+	/**
+	 * Test to see if the converter was found through an interface or the
+	 * superclass of the source type.
+	 * 
+	 * @return true if it was not an exact match
+	 */
+	public boolean isHierarchyFallback() {
+		return converterSourceType != source.getClass();
+	}
+
+	/**
+	 * Value of <code>System.nanoTime()</code> right before the converter was
+	 * called, after the <code>beforeConversion</code> listeners.
+	 * 
+	 * @return Start time in nanoseconds, 0 in <code>beforeConversion</code>
+	 */
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	/**
+	 * Time spent in the converter, only known after the conversion.
+	 * 
+	 * @return Elapsed nanoseconds, -1 before the conversion is done
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.izylab.izyutils.convertermanager.internal.Json;
+
+/**
+ * How a converter is looked up for a source class and a target type.
+ *
+ * <p>The steps are the register lookups of the first conversion, in order,
+ * until a converter is found. Later conversions of the same types take a
+ * single lookup, once the result is cached.
+ *
+ * @see ConverterManager#explain(Class, Class)
+ */
+public final class ConversionExplanation {
+
+	/**
+	 * Where a lookup looks.
+	 */
+	public enum Lookup {
+		/** The source class */
+		EXACT,
+		/** An interface of the source class */
+		INTERFACE,
+		/** A superclass */
+		SUPERCLASS,
+		/** An interface of a superclass */
+		SUPERCLASS_INTERFACE
+	}
+
+	/**
+	 * A register lookup.
+	 */
+	public static final class Step {
+		private final Lookup lookup;
+		private final Class<?> type;
+		private final boolean autoMapping;
+		private final ConverterDescription converter;
+
+		Step(Lookup lookup, Class<?> type, boolean autoMapping, ConverterDescription converter) {
+			this.lookup = lookup;
+			this.type = type;
+			this.autoMapping = autoMapping;
+			this.converter = converter;
+		}
+
+		/**
+		 * Where it looks.
+		 *
+		 * @return Lookup
+		 */
+		public Lookup getLookup() {
+			return lookup;
+		}
+
+		/**
+		 * Source type looked up.
+		 *
+		 * @return Type
+		 */
+		public Class<?> getType() {
+			return type;
+		}
+
+		/**
+		 * Does it look in the auto mappings.
+		 *
+		 * @return true after no converter was found
+		 */
+		public boolean isAutoMapping() {
+			return autoMapping;
+		}
+
+		/**
+		 * Converter found.
+		 *
+		 * @return Converter, null for a miss
+		 */
+		public ConverterDescription getConverter() {
+			return converter;
+		}
+
+		@Override
+		public String toString() {
+			return (autoMapping ? "auto mapping " : "") + lookup + ' ' + type.getName() + ": " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ (converter == null ? "miss" : converter.toString()); //$NON-NLS-1$
+		}
+	}
+
+	private final Class<?> sourceType;
+	private final Class<?> targetType;
+	private final boolean cached;
+	private final List<Step> steps;
+	private final ConverterDescription converter;
+	private final List<ConverterDescription> shadowed;
+	private final List<ConverterDescription> ambiguous;
+	private final List<ConverterDescription> unreachable;
+
+	ConversionExplanation(Class<?> sourceType, Class<?> targetType, boolean cached, List<Step> steps,
+			ConverterDescription converter, List<ConverterDescription> shadowed,
+			List<ConverterDescription> ambiguous, List<ConverterDescription> unreachable) {
+		this.sourceType = sourceType;
+		this.targetType = targetType;
+		this.cached = cached;
+		this.steps = Collections.unmodifiableList(steps);
+		this.converter = converter;
+		this.shadowed = Collections.unmodifiableList(shadowed);
+		this.ambiguous = Collections.unmodifiableList(ambiguous);
+		this.unreachable = Collections.unmodifiableList(unreachable);
+	}
+
+	/**
+	 * Source class.
+	 *
+	 * @return Source class
+	 */
+	public Class<?> getSourceType() {
+		return sourceType;
+	}
+
+	/**
+	 * Target type.
+	 *
+	 * @return Target type
+	 */
+	public Class<?> getTargetType() {
+		return targetType;
+	}
+
+	/**
+	 * Is the lookup already cached.
+	 *
+	 * @return true if a conversion takes a single lookup
+	 */
+	public boolean isCached() {
+		return cached;
+	}
+
+	/**
+	 * Lookups of the first conversion.
+	 *
+	 * @return Steps, the last one finds the converter unless there's none
+	 */
+	public List<Step> getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Number of lookups of the first conversion.
+	 *
+	 * @return Lookups
+	 */
+	public int getLookups() {
+		return steps.size();
+	}
+
+	/**
+	 * Converter found.
+	 *
+	 * @return Converter, null if the types can't be converted
+	 */
+	public ConverterDescription getConverter() {
+		return converter;
+	}
+
+	/**
+	 * Converters matching further up the hierarchy, never used for the source class.
+	 *
+	 * @return Converters
+	 */
+	public List<ConverterDescription> getShadowed() {
+		return shadowed;
+	}
+
+	/**
+	 * Converters of other interfaces at the same level as the one found,
+	 * the first interface declared wins.
+	 *
+	 * @return Converters
+	 */
+	public List<ConverterDescription> getAmbiguous() {
+		return ambiguous;
+	}
+
+	/**
+	 * Converters of a supertype of the source class that the lookup doesn't
+	 * check, like the super interface of an interface.
+	 *
+	 * @return Converters
+	 */
+	public List<ConverterDescription> getUnreachable() {
+		return unreachable;
+	}
+
+	/**
+	 * JSON object of the explanation.
+	 *
+	 * @return JSON
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{ \"source\": ").append(Json.quote(sourceType)) //$NON-NLS-1$
+				.append(", \"target\": ").append(Json.quote(targetType)) //$NON-NLS-1$
+				.append(", \"cached\": ").append(cached) //$NON-NLS-1$
+				.append(", \"lookups\": ").append(steps.size()) //$NON-NLS-1$
+				.append(", \"steps\": ["); //$NON-NLS-1$
+		String separator = ""; //$NON-NLS-1$
+		for ( Step step : steps ) {
+			json.append(separator).append("{ \"lookup\": ").append(Json.quote(step.lookup.name())) //$NON-NLS-1$
+					.append(", \"type\": ").append(Json.quote(step.type)) //$NON-NLS-1$
+					.append(", \"autoMapping\": ").append(step.autoMapping) //$NON-NLS-1$
+					.append(", \"converter\": ").append(step.converter == null ? "null" : step.converter.toJson()) //$NON-NLS-1$ //$NON-NLS-2$
+					.append(" }"); //$NON-NLS-1$
+			separator = ", "; //$NON-NLS-1$
+		}
+		json.append("], \"converter\": ").append(converter == null ? "null" : converter.toJson()); //$NON-NLS-1$ //$NON-NLS-2$
+		appendJson(json, "shadowed", shadowed); //$NON-NLS-1$
+		appendJson(json, "ambiguous", ambiguous); //$NON-NLS-1$
+		appendJson(json, "unreachable", unreachable); //$NON-NLS-1$
+		return json.append(" }").toString(); //$NON-NLS-1$
+	}
+
+	private static void appendJson(StringBuilder json, String name, List<ConverterDescription> converters) {
+		json.append(", ").append(Json.quote(name)).append(": ["); //$NON-NLS-1$ //$NON-NLS-2$
+		String separator = ""; //$NON-NLS-1$
+		for ( ConverterDescription description : converters ) {
+			json.append(separator).append(description.toJson());
+			separator = ", "; //$NON-NLS-1$
+		}
+		json.append(']');
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder(sourceType.getName()).append(" -> ") //$NON-NLS-1$
+				.append(targetType.getName()).append(": ") //$NON-NLS-1$
+				.append(converter == null ? "no converter" : converter.getConverterClass().getName()) //$NON-NLS-1$
+				.append(", ").append(steps.size()).append(" lookups") //$NON-NLS-1$ //$NON-NLS-2$
+				.append(cached ? ", cached" : "").append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
+		for ( int i = 0; i < steps.size(); i++ ) {
+			text.append("  ").append(i + 1).append(". ").append(steps.get(i)).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		appendText(text, "shadowed", shadowed); //$NON-NLS-1$
+		appendText(text, "ambiguous", ambiguous); //$NON-NLS-1$
+		appendText(text, "unreachable", unreachable); //$NON-NLS-1$
+		return text.toString();
+	}
+
+	private static void appendText(StringBuilder text, String name, List<ConverterDescription> converters) {
+		for ( ConverterDescription description : converters ) {
+			text.append("  ").append(name).append(": ").append(description).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+/**
+ * Observes the conversions done by a converter manager.
+ * 
+ * <p>Listeners are called on the converting thread, before and after each
+ * converter call, so they should be quick. Exceptions thrown by a listener
+ * are logged and don't affect the conversion.
+ * 
+ * @see ConverterManager#addConversionListener(ConversionListener)
+ */
+public interface ConversionListener {
+	/**
+	 * Called before the converter.
+	 * 
+	 * @param event Conversion
+	 */
+	void beforeConversion(ConversionEvent event);
+
+	/**
+	 * Called after the converter returned.
+	 * 
+	 * @param event Conversion
+	 * @param result Converted object, or the filled target
+	 */
+	void afterConversion(ConversionEvent event, Object result);
+
+	/**
+	 * Called after the converter failed.
+	 * 
+	 * @param event Conversion
+	 * @param cause Error thrown by the conversion
+	 */
+	void conversionFailed(ConversionEvent event, RuntimeException cause);
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+/**
+ * Resources used by the sampled conversions of a source type, target type
+ * and converter.
+ *
+ * @see ConversionProfiler
+ */
+public final class ConversionProfile {
+	private final Class<?> sourceType;
+	private final Class<?> targetType;
+	private final Class<?> converterClass;
+	private final long samples;
+	private final long allocatedBytes;
+	private final long cpuNanos;
+
+	ConversionProfile(Class<?> sourceType, Class<?> targetType, Class<?> converterClass,
+			long samples, long allocatedBytes, long cpuNanos) {
+		this.sourceType = sourceType;
+		this.targetType = targetType;
+		this.converterClass = converterClass;
+		this.samples = samples;
+		this.allocatedBytes = allocatedBytes;
+		this.cpuNanos = cpuNanos;
+	}
+
+	/**
+	 * Source type.
+	 *
+	 * @return Source type
+	 */
+	public Class<?> getSourceType() {
+		return sourceType;
+	}
+
+	/**
+	 * Target type.
+	 *
+	 * @return Target type
+	 */
+	public Class<?> getTargetType() {
+		return targetType;
+	}
+
+	/**
+	 * Converter class.
+	 *
+	 * @return Converter class
+	 */
+	public Class<?> getConverterClass() {
+		return converterClass;
+	}
+
+	/**
+	 * Number of sampled conversions.
+	 *
+	 * @return Samples
+	 */
+	public long getSamples() {
+		return samples;
+	}
+
+	/**
+	 * Bytes allocated by the sampled conversions.
+	 *
+	 * @return Bytes
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * CPU time used by the sampled conversions.
+	 *
+	 * @return Nanoseconds
+	 */
+	public long getCpuNanos() {
+		return cpuNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s -> %s (%s): %d samples, %d bytes, %d ns cpu", //$NON-NLS-1$
+				sourceType.getName(), targetType.getName(), converterClass.getName(),
+				Long.valueOf(samples), Long.valueOf(allocatedBytes), Long.valueOf(cpuNanos));
+	}
+}
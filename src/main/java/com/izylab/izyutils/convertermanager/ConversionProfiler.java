@@ -0,0 +1,332 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.izylab.izyutils.convertermanager.internal.Message;
+import com.izylab.izyutils.convertermanager.internal.ThreadUsage;
+
+/**
+ * Conversion listener attributing allocated bytes and CPU time to each
+ * source type, target type and converter.
+ *
+ * <p><pre>
+ * ConversionProfiler profiler = new ConversionProfiler(100);
+ * converterManager.addConversionListener(profiler);
+ * profiler.registerMBean("com.example:type=ConversionProfiler");
+ * ...
+ * for ( ConversionProfile profile : profiler.getTop(10, ConversionProfiler.Order.ALLOCATED_BYTES) ) {
+ *     System.out.println(profile);
+ * }
+ * </pre>
+ *
+ * <p>Only one conversion out of the sample rate is measured on each thread,
+ * so it can stay on under load. Measures are read from the thread's
+ * <code>ThreadMXBean</code> counters, conversions done inside a converter
+ * are counted in both the inner and outer conversion.
+ */
+public class ConversionProfiler implements ConversionListener, ConversionProfilerMBean {
+
+	/**
+	 * Report ordering.
+	 */
+	public static enum Order {
+		/** Most allocated bytes first */
+		ALLOCATED_BYTES,
+		/** Most CPU time first */
+		CPU_TIME,
+		/** Most samples first */
+		SAMPLES
+	}
+
+	private final ConcurrentMap<Key, Counters> counters = new ConcurrentHashMap<Key, Counters>();
+	private final ThreadLocal<Samples> samples = new ThreadLocal<Samples>() {
+		@Override
+		protected Samples initialValue() {
+			return new Samples();
+		}
+	};
+	private volatile int sampleRate;
+
+	/**
+	 * Creates a profiler.
+	 *
+	 * @param sampleRate One conversion out of this many is measured, 1 measures all
+	 * @throws ConverterManagerException
+	 */
+	public ConversionProfiler(int sampleRate) {
+		setSampleRate(sampleRate);
+	}
+
+	@Override
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	@Override
+	public void setSampleRate(int sampleRate) {
+		if ( sampleRate < 1 ) {
+			throw new ConverterManagerException(String.format(Message.PROFILER_INVALID_SAMPLE_RATE.getString(),
+					Integer.valueOf(sampleRate)));
+		}
+		this.sampleRate = sampleRate;
+	}
+
+	@Override
+	public boolean isAllocatedBytesSupported() {
+		return ThreadUsage.isAllocatedBytesSupported();
+	}
+
+	@Override
+	public boolean isCpuTimeSupported() {
+		return ThreadUsage.isCpuTimeSupported();
+	}
+
+	@Override
+	public void beforeConversion(ConversionEvent event) {
+		samples.get().start(sampleRate);
+	}
+
+	@Override
+	public void afterConversion(ConversionEvent event, Object result) {
+		stop(event);
+	}
+
+	@Override
+	public void conversionFailed(ConversionEvent event, RuntimeException cause) {
+		stop(event);
+	}
+
+	private void stop(ConversionEvent event) {
+		Samples current = samples.get();
+		if ( !current.stop() ) {
+			return;
+		}
+		Key key = new Key(event.getSourceType(), event.getTargetType(), event.getConverterClass());
+		Counters total = counters.get(key);
+		if ( total == null ) {
+			Counters created = new Counters();
+			total = counters.putIfAbsent(key, created);
+			if ( total == null ) {
+				total = created;
+			}
+		}
+		total.samples.incrementAndGet();
+		if ( current.allocatedBytes >= 0 ) {
+			total.allocatedBytes.addAndGet(current.allocatedBytes);
+		}
+		if ( current.cpuNanos >= 0 ) {
+			total.cpuNanos.addAndGet(current.cpuNanos);
+		}
+	}
+
+	/**
+	 * Get everything measured so far.
+	 *
+	 * @return Profiles, in no particular order
+	 */
+	public List<ConversionProfile> getProfiles() {
+		List<ConversionProfile> profiles = new ArrayList<ConversionProfile>(counters.size());
+		for ( Map.Entry<Key, Counters> entry : counters.entrySet() ) {
+			Key key = entry.getKey();
+			Counters total = entry.getValue();
+			profiles.add(new ConversionProfile(key.sourceType, key.targetType, key.converterClass,
+					total.samples.get(), total.allocatedBytes.get(), total.cpuNanos.get()));
+		}
+		return profiles;
+	}
+
+	/**
+	 * Get the most expensive conversions.
+	 *
+	 * @param count Maximum number of profiles
+	 * @param order Order
+	 * @return Profiles, most expensive first
+	 */
+	public List<ConversionProfile> getTop(int count, final Order order) {
+		List<ConversionProfile> profiles = getProfiles();
+		Collections.sort(profiles, new Comparator<ConversionProfile>() {
+			@Override
+			public int compare(ConversionProfile o1, ConversionProfile o2) {
+				long v1 = value(o1, order);
+				long v2 = value(o2, order);
+				return v1 < v2 ? 1 : (v1 == v2 ? 0 : -1);
+			}
+		});
+		return profiles.size() > count ? profiles.subList(0, Math.max(count, 0)) : profiles;
+	}
+
+	private static long value(ConversionProfile profile, Order order) {
+		switch ( order ) {
+		case ALLOCATED_BYTES:
+			return profile.getAllocatedBytes();
+		case CPU_TIME:
+			return profile.getCpuNanos();
+		default:
+			return profile.getSamples();
+		}
+	}
+
+	@Override
+	public String[] topByAllocatedBytes(int count) {
+		return lines(getTop(count, Order.ALLOCATED_BYTES));
+	}
+
+	@Override
+	public String[] topByCpuTime(int count) {
+		return lines(getTop(count, Order.CPU_TIME));
+	}
+
+	@Override
+	public String[] topBySamples(int count) {
+		return lines(getTop(count, Order.SAMPLES));
+	}
+
+	private static String[] lines(List<ConversionProfile> profiles) {
+		String[] lines = new String[profiles.size()];
+		for ( int i = 0; i < lines.length; i++ ) {
+			lines[i] = profiles.get(i).toString();
+		}
+		return lines;
+	}
+
+	@Override
+	public void reset() {
+		counters.clear();
+	}
+
+	/**
+	 * Registers this profiler in the platform MBean server.
+	 *
+	 * @param objectName MBean name
+	 * @throws ConverterManagerException
+	 */
+	public void registerMBean(String objectName) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+		} catch ( JMException ex ) {
+			throw new ConverterManagerException(String.format(Message.PROFILER_MBEAN_FAILED.getString(),
+					objectName), ex);
+		}
+	}
+
+	/**
+	 * Removes this profiler from the platform MBean server.
+	 *
+	 * @param objectName MBean name
+	 * @throws ConverterManagerException
+	 */
+	public void unregisterMBean(String objectName) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(objectName));
+		} catch ( JMException ex ) {
+			throw new ConverterManagerException(String.format(Message.PROFILER_MBEAN_FAILED.getString(),
+					objectName), ex);
+		}
+	}
+
+	// source, target and converter
+	private static class Key {
+		final Class<?> sourceType;
+		final Class<?> targetType;
+		final Class<?> converterClass;
+
+		Key(Class<?> sourceType, Class<?> targetType, Class<?> converterClass) {
+			this.sourceType = sourceType;
+			this.targetType = targetType;
+			this.converterClass = converterClass;
+		}
+
+		@Override
+		public int hashCode() {
+			return (sourceType.hashCode() * 31 + targetType.hashCode()) * 31 + converterClass.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if ( !(obj instanceof Key) ) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return sourceType == other.sourceType && targetType == other.targetType
+					&& converterClass == other.converterClass;
+		}
+	}
+
+	// totals of a key
+	private static class Counters {
+		final AtomicLong samples = new AtomicLong();
+		final AtomicLong allocatedBytes = new AtomicLong();
+		final AtomicLong cpuNanos = new AtomicLong();
+	}
+
+	// measures of the conversions running on a thread, nested conversions stack up
+	private static class Samples {
+		private int countdown = 1;
+		private int depth;
+		private boolean[] sampled = new boolean[4];
+		private long[] startBytes = new long[4];
+		private long[] startCpu = new long[4];
+		long allocatedBytes;
+		long cpuNanos;
+
+		void start(int sampleRate) {
+			if ( depth == sampled.length ) {
+				sampled = Arrays.copyOf(sampled, depth * 2);
+				startBytes = Arrays.copyOf(startBytes, depth * 2);
+				startCpu = Arrays.copyOf(startCpu, depth * 2);
+			}
+			boolean measure = --countdown <= 0;
+			if ( measure ) {
+				countdown = sampleRate;
+				startBytes[depth] = ThreadUsage.allocatedBytes();
+				startCpu[depth] = ThreadUsage.cpuTime();
+			}
+			sampled[depth++] = measure;
+		}
+
+		// false when the conversion wasn't sampled
+		boolean stop() {
+			if ( depth == 0 ) {
+				// listener added during the conversion
+				return false;
+			}
+			depth--;
+			if ( !sampled[depth] ) {
+				return false;
+			}
+			long cpu = ThreadUsage.cpuTime();
+			long bytes = ThreadUsage.allocatedBytes();
+			allocatedBytes = bytes < 0 ? -1 : bytes - startBytes[depth];
+			cpuNanos = cpu < 0 ? -1 : cpu - startCpu[depth];
+			return true;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+/**
+ * JMX view of a conversion profiler.
+ *
+ * @see ConversionProfiler#registerMBean(String)
+ */
+public interface ConversionProfilerMBean {
+	/**
+	 * Get the sampling rate.
+	 *
+	 * @return One conversion out of this many is measured
+	 */
+	int getSampleRate();
+
+	/**
+	 * Set the sampling rate.
+	 *
+	 * @param sampleRate One conversion out of this many is measured, 1 measures all
+	 */
+	void setSampleRate(int sampleRate);
+
+	/**
+	 * Test to see if allocated bytes are measured on this JVM.
+	 *
+	 * @return true if supported
+	 */
+	boolean isAllocatedBytesSupported();
+
+	/**
+	 * Test to see if CPU time is measured on this JVM.
+	 *
+	 * @return true if supported
+	 */
+	boolean isCpuTimeSupported();
+
+	/**
+	 * Conversions allocating the most bytes.
+	 *
+	 * @param count Maximum number of lines
+	 * @return One line per source type, target type and converter
+	 */
+	String[] topByAllocatedBytes(int count);
+
+	/**
+	 * Conversions using the most CPU time.
+	 *
+	 * @param count Maximum number of lines
+	 * @return One line per source type, target type and converter
+	 */
+	String[] topByCpuTime(int count);
+
+	/**
+	 * Conversions sampled the most.
+	 *
+	 * @param count Maximum number of lines
+	 * @return One line per source type, target type and converter
+	 */
+	String[] topBySamples(int count);
+
+	/**
+	 * Forgets everything measured so far.
+	 */
+	void reset();
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.izylab.izyutils.convertermanager.internal.Message;
+
+/**
+ * Conversions of a source to several target types.
+ *
+ * <p><pre>
+ * ConversionResults results = converterManager.convertToMany(order, OrderDto.class, OrderAudit.class);
+ * OrderDto dto = results.get(OrderDto.class);
+ * </pre>
+ *
+ * @see ConverterManager#convertToMany(Object, Class...)
+ */
+public final class ConversionResults {
+	private final Object source;
+	private final Class<?>[] targetTypes;
+	private final Object[] results;
+
+	ConversionResults(Object source, Class<?>[] targetTypes, Object[] results) {
+		this.source = source;
+		this.targetTypes = targetTypes;
+		this.results = results;
+	}
+
+	/**
+	 * Get the conversion to a target type.
+	 *
+	 * @param targetType Target type, one of the converted ones
+	 * @return Converted object, null for a null source
+	 * @throws ConverterManagerException when the source wasn't converted to the type
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(Class<T> targetType) {
+		for ( int i = 0; i < targetTypes.length; i++ ) {
+			if ( targetTypes[i] == targetType ) {
+				return (T) results[i];
+			}
+		}
+		throw new ConverterManagerException(String.format(Message.RESULTS_NO_TARGET.getString(), targetType));
+	}
+
+	/**
+	 * Was the source converted to a target type.
+	 *
+	 * @param targetType Target type
+	 * @return true if it is one of the converted types
+	 */
+	public boolean contains(Class<?> targetType) {
+		for ( Class<?> converted : targetTypes ) {
+			if ( converted == targetType ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the source.
+	 *
+	 * @return Source
+	 */
+	public Object getSource() {
+		return source;
+	}
+
+	/**
+	 * Get the target types, in the order they were given.
+	 *
+	 * @return Target types
+	 */
+	public List<Class<?>> getTargetTypes() {
+		return Collections.unmodifiableList(Arrays.asList(targetTypes));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder("{"); //$NON-NLS-1$
+		for ( int i = 0; i < targetTypes.length; i++ ) {
+			text.append(i == 0 ? "" : ", ").append(targetTypes[i].getName()).append('=').append(results[i]); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return text.append('}').toString();
+	}
+}
@@ -21,8 +21,33 @@ import java.lang.annotation.Target;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.RetentionPolicy;
 
+/**
+ * Marks a converter method.
+ */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Converter {
-	/* empty */
+	/**
+	 * Marks a converter whose result only depends on the source and the
+	 * arguments, so it can be served from a result cache.
+	 * 
+	 * @see ConverterManager#setResultCache(PersistentResultCache)
+	 */
+	boolean pure() default false;
+
+	/**
+	 * Priority among the converters of the same source and target types,
+	 * the highest one is used. Converters of the same types must have
+	 * different priorities, unless they are candidates.
+	 */
+	int priority() default 0;
+
+	/**
+	 * Marks a converter competing with the other converters of the same
+	 * types. It is only used when it has the highest priority, or by the
+	 * adaptive selection when it is faster.
+	 * 
+	 * @see ConverterManager#setAdaptiveSelection(boolean)
+	 */
+	boolean candidate() default false;
 }
\ No newline at end of file
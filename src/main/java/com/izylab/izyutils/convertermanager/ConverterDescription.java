@@ -0,0 +1,200 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Set;
+
+import com.izylab.izyutils.convertermanager.internal.Json;
+
+/**
+ * A registered converter, with what may keep it from being used.
+ *
+ * @see ConverterManager#describeConverters()
+ */
+public final class ConverterDescription {
+
+	/**
+	 * What may keep a converter from being used.
+	 */
+	public enum Issue {
+		/** Another converter of the same types is always used instead */
+		SHADOWED,
+		/** The converter used depends on the registration order */
+		AMBIGUOUS,
+		/** The lookup never reaches the converter */
+		UNREACHABLE
+	}
+
+	private final Class<?> sourceType;
+	private final Class<?> targetType;
+	private final Class<?> converterClass;
+	private final Method method;
+	private final boolean into;
+	private final int priority;
+	private final boolean candidate;
+	private final Set<Issue> issues;
+	private final String detail;
+
+	ConverterDescription(Class<?> sourceType, Class<?> targetType, Class<?> converterClass, Method method,
+			boolean into, int priority, boolean candidate, Set<Issue> issues, String detail) {
+		this.sourceType = sourceType;
+		this.targetType = targetType;
+		this.converterClass = converterClass;
+		this.method = method;
+		this.into = into;
+		this.priority = priority;
+		this.candidate = candidate;
+		this.issues = Collections.unmodifiableSet(issues);
+		this.detail = detail;
+	}
+
+	/**
+	 * Source type the converter was registered for.
+	 *
+	 * @return Source type
+	 */
+	public Class<?> getSourceType() {
+		return sourceType;
+	}
+
+	/**
+	 * Target type the converter was registered for.
+	 *
+	 * @return Target type
+	 */
+	public Class<?> getTargetType() {
+		return targetType;
+	}
+
+	/**
+	 * Converter class.
+	 *
+	 * @return Converter class
+	 */
+	public Class<?> getConverterClass() {
+		return converterClass;
+	}
+
+	/**
+	 * Converter method.
+	 *
+	 * @return Method, null for an auto mapping
+	 */
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * Is it an auto mapping.
+	 *
+	 * @return true for a generated converter
+	 * @see ConverterManager#registerAutoMapping(Class, Class)
+	 */
+	public boolean isAutoMapping() {
+		return method == null;
+	}
+
+	/**
+	 * Does it fill an existing target.
+	 *
+	 * @return true for a <code>convertInto</code> converter
+	 */
+	public boolean isInto() {
+		return into;
+	}
+
+	/**
+	 * Priority among the converters of the same types.
+	 *
+	 * @return Priority
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Is it a candidate.
+	 *
+	 * @return true if it competes with the other converters of the same types
+	 */
+	public boolean isCandidate() {
+		return candidate;
+	}
+
+	/**
+	 * What may keep the converter from being used.
+	 *
+	 * @return Issues, empty if none
+	 */
+	public Set<Issue> getIssues() {
+		return issues;
+	}
+
+	/**
+	 * Why the issues were found.
+	 *
+	 * @return Explanation, null without issues
+	 */
+	public String getDetail() {
+		return detail;
+	}
+
+	/**
+	 * JSON object of the converter.
+	 *
+	 * @return JSON
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{ \"source\": ").append(Json.quote(sourceType)) //$NON-NLS-1$
+				.append(", \"target\": ").append(Json.quote(targetType)) //$NON-NLS-1$
+				.append(", \"converter\": ").append(Json.quote(converterClass)) //$NON-NLS-1$
+				.append(", \"method\": ").append(Json.quote(method == null ? null : method.getName())) //$NON-NLS-1$
+				.append(", \"into\": ").append(into) //$NON-NLS-1$
+				.append(", \"priority\": ").append(priority) //$NON-NLS-1$
+				.append(", \"candidate\": ").append(candidate) //$NON-NLS-1$
+				.append(", \"issues\": ["); //$NON-NLS-1$
+		String separator = ""; //$NON-NLS-1$
+		for ( Issue issue : issues ) {
+			json.append(separator).append(Json.quote(issue.name()));
+			separator = ", "; //$NON-NLS-1$
+		}
+		return json.append("], \"detail\": ").append(Json.quote(detail)).append(" }").toString(); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder(sourceType.getName())
+				.append(into ? " into " : " -> ").append(targetType.getName()).append(": "); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		if ( method == null ) {
+			text.append("auto mapping"); //$NON-NLS-1$
+		} else {
+			text.append(converterClass.getName()).append('.').append(method.getName());
+		}
+		if ( priority != 0 ) {
+			text.append(", priority ").append(priority); //$NON-NLS-1$
+		}
+		if ( candidate ) {
+			text.append(", candidate"); //$NON-NLS-1$
+		}
+		if ( !issues.isEmpty() ) {
+			text.append(' ').append(issues).append(' ').append(detail);
+		}
+		return text.toString();
+	}
+}
@@ -16,14 +16,55 @@
  */
 package com.izylab.izyutils.convertermanager;
 
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
+import org.apache.log4j.Logger;
+
+import com.izylab.izyutils.convertermanager.internal.AdaptiveChoice;
+import com.izylab.izyutils.convertermanager.internal.ConverterInstances;
+import com.izylab.izyutils.convertermanager.internal.ConverterTypes;
+import com.izylab.izyutils.convertermanager.internal.EnumMapper;
+import com.izylab.izyutils.convertermanager.internal.FlightRecorderEvents;
+import com.izylab.izyutils.convertermanager.internal.LazyProxies;
 import com.izylab.izyutils.convertermanager.internal.Message;
+import com.izylab.izyutils.convertermanager.internal.PropertyMapper;
+import com.izylab.izyutils.convertermanager.internal.WeakIdentityMap;
+import com.izylab.izyutils.convertermanager.internal.WeakTypeMap;
 
 /**
  * Conversion manager.
@@ -101,7 +142,7 @@ import com.izylab.izyutils.convertermanager.internal.Message;
  * 
  * <p>The <code>convert</code> method will try to search for a converter of the matching
  * object type, if nothing is found it will then try to match on the
- * interface(s) type, and finally on the superclass type.
+ * interface(s) type, and finally on the superclass types and their interfaces.
  * 
  * <p>If no matching converter was found a <code>ConversionFailedException</code>
  * is thrown.
@@ -113,7 +154,132 @@ import com.izylab.izyutils.convertermanager.internal.Message;
  * 
  */
 public class ConverterManager {
-	private Map<ConverterTypes, ConverterCommand> converterRegister = new HashMap<ConverterTypes, ConverterCommand>();
+	private static final Logger log = Logger.getLogger(ConverterManager.class);
+	private static final ConversionListener[] NO_LISTENERS = new ConversionListener[0];
+	private static final Object[] NO_ARGS = new Object[0];
+	// sources looked up before deciding if finding duplicates is worth it, and the share of duplicates it takes
+	private static final int DUPLICATES_SAMPLE = 64;
+	private static final int DUPLICATES_MIN_PERCENT = 25;
+	// kinds of converters registered on a manager
+	private static final int REGISTER = 0;
+	private static final int INTO_REGISTER = 1;
+	private static final int AUTO_MAPPINGS = 2;
+	// highest priority first, then the converter that isn't a candidate
+	private static final Comparator<ConverterCommand> FIXED_CHOICE = new Comparator<ConverterCommand>() {
+		@Override
+		public int compare(ConverterCommand first, ConverterCommand second) {
+			if ( first.getPriority() != second.getPriority() ) {
+				return first.getPriority() > second.getPriority() ? -1 : 1;
+			}
+			return (first.isCandidate() ? 1 : 0) - (second.isCandidate() ? 1 : 0);
+		}
+	};
+	// registered converters by source and target type
+	private static final Comparator<ConverterDescription> DESCRIPTION_ORDER = new Comparator<ConverterDescription>() {
+		@Override
+		public int compare(ConverterDescription first, ConverterDescription second) {
+			int compared = first.getSourceType().getName().compareTo(second.getSourceType().getName());
+			return compared != 0 ? compared : first.getTargetType().getName().compareTo(second.getTargetType().getName());
+		}
+	};
+	
+	private final ConverterManager parent;
+	// converters registered on this manager
+	private final Map<ConverterTypes, ConverterCommand> localRegister = new HashMap<ConverterTypes, ConverterCommand>();
+	private final Map<ConverterTypes, ConverterCommand> localIntoRegister = new HashMap<ConverterTypes, ConverterCommand>();
+	// converters of this manager and its parents, the local ones for a root manager,
+	// the parent ones while a child has none of its own
+	private Map<ConverterTypes, ConverterCommand> converterRegister = localRegister;
+	private Map<ConverterTypes, ConverterCommand> converterIntoRegister = localIntoRegister;
+	// generated converters, used when no converter is registered
+	private final Map<ConverterTypes, ConverterCommand> localAutoMappings = new HashMap<ConverterTypes, ConverterCommand>();
+	private Map<ConverterTypes, ConverterCommand> autoMappings = localAutoMappings;
+	// generated enum converters, null when not set on this manager
+	private Boolean localEnumConversion;
+	private boolean enumConversion;
+	private final Map<Class<?>, Object> localEnumFallbacks = new HashMap<Class<?>, Object>();
+	private Map<Class<?>, Object> enumFallbacks = localEnumFallbacks;
+	// converters found or generated for the actual source classes, including through the hierarchy,
+	// weakly keyed so classes converted by the converters of other class loaders can be unloaded,
+	// a command references its own types so those go when their class loader is unregistered
+	private WeakTypeMap<ConverterCommand> resolvedConverters = new WeakTypeMap<ConverterCommand>();
+	private WeakTypeMap<ConverterCommand> resolvedIntoConverters = new WeakTypeMap<ConverterCommand>();
+	private final List<WeakReference<ConverterManager>> children = new ArrayList<WeakReference<ConverterManager>>();
+	// composite converters of parameterized types, dropped when a class loader is unregistered
+	private final ConcurrentMap<Type, TypeConverter> typeConverters = new ConcurrentHashMap<Type, TypeConverter>();
+	private volatile long flightRecorderThreshold;
+	private volatile ConversionListener[] listeners = NO_LISTENERS;
+	// listeners or a flight recording, the single check of an unobserved conversion
+	private final Object observedLock = new Object();
+	// kept here, the flight recorder events only hold it weakly
+	private final Runnable recordingObserver = FlightRecorderEvents.addRecordingObserver(new Runnable() {
+		@Override
+		public void run() {
+			updateObserved();
+		}
+	});
+	private volatile boolean observed = FlightRecorderEvents.isRecording();
+	private volatile PersistentResultCache resultCache;
+	private volatile boolean adaptiveSelection;
+	private volatile double explorationRate = 0.05;
+	private volatile int explorationPeriod = 20;
+	// last targets of the pairs converted incrementally, by source
+	private volatile Map<ConverterTypes, WeakIdentityMap<IncrementalTarget>> incrementalTargets =
+			Collections.emptyMap();
+	
+	/**
+	 * Creates a converter manager with no converters.
+	 */
+	public ConverterManager() {
+		this.parent = null;
+	}
+	
+	/**
+	 * Creates a child converter manager, inheriting the converters of the parent.
+	 * 
+	 * <p>Converters registered on the child are added to the inherited ones,
+	 * or replace the inherited converter of the same types. Later changes
+	 * to the parent are seen by the child, but the child never changes the
+	 * parent.
+	 * 
+	 * <p>The child shares the converter instances of the parent, and while it
+	 * has no converters of its own its lookup caches as well. The inherited
+	 * converters are flattened into the child, a lookup doesn't go through
+	 * the parents. Listeners, the flight recorder threshold and the result
+	 * cache are not inherited.
+	 * 
+	 * @param parent Parent converter manager
+	 * @throws ConverterManagerException
+	 */
+	public ConverterManager(ConverterManager parent) {
+		if ( parent == null ) {
+			throw new ConverterManagerException(Message.PARENT_CANNOT_BE_NULL.getString());
+		}
+		this.parent = parent;
+		synchronized ( parent.children ) {
+			parent.children.add(new WeakReference<ConverterManager>(this));
+		}
+		registryChanged();
+	}
+	
+	/**
+	 * Creates a child converter manager.
+	 * 
+	 * @return Child inheriting the converters of this manager
+	 * @see #ConverterManager(ConverterManager)
+	 */
+	public ConverterManager createChild() {
+		return new ConverterManager(this);
+	}
+	
+	/**
+	 * Get the parent converter manager.
+	 * 
+	 * @return Parent, null if this is not a child
+	 */
+	public ConverterManager getParent() {
+		return parent;
+	}
 	
 	/**
 	 * Registers a converter.
@@ -126,16 +292,122 @@ public class ConverterManager {
 		if ( converter == null ) {
 			throw new ConverterManagerException(Message.CONVERTER_CANNOT_BE_NULL.getString());
 		}
+		// static converter class, i.e. from a converter list
+		if ( converter instanceof Class<?> ) {
+			registerConverter((Class<?>) converter);
+			return;
+		}
+		registerConverter(converter.getClass(), ConverterInstances.singleton(converter));
+	}
+	
+	/**
+	 * Registers a converter class with only static converter methods.
+	 * 
+	 * <p>The methods are called directly, the class is never instantiated.
+	 * 
+	 * @param converterClass Converter class
+	 * @throws ConverterManagerException
+	 */
+	public void registerConverter(Class<?> converterClass) {
+		// a real converter
+		if ( converterClass == null ) {
+			throw new ConverterManagerException(Message.CONVERTER_CANNOT_BE_NULL.getString());
+		}
+		registerConverter(converterClass, (ConverterInstances) null);
+	}
+	
+	/**
+	 * Registers a converter class, instances are created with its public
+	 * no argument constructor.
+	 * 
+	 * <p>Use {@link ConverterScope#THREAD_LOCAL} or {@link ConverterScope#POOLED}
+	 * for converters that are not thread safe, like the ones holding a
+	 * <code>SimpleDateFormat</code>, so they don't need to synchronize.
+	 * 
+	 * @param converterClass Converter class
+	 * @param scope How instances are shared between threads
+	 * @throws ConverterManagerException
+	 */
+	public void registerConverter(final Class<?> converterClass, ConverterScope scope) {
+		// a real converter
+		if ( converterClass == null || scope == null ) {
+			throw new ConverterManagerException(Message.CONVERTER_CANNOT_BE_NULL.getString());
+		}
+		// must be public
+		if ( !Modifier.isPublic(converterClass.getModifiers()) ) {
+			throw new ConverterManagerException(Message.CONVERTER_NOT_ACCESSIBLE.getString());
+		}
+		// must be able to create it
+		final Constructor<?> constructor;
+		try {
+			constructor = converterClass.getConstructor();
+		} catch ( NoSuchMethodException ex ) {
+			throw new ConverterManagerException(Message.CONVERTER_NO_DEFAULT_CONSTRUCTOR.getString(), ex);
+		}
+		registerConverter(converterClass, ConverterInstances.create(new ConverterFactory<Object>() {
+			@Override
+			public Object createConverter() {
+				try {
+					return constructor.newInstance();
+				} catch ( InvocationTargetException ex ) {
+					throw new ConverterManagerException(String.format(Message.CONVERTER_CREATION_FAILED.getString(),
+							converterClass), ex.getTargetException());
+				} catch ( Exception ex ) {
+					throw new ConverterManagerException(String.format(Message.CONVERTER_CREATION_FAILED.getString(),
+							converterClass), ex);
+				}
+			}
+		}, scope));
+	}
+	
+	/**
+	 * Registers a converter class, instances are created by the factory.
+	 * 
+	 * @param converterClass Converter class, where the converter methods are looked up
+	 * @param factory Factory creating converter instances
+	 * @param scope How instances are shared between threads
+	 * @throws ConverterManagerException
+	 */
+	public <T> void registerConverter(Class<T> converterClass, ConverterFactory<? extends T> factory,
+			ConverterScope scope) {
+		// a real converter
+		if ( converterClass == null || factory == null || scope == null ) {
+			throw new ConverterManagerException(Message.CONVERTER_CANNOT_BE_NULL.getString());
+		}
+		registerConverter(converterClass, ConverterInstances.create(factory, scope));
+	}
+	
+	// register the annotated methods of the converter class, no instances for static only classes
+	private void registerConverter(Class<?> converterClass, ConverterInstances instances) {
 		// must be public
-		if ( !Modifier.isPublic(converter.getClass().getModifiers()) ) {
+		if ( !Modifier.isPublic(converterClass.getModifiers()) ) {
 			throw new ConverterManagerException(Message.CONVERTER_NOT_ACCESSIBLE.getString());
 		}
 		
 		// track how many converters we added
-		int registerSize = converterRegister.size();
-		
+		int registered = 0;
+
+		try {
+			registered = registerMethods(converterClass, instances);
+		} finally {
+			// a new converter may be a better match than a resolved one
+			registryChanged();
+		}
+
+		// nothing added? most likely there's no methods annotated
+		if ( registered == 0 ) {
+			throw new ConverterManagerException(Message.CONVERTER_HAS_NO_ANNOTATED_METHODS.getString());
+		}
+		if ( FlightRecorderEvents.isRecording() ) {
+			FlightRecorderEvents.registryChange("register", converterClass, //$NON-NLS-1$
+					converterRegister.size() + converterIntoRegister.size());
+		}
+	}
+	
+	private int registerMethods(Class<?> converterClass, ConverterInstances instances) {
+		int registered = 0;
 		// look for annotated methods
-		for (Method method : converter.getClass().getDeclaredMethods()) {
+		for (Method method : converterClass.getDeclaredMethods()) {
 			// method not annotated, skip it
 			if ( !method.isAnnotationPresent(Converter.class) ) {
 				continue;
@@ -144,13 +416,24 @@ public class ConverterManager {
 			if ( !Modifier.isPublic(method.getModifiers()) ) {
 				throw new ConverterManagerException(Message.NOT_ACCESSIBLE.getString());
 			}
-			// converter method must return an object (converted object)
-			Class<?> targetType = method.getReturnType();
-			if ( targetType == Void.TYPE ) {
-				throw new ConverterManagerException(Message.NO_RETURN_TYPE.getString());
+			// no instance to call it on
+			if ( instances == null && !Modifier.isStatic(method.getModifiers()) ) {
+				throw new ConverterManagerException(Message.NOT_STATIC.getString());
 			}
 			// converter method must take at least one object (object to be converted)
 			Class<?>[] types = method.getParameterTypes();
+			// converter method must return an object (converted object),
+			// or fill the target object passed as second parameter
+			Class<?> targetType = method.getReturnType();
+			boolean into = targetType == Void.TYPE && types.length > 1;
+			if ( into ) {
+				targetType = types[1];
+				if ( targetType.isPrimitive() ) {
+					throw new ConverterManagerException(Message.INTO_PRIMITIVE_TARGET.getString());
+				}
+			} else if ( targetType == Void.TYPE ) {
+				throw new ConverterManagerException(Message.NO_RETURN_TYPE.getString());
+			}
 			if ( types.length == 0 ) {
 				throw new ConverterManagerException(Message.NO_PARAMETERS_FOUND.getString());
 			}
@@ -159,33 +442,312 @@ public class ConverterManager {
 			if ( sourceType == targetType ) {
 				throw new ConverterManagerException(Message.SAME_TYPES.getString());
 			}
-			// create a lookup key, and see if there already one
+			// create a lookup key, and see if there already one, an inherited one is replaced
+			Map<ConverterTypes, ConverterCommand> register = into ? localIntoRegister : localRegister;
 			ConverterTypes key = new ConverterTypes(sourceType, targetType);
-			ConverterCommand candidate = converterRegister.get(key);
-			if ( candidate != null ) {
+			ConverterCommand command = new ConverterCommand(converterClass, instances, method, targetType, into ? 2 : 1);
+			ConverterCommand other = register.get(key);
+			registered++;
+			if ( other == null ) {
+				// register converter
+				register.put(key, command);
+				continue;
+			}
+			List<ConverterCommand> commands = new ArrayList<ConverterCommand>(other.getGroupCommands());
+			for ( ConverterCommand same : commands ) {
 				// found the same converter already registered
-				if ( candidate.getConverter().getClass() == converter.getClass() ) {
+				if ( same.getConverterClass() == converterClass ) {
 					throw new ConverterManagerException(Message.CONVERTER_ALREADY_REGISTERED.getString());
 				}
-				// different converter but already one that's doing the same conversion
-				throw new ConverterManagerException(String.format(Message.CONVERTER_SIMILAR_FOUND.getString(),
-						converter.getClass(), candidate.getConverter().getClass()));
+				// different converter but already one that's doing the same conversion, with nothing to tell them apart
+				if ( !same.isCandidate() && !command.isCandidate() && same.getPriority() == command.getPriority() ) {
+					throw new ConverterManagerException(String.format(Message.CONVERTER_SIMILAR_FOUND.getString(),
+							converterClass, same.getConverterClass()));
+				}
 			}
-			// register converter
-			converterRegister.put(key, new ConverterCommand(converter, method));
+			// register converter along the others
+			commands.add(command);
+			register.put(key, group(commands));
 		}
-		
-		// nothing changed? most likely there's no methods annotated
-		if ( registerSize == converterRegister.size() ) {
-			throw new ConverterManagerException(Message.CONVERTER_HAS_NO_ANNOTATED_METHODS.getString());
+		return registered;
+	}
+	
+	// groups the converters of the same types, returns the fixed choice
+	private static ConverterCommand group(List<ConverterCommand> commands) {
+		if ( commands.size() == 1 ) {
+			commands.get(0).setGroup(null);
+			return commands.get(0);
+		}
+		Collections.sort(commands, FIXED_CHOICE);
+		ConverterCommand fixed = commands.get(0);
+		// the candidates compete with the fixed choice, when they can be called the same way
+		List<ConverterCommand> competing = new ArrayList<ConverterCommand>();
+		competing.add(fixed);
+		for ( ConverterCommand command : commands.subList(1, commands.size()) ) {
+			if ( command.isCandidate() && command.hasParameters(fixed) ) {
+				competing.add(command);
+			}
+		}
+		ConverterGroup group = new ConverterGroup(commands, competing);
+		for ( ConverterCommand command : commands ) {
+			command.setGroup(group);
+		}
+		return fixed;
+	}
+	
+	// rebuilds the flattened registers of this manager and its children
+	private void registryChanged() {
+		// the converter may be a different one now
+		for ( WeakIdentityMap<IncrementalTarget> targets : incrementalTargets.values() ) {
+			targets.clear();
+		}
+		typeConverters.clear();
+		if ( parent == null ) {
+			enumConversion = Boolean.TRUE.equals(localEnumConversion);
+			resolvedConverters.clear();
+			resolvedIntoConverters.clear();
+		} else if ( localRegister.isEmpty() && localIntoRegister.isEmpty() && localAutoMappings.isEmpty()
+				&& localEnumConversion == null && localEnumFallbacks.isEmpty() ) {
+			// nothing overridden, same lookups as the parent
+			converterRegister = parent.converterRegister;
+			converterIntoRegister = parent.converterIntoRegister;
+			autoMappings = parent.autoMappings;
+			enumConversion = parent.enumConversion;
+			enumFallbacks = parent.enumFallbacks;
+			resolvedConverters = parent.resolvedConverters;
+			resolvedIntoConverters = parent.resolvedIntoConverters;
+		} else {
+			converterRegister = flatten(parent.converterRegister, localRegister);
+			converterIntoRegister = flatten(parent.converterIntoRegister, localIntoRegister);
+			autoMappings = flatten(parent.autoMappings, localAutoMappings);
+			enumConversion = localEnumConversion != null ? localEnumConversion.booleanValue() : parent.enumConversion;
+			enumFallbacks = new HashMap<Class<?>, Object>(parent.enumFallbacks);
+			enumFallbacks.putAll(localEnumFallbacks);
+			resolvedConverters = new WeakTypeMap<ConverterCommand>();
+			resolvedIntoConverters = new WeakTypeMap<ConverterCommand>();
+		}
+		synchronized ( children ) {
+			for ( Iterator<WeakReference<ConverterManager>> it = children.iterator(); it.hasNext(); ) {
+				ConverterManager child = it.next().get();
+				if ( child == null ) {
+					it.remove();
+				} else {
+					child.registryChanged();
+				}
+			}
+		}
+	}
+	
+	private static Map<ConverterTypes, ConverterCommand> flatten(Map<ConverterTypes, ConverterCommand> inherited,
+			Map<ConverterTypes, ConverterCommand> local) {
+		Map<ConverterTypes, ConverterCommand> flattened =
+				new HashMap<ConverterTypes, ConverterCommand>(inherited.size() + local.size());
+		flattened.putAll(inherited);
+		flattened.putAll(local);
+		return flattened;
+	}
+	
+	/**
+	 * Allows converting between two bean types by copying their properties.
+	 * 
+	 * <p>When no converter is registered for the types, the source is
+	 * converted by creating a target with its public no argument constructor
+	 * and calling every target setter with the value of the source getter of
+	 * the same name. The properties are matched here, so a target property
+	 * with no matching source property fails right away instead of on the
+	 * first conversion.
+	 * 
+	 * <p>Only the allowed pairs are mapped, a registered converter is always
+	 * used before the generated one.
+	 * 
+	 * @param sourceType Source type
+	 * @param targetType Target type
+	 * @throws ConverterManagerException
+	 */
+	public void registerAutoMapping(Class<?> sourceType, Class<?> targetType) {
+		if ( sourceType == null || targetType == null ) {
+			throw new ConverterManagerException(Message.CONVERTER_CANNOT_BE_NULL.getString());
+		}
+		if ( sourceType == targetType ) {
+			throw new ConverterManagerException(Message.SAME_TYPES.getString());
+		}
+		ConverterTypes key = new ConverterTypes(sourceType, targetType);
+		if ( localAutoMappings.containsKey(key) ) {
+			throw new ConverterManagerException(Message.CONVERTER_ALREADY_REGISTERED.getString());
+		}
+		localAutoMappings.put(key, new ConverterCommand(PropertyMapper.create(sourceType, targetType)));
+		registryChanged();
+	}
+	
+	/**
+	 * Allows converting between enums, and between enums and strings,
+	 * without converter methods.
+	 * 
+	 * <p>When no converter is registered for the types, a converter is
+	 * generated on the first conversion. A constant becomes the target
+	 * constant of the same {@link EnumCode}, or of the same name when it has
+	 * no code, and a string the constant of that code or name. Unknown
+	 * sources become the fallback of the target enum instead of failing.
+	 * 
+	 * <p>Disabled by default. A child uses the setting of its parent until
+	 * it is set on the child.
+	 * 
+	 * @param enabled true to generate enum converters
+	 * @see #setEnumFallback(Class, Enum)
+	 */
+	public void setEnumConversion(boolean enabled) {
+		localEnumConversion = Boolean.valueOf(enabled);
+		registryChanged();
+	}
+	
+	/**
+	 * Are enum converters generated.
+	 * 
+	 * @return true if enum conversion is enabled
+	 */
+	public boolean isEnumConversion() {
+		return enumConversion;
+	}
+	
+	/**
+	 * Set the constant that the unknown sources of the generated converters
+	 * become, null by default. A child inherits the fallbacks of its parent.
+	 * 
+	 * @param enumType Target enum
+	 * @param fallback Constant of the unknown sources, null to remove it
+	 * @throws ConverterManagerException
+	 * @see #setEnumConversion(boolean)
+	 */
+	public <E extends Enum<E>> void setEnumFallback(Class<E> enumType, E fallback) {
+		if ( enumType == null ) {
+			throw new ConverterManagerException(Message.ENUM_TYPE_NULL.getString());
 		}
+		if ( fallback == null ) {
+			localEnumFallbacks.remove(enumType);
+		} else {
+			localEnumFallbacks.put(enumType, fallback);
+		}
+		registryChanged();
 	}
 	
+	/**
+	 * Removes the converters of a class.
+	 * 
+	 * <p>Only the converters registered on this manager are removed, a child
+	 * keeps inheriting the ones of its parent.
+	 * 
+	 * @param converterClass Converter class
+	 * @return true if any converter was removed
+	 */
+	public boolean unregisterConverter(Class<?> converterClass) {
+		int removed = unregister(localRegister, converterClass, null)
+				+ unregister(localIntoRegister, converterClass, null);
+		return unregistered(removed, converterClass) > 0;
+	}
+	
+	/**
+	 * Removes the converters loaded by a class loader, or converting classes
+	 * loaded by it, including its child class loaders.
+	 * 
+	 * <p>Call it when a module is undeployed so its class loader can be
+	 * garbage collected. The converters found and generated for its classes
+	 * are dropped too, even when none of its converters were registered.
+	 * Only the lookups of its classes by converters of other class loaders
+	 * are released without it.
+	 * 
+	 * @param classLoader Class loader
+	 * @return Number of conversions removed
+	 */
+	public int unregisterConverters(ClassLoader classLoader) {
+		int removed = unregister(localRegister, null, classLoader)
+				+ unregister(localIntoRegister, null, classLoader)
+				+ unregister(localAutoMappings, null, classLoader);
+		if ( removed == 0 ) {
+			// nothing registered, but its classes may have been converted
+			evictLoaded(classLoader);
+		}
+		LazyProxies.removeLoadedBy(classLoader);
+		return unregistered(removed, null);
+	}
+	
+	private int unregister(Map<ConverterTypes, ConverterCommand> register, Class<?> converterClass,
+			ClassLoader classLoader) {
+		int removed = 0;
+		for ( Iterator<Map.Entry<ConverterTypes, ConverterCommand>> it = register.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<ConverterTypes, ConverterCommand> entry = it.next();
+			boolean typesLoaded = converterClass == null
+					&& (WeakTypeMap.isLoadedBy(entry.getKey().getSource(), classLoader)
+					|| WeakTypeMap.isLoadedBy(entry.getKey().getTarget(), classLoader));
+			List<ConverterCommand> commands = entry.getValue().getGroupCommands();
+			List<ConverterCommand> kept = new ArrayList<ConverterCommand>(commands.size());
+			for ( ConverterCommand command : commands ) {
+				Class<?> registered = command.getConverterClass();
+				if ( typesLoaded || (converterClass != null ? registered == converterClass
+						: WeakTypeMap.isLoadedBy(registered, classLoader)) ) {
+					command.clearInstances();
+					removed++;
+				} else {
+					kept.add(command);
+				}
+			}
+			if ( kept.isEmpty() ) {
+				it.remove();
+			} else if ( kept.size() < commands.size() ) {
+				// the others of the types stay
+				entry.setValue(group(kept));
+			}
+		}
+		return removed;
+	}
+	
+	private int unregistered(int removed, Class<?> converterClass) {
+		if ( removed > 0 ) {
+			registryChanged();
+			if ( FlightRecorderEvents.isRecording() ) {
+				FlightRecorderEvents.registryChange("unregister", converterClass, //$NON-NLS-1$
+						converterRegister.size() + converterIntoRegister.size());
+			}
+		}
+		return removed;
+	}
+	
+	// drops what was found for the classes of a class loader, here and in the children
+	private void evictLoaded(ClassLoader classLoader) {
+		resolvedConverters.removeLoadedBy(classLoader);
+		resolvedIntoConverters.removeLoadedBy(classLoader);
+		// the composite converters are keyed by types of any class loader and remember the
+		// last source class they converted, rebuilding them is cheap
+		typeConverters.clear();
+		synchronized ( children ) {
+			for ( WeakReference<ConverterManager> reference : children ) {
+				ConverterManager child = reference.get();
+				if ( child != null ) {
+					child.evictLoaded(classLoader);
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Remove all converters from the service.
+	 * 
+	 * <p>A child only removes its own converters.
 	 */
 	public void clearConverters() {
-		converterRegister.clear();
+		for ( Map<ConverterTypes, ConverterCommand> register : Arrays.asList(localRegister, localIntoRegister) ) {
+			for ( ConverterCommand registered : register.values() ) {
+				for ( ConverterCommand command : registered.getGroupCommands() ) {
+					command.clearInstances();
+				}
+			}
+		}
+		localRegister.clear();
+		localIntoRegister.clear();
+		localAutoMappings.clear();
+		registryChanged();
+		if ( FlightRecorderEvents.isRecording() ) {
+			FlightRecorderEvents.registryChange("clear", null, 0); //$NON-NLS-1$
+		}
 	}
 	
 	
@@ -194,185 +756,2006 @@ public class ConverterManager {
 	 * @param converterList List of converter to register.
 	 */
 	public void setConverters(List<Object> converterList) {
-		converterRegister.clear();
+		clearConverters();
 		for ( Object converter : converterList ) {
 			registerConverter(converter);
 		}
+		if ( FlightRecorderEvents.isRecording() ) {
+			FlightRecorderEvents.registryChange("set", null, //$NON-NLS-1$
+					converterRegister.size() + converterIntoRegister.size());
+		}
 	}
 	
 	/**
-	 * Test to see if we can convert the given object to the specified type.
-	 * @param source Object to convert
-	 * @param targetType Target type
-	 * @return true if object can be converted, false otherwise
+	 * Prepares the registered converters ahead of the first conversions.
+	 * 
+	 * <p>Initializes the source, target and converter classes, makes the
+	 * converter methods accessible and resolves every registered pair, so
+	 * the first conversions don't pay for it. Source types that are only
+	 * converted through an interface or their superclass can be given to be
+	 * resolved as well.
+	 * 
+	 * @param sourceTypes Additional source types to resolve for every registered target type
 	 */
-	public boolean canConvert(Object source, Class<?> targetType) {
-		return canConvert(source.getClass(), targetType);
+	public void warmUp(Class<?> ... sourceTypes) {
+		warmUp(converterRegister, resolvedConverters, sourceTypes);
+		warmUp(converterIntoRegister, resolvedIntoConverters, sourceTypes);
+	}
+	
+	private void warmUp(Map<ConverterTypes, ConverterCommand> register,
+			WeakTypeMap<ConverterCommand> resolved, Class<?>[] sourceTypes) {
+		Set<Class<?>> targetTypes = new HashSet<Class<?>>();
+		for ( Map.Entry<ConverterTypes, ConverterCommand> entry : register.entrySet() ) {
+			for ( ConverterCommand command : entry.getValue().getGroupCommands() ) {
+				command.warmUp();
+			}
+			resolved.put(entry.getKey().getSource(), entry.getKey().getTarget(), entry.getValue());
+			targetTypes.add(entry.getKey().getTarget());
+		}
+		for ( Class<?> sourceType : sourceTypes ) {
+			for ( Class<?> targetType : targetTypes ) {
+				getConverter(register, resolved, sourceType, targetType);
+			}
+		}
+	}
+	
+	// every registered converter method
+	List<Method> getConverterMethods() {
+		List<Method> methods = new ArrayList<Method>();
+		for ( ConverterCommand registered : converterRegister.values() ) {
+			for ( ConverterCommand command : registered.getGroupCommands() ) {
+				methods.add(command.getMethod());
+			}
+		}
+		for ( ConverterCommand registered : converterIntoRegister.values() ) {
+			for ( ConverterCommand command : registered.getGroupCommands() ) {
+				methods.add(command.getMethod());
+			}
+		}
+		return methods;
+	}
+	
+	// the property mappers of the auto mappings
+	List<PropertyMapper> getAutoMappers() {
+		List<PropertyMapper> mappers = new ArrayList<PropertyMapper>();
+		for ( ConverterCommand command : autoMappings.values() ) {
+			mappers.add(command.getMapper());
+		}
+		return mappers;
+	}
+	
+	// every type a registered converter or an auto mapping converts to
+	Set<Class<?>> getTargetTypes() {
+		Set<Class<?>> targetTypes = new HashSet<Class<?>>();
+		for ( Map<ConverterTypes, ConverterCommand> register : Arrays.asList(converterRegister,
+				converterIntoRegister, autoMappings) ) {
+			for ( ConverterTypes types : register.keySet() ) {
+				targetTypes.add(types.getTarget());
+			}
+		}
+		return targetTypes;
 	}
 	
 	/**
-	 * Test to see if we can convert the given source type to the target type.
-	 * @param sourceType Source type
-	 * @param targetType Target type
-	 * @return true if the source type can be converted to the target type, false otherwise
+	 * Converts the sources of a pair incrementally.
+	 * 
+	 * <p>The target of each source is kept, as long as the source is not
+	 * garbage collected, along with the values of the source properties.
+	 * Converting the same source again returns the same target, unless a
+	 * property changed. The changed properties are set on the kept target
+	 * for auto mapped pairs, other converters convert the source again.
+	 * 
+	 * <p>Property values are compared with <code>equals</code>, a change
+	 * inside a mutable value, like an array or a list, isn't seen. Use
+	 * {@link #invalidateIncremental(Object)} after changing one. Only
+	 * conversions with no additional arguments are incremental.
+	 * 
+	 * @param sourceType Source type the converter was registered for
+	 * @param targetType Target type the converter was registered for
+	 * @throws ConverterManagerException
 	 */
-	public boolean canConvert(Class<?> sourceType, Class<?> targetType) {
-		return sourceType != null &&
-				targetType != null &&
-				null != converterRegister.get(new ConverterTypes(sourceType, targetType));
+	public synchronized void registerIncremental(Class<?> sourceType, Class<?> targetType) {
+		if ( sourceType == null || targetType == null ) {
+			throw new ConverterManagerException(Message.CONVERTER_CANNOT_BE_NULL.getString());
+		}
+		ConverterTypes key = new ConverterTypes(sourceType, targetType);
+		if ( incrementalTargets.containsKey(key) ) {
+			return;
+		}
+		Map<ConverterTypes, WeakIdentityMap<IncrementalTarget>> updated =
+				new HashMap<ConverterTypes, WeakIdentityMap<IncrementalTarget>>(incrementalTargets);
+		updated.put(key, new WeakIdentityMap<IncrementalTarget>());
+		incrementalTargets = updated;
 	}
 	
 	/**
-	 * Convert source object to target type.
+	 * Forgets the kept targets of a source, its next conversions are full ones.
 	 * 
-	 * @param source Object to convert
-	 * @param targetType Type to convert to
-	 * @param args Optional arguments to be passed to the converter
-	 * 
-	 * @return Converted type
-	 * @throws ConversionFailedException
+	 * @param source Source
+	 * @return true if a target was kept
 	 */
-	@SuppressWarnings("unchecked")
-	public <T> T convert(Object source, Class<T> targetType, Object ... args) throws ConversionFailedException {
-		// can't convert to null target type
-		if ( targetType == null ) {
-			throw new ConversionFailedException(Message.CONV_NULL_TARGET.getString());
+	public boolean invalidateIncremental(Object source) {
+		boolean removed = false;
+		for ( WeakIdentityMap<IncrementalTarget> targets : incrementalTargets.values() ) {
+			removed |= targets.remove(source);
 		}
-		// null converts to null
-		if ( source == null )
-			return null;
-		// same type, return same object
-		if ( source.getClass() == targetType ) {
-			return (T) source;
+		return removed;
+	}
+	
+	/**
+	 * Forgets every kept target.
+	 */
+	public void clearIncremental() {
+		for ( WeakIdentityMap<IncrementalTarget> targets : incrementalTargets.values() ) {
+			targets.clear();
 		}
-		// look for converter
-		ConverterCommand registeredCommand = getConverter(source, targetType);
-		if ( registeredCommand == null ) {
-			// not found
-			throw new ConversionFailedException(String.format(Message.CONV_NO_CONVERTER.getString(),
-					source.getClass(), targetType));
-		}
-		try {
-			// lets convert
-			return (T) registeredCommand.convert(source, args);
-		} catch ( InvocationTargetException  ex ) {
-			// is it a handled exception?
-			if ( ex.getTargetException().getClass() == ConversionFailedException.class ) {
-				throw (ConversionFailedException) ex.getTargetException();
-			}
-			// Unhanddled error in conversion
-			throw new ConversionFailedException(String.format(Message.CONV_UNHANDLED_ERROR.getString(),
-					source.getClass(), targetType, registeredCommand.getConverter().getClass()), ex);
-			
-		// Bubble up conversion errors
-		} catch ( ConversionFailedException ex ) {
-			throw ex;
-			
-		} catch ( Exception ex ) {
-			// Don't know what happened, wrap error
-			throw new ConversionFailedException(String.format(Message.CONV_FAILED.getString(),
-					source.getClass(), targetType, registeredCommand.getConverter().getClass()), ex);
+	}
+	
+	/**
+	 * Adds a listener observing every conversion.
+	 * 
+	 * @param listener Listener
+	 * @throws ConverterManagerException
+	 */
+	public synchronized void addConversionListener(ConversionListener listener) {
+		if ( listener == null ) {
+			throw new ConverterManagerException(Message.LISTENER_CANNOT_BE_NULL.getString());
 		}
-	}
-	
-	// look for a converter
-	private ConverterCommand getConverter(Object source, Class<?> targetType) {
-		// try the object class
-		ConverterCommand registeredConverter = converterRegister.get(new ConverterTypes(source.getClass(), targetType));
-		if ( registeredConverter != null ) {
-			return registeredConverter;
-		}
+		ConversionListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+		updated[listeners.length] = listener;
+		listeners = updated;
+		updateObserved();
+	}
+	
+	/**
+	 * Removes a conversion listener.
+	 * 
+	 * @param listener Listener
+	 * @return true if the listener was registered
+	 */
+	public synchronized boolean removeConversionListener(ConversionListener listener) {
+		for ( int i = 0; i < listeners.length; i++ ) {
+			if ( listeners[i] == listener ) {
+				ConversionListener[] updated = new ConversionListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, updated, 0, i);
+				System.arraycopy(listeners, i + 1, updated, i, listeners.length - i - 1);
+				listeners = updated;
+				updateObserved();
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	// after the listeners changed, or a flight recording started or stopped
+	private void updateObserved() {
+		synchronized ( observedLock ) {
+			observed = listeners.length > 0 || FlightRecorderEvents.isRecording();
+		}
+	}
+	
+	/**
+	 * Get the registered conversion listeners.
+	 * 
+	 * @return Listeners
+	 */
+	public List<ConversionListener> getConversionListeners() {
+		return Arrays.asList(listeners.clone());
+	}
+	
+	/**
+	 * Set the minimum duration of conversions recorded as JDK Flight Recorder
+	 * events, faster conversions are not recorded.
+	 * 
+	 * <p>Events are only created while a flight recording is running, on
+	 * JDK 11 or later.
+	 * 
+	 * @param threshold Minimum duration in nanoseconds, 0 records all of them
+	 */
+	public void setFlightRecorderThreshold(long threshold) {
+		this.flightRecorderThreshold = threshold;
+	}
+	
+	/**
+	 * Get the minimum duration of conversions recorded as JDK Flight Recorder events.
+	 * 
+	 * @return Minimum duration in nanoseconds
+	 */
+	public long getFlightRecorderThreshold() {
+		return flightRecorderThreshold;
+	}
+	
+	/**
+	 * Set the cache consulted before calling converters marked as pure.
+	 * 
+	 * @param resultCache Cache, null to always call the converters
+	 * @see Converter#pure()
+	 */
+	public void setResultCache(PersistentResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
+	
+	/**
+	 * Get the cache consulted before calling converters marked as pure.
+	 * 
+	 * @return Cache, null if none
+	 */
+	public PersistentResultCache getResultCache() {
+		return resultCache;
+	}
+	
+	/**
+	 * Routes the conversions of types with candidate converters to the
+	 * fastest one.
+	 * 
+	 * <p>The converter with the highest priority and the candidates of the
+	 * same types taking the same parameters compete. Their latency is
+	 * measured on each conversion, each one is used in turn until it has a
+	 * few samples, then the one with the lowest average is used. A share of
+	 * the conversions, the exploration rate, still goes to the others. A
+	 * candidate failing a few conversions in a row is no longer used.
+	 * 
+	 * <p>Disabled by default. Disabling it goes back to the converter with
+	 * the highest priority right away. Registering or removing a converter
+	 * of the types starts measuring again.
+	 * 
+	 * @param enabled true to route to the fastest converter
+	 * @see Converter#candidate()
+	 */
+	public void setAdaptiveSelection(boolean enabled) {
+		this.adaptiveSelection = enabled;
+	}
+	
+	/**
+	 * Are the conversions routed to the fastest converter.
+	 * 
+	 * @return true if adaptive selection is enabled
+	 */
+	public boolean isAdaptiveSelection() {
+		return adaptiveSelection;
+	}
+	
+	/**
+	 * Set the share of the conversions that go to the converters that are
+	 * not the fastest, so a change in their speed is noticed. The default
+	 * is 0.05.
+	 * 
+	 * @param rate Share from 0, none, to 1
+	 * @throws ConverterManagerException when the rate is out of range
+	 */
+	public void setExplorationRate(double rate) {
+		if ( !(rate >= 0 && rate <= 1) ) {
+			throw new ConverterManagerException(String.format(Message.EXPLORATION_RATE_INVALID.getString(), rate));
+		}
+		this.explorationRate = rate;
+		this.explorationPeriod = rate == 0 ? 0 : (int) Math.round(1 / rate);
+	}
+	
+	/**
+	 * Get the share of the conversions that go to the converters that are
+	 * not the fastest.
+	 * 
+	 * @return Exploration rate
+	 */
+	public double getExplorationRate() {
+		return explorationRate;
+	}
+	
+	/**
+	 * Get the converter used for two types.
+	 * 
+	 * <p>The fastest competing converter when the adaptive selection is
+	 * enabled and done measuring, otherwise the one with the highest
+	 * priority.
+	 * 
+	 * @param sourceType Source type
+	 * @param targetType Target type
+	 * @return Converter class, null if the types can't be converted
+	 */
+	public Class<?> getSelectedConverter(Class<?> sourceType, Class<?> targetType) {
+		ConverterCommand registeredCommand = getConverter(converterRegister, resolvedConverters, sourceType, targetType);
+		if ( registeredCommand == null ) {
+			registeredCommand = getConverter(converterIntoRegister, resolvedIntoConverters, sourceType, targetType);
+			if ( registeredCommand == null ) {
+				return null;
+			}
+		}
+		ConverterGroup group = registeredCommand.getGroup();
+		if ( adaptiveSelection && group != null && group.choice != null && group.choice.getLeader() != null ) {
+			return group.choice.getLeader().getConverterClass();
+		}
+		return registeredCommand.getConverterClass();
+	}
+	
+	/**
+	 * Describes the registered converters, including the inherited ones.
+	 * 
+	 * <p>Converters that are never used are flagged. A converter of the same
+	 * types as one with a higher priority, a converter of a parent replaced
+	 * by one of this manager, and an auto mapping of types with a converter
+	 * are shadowed. Candidates tied with the fixed choice are ambiguous, the
+	 * first one registered is used. A converter of a primitive source type is
+	 * unreachable, the source of a conversion is never a primitive.
+	 * 
+	 * @return Converters, by source and target type
+	 * @see RegistryReport
+	 */
+	public List<ConverterDescription> describeConverters() {
+		List<ConverterDescription> descriptions = new ArrayList<ConverterDescription>();
+		describe(descriptions, converterRegister);
+		describe(descriptions, converterIntoRegister);
+		for ( Map.Entry<ConverterTypes, ConverterCommand> entry : autoMappings.entrySet() ) {
+			ConverterCommand registered = converterRegister.get(entry.getKey());
+			descriptions.add(describe(entry.getValue(), registered == null ? null
+					: "converter " + registered.getConverterClass().getName() + " is used instead")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		// the ones of the parents replaced by this manager, or by a closer parent
+		List<ConverterManager> closer = new ArrayList<ConverterManager>();
+		closer.add(this);
+		for ( ConverterManager ancestor = parent; ancestor != null; ancestor = ancestor.parent ) {
+			describeReplaced(descriptions, closer, ancestor.localRegister, converterRegister, REGISTER);
+			describeReplaced(descriptions, closer, ancestor.localIntoRegister, converterIntoRegister, INTO_REGISTER);
+			describeReplaced(descriptions, closer, ancestor.localAutoMappings, autoMappings, AUTO_MAPPINGS);
+			closer.add(ancestor);
+		}
+		Collections.sort(descriptions, DESCRIPTION_ORDER);
+		return descriptions;
+	}
+	
+	private static void describe(List<ConverterDescription> descriptions, Map<ConverterTypes, ConverterCommand> register) {
+		for ( ConverterCommand registered : register.values() ) {
+			for ( ConverterCommand command : registered.getGroupCommands() ) {
+				descriptions.add(describe(command, null));
+			}
+		}
+	}
+	
+	// closer managers are this one, then its parents up to the one whose converters are described
+	private static void describeReplaced(List<ConverterDescription> descriptions, List<ConverterManager> closer,
+			Map<ConverterTypes, ConverterCommand> inherited, Map<ConverterTypes, ConverterCommand> register, int kind) {
+		for ( Map.Entry<ConverterTypes, ConverterCommand> entry : inherited.entrySet() ) {
+			ConverterCommand used = register.get(entry.getKey());
+			if ( used == entry.getValue() ) {
+				continue;
+			}
+			String reason;
+			if ( used == null ) {
+				reason = "not inherited"; //$NON-NLS-1$
+			} else {
+				reason = "replaced by converter " + used.getConverterClass().getName(); //$NON-NLS-1$
+				for ( int level = 0; level < closer.size(); level++ ) {
+					if ( closer.get(level).getLocal(kind).get(entry.getKey()) == used ) {
+						reason += level == 0 ? " of this manager" //$NON-NLS-1$
+								: level == 1 ? " of the parent manager" //$NON-NLS-1$
+								: " of the ancestor manager " + level + " levels up"; //$NON-NLS-1$ //$NON-NLS-2$
+						break;
+					}
+				}
+			}
+			for ( ConverterCommand command : entry.getValue().getGroupCommands() ) {
+				descriptions.add(describe(command, reason));
+			}
+		}
+	}
+	
+	// the converters of a kind registered on this manager
+	private Map<ConverterTypes, ConverterCommand> getLocal(int kind) {
+		return kind == REGISTER ? localRegister : kind == INTO_REGISTER ? localIntoRegister : localAutoMappings;
+	}
+	
+	// describe a converter, shadowed for the given reason if any
+	private static ConverterDescription describe(ConverterCommand command, String shadowedBy) {
+		Set<ConverterDescription.Issue> issues = EnumSet.noneOf(ConverterDescription.Issue.class);
+		List<String> details = new ArrayList<String>();
+		if ( shadowedBy != null ) {
+			issues.add(ConverterDescription.Issue.SHADOWED);
+			details.add(shadowedBy);
+		}
+		ConverterGroup group = command.getGroup();
+		if ( group != null ) {
+			ConverterCommand fixed = group.commands.get(0);
+			if ( !group.competing.contains(command) ) {
+				issues.add(ConverterDescription.Issue.SHADOWED);
+				details.add("converter " + fixed.getConverterClass().getName() + " is used instead"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			// tied candidates are in registration order
+			if ( FIXED_CHOICE.compare(fixed, command) == 0 && FIXED_CHOICE.compare(fixed, group.commands.get(1)) == 0 ) {
+				issues.add(ConverterDescription.Issue.AMBIGUOUS);
+				details.add("candidates with the same priority, the first registered is the fixed choice"); //$NON-NLS-1$
+			}
+		}
+		if ( command.getSourceType().isPrimitive() ) {
+			issues.add(ConverterDescription.Issue.UNREACHABLE);
+			details.add("the source of a conversion is never a primitive"); //$NON-NLS-1$
+		}
+		StringBuilder detail = new StringBuilder();
+		for ( String reason : details ) {
+			detail.append(detail.length() == 0 ? "" : "; ").append(reason); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return new ConverterDescription(command.getSourceType(), command.getTargetType(), command.getConverterClass(),
+				command.getMethod(), command.isInto(), command.getPriority(), command.isCandidate(), issues,
+				details.isEmpty() ? null : detail.toString());
+	}
+	
+	/**
+	 * Explains how the converter of a source class and a target type is
+	 * looked up.
+	 * 
+	 * <p>Lists the lookups of the first conversion, the source class, its
+	 * interfaces, then each superclass and its interfaces, followed by the
+	 * auto mappings when no converter is found. Converters further up the
+	 * hierarchy are shadowed, converters of other interfaces at the level
+	 * of the one found are ambiguous, and converters of a supertype the
+	 * lookup doesn't check, like a super interface, are unreachable.
+	 * 
+	 * @param sourceType Source class
+	 * @param targetType Target type
+	 * @return Explanation
+	 * @throws ConverterManagerException when a type is null
+	 * @see RegistryReport
+	 */
+	public ConversionExplanation explain(Class<?> sourceType, Class<?> targetType) {
+		if ( sourceType == null || targetType == null ) {
+			throw new ConverterManagerException(Message.EXPLAIN_NULL_TYPE.getString());
+		}
+		Map<ConverterTypes, ConverterCommand> register = converterRegister;
+		ExplainedLookup lookup = new ExplainedLookup(targetType);
+		lookup.walk(register, sourceType, false);
+		if ( !autoMappings.isEmpty() ) {
+			lookup.walk(autoMappings, sourceType, true);
+		}
+		// supertypes the lookup doesn't check
+		List<ConverterDescription> unreachable = new ArrayList<ConverterDescription>();
+		for ( Map<ConverterTypes, ConverterCommand> searched : Arrays.asList(register, autoMappings) ) {
+			for ( Map.Entry<ConverterTypes, ConverterCommand> entry : searched.entrySet() ) {
+				Class<?> registeredSource = entry.getKey().getSource();
+				if ( entry.getKey().getTarget() == targetType && registeredSource.isAssignableFrom(sourceType)
+						&& !lookup.checked.contains(registeredSource) ) {
+					unreachable.add(describe(entry.getValue(), null));
+				}
+			}
+		}
+		return new ConversionExplanation(sourceType, targetType, resolvedConverters.get(sourceType, targetType) != null,
+				lookup.steps, lookup.found, lookup.shadowed, lookup.ambiguous, unreachable);
+	}
+	
+	/**
+	 * Test to see if we can convert the given object to the specified type.
+	 * @param source Object to convert
+	 * @param targetType Target type
+	 * @return true if object can be converted, false otherwise
+	 */
+	public boolean canConvert(Object source, Class<?> targetType) {
+		return canConvert(source.getClass(), targetType);
+	}
+	
+	/**
+	 * Test to see if we can convert the given source type to the target type.
+	 * @param sourceType Source type
+	 * @param targetType Target type
+	 * @return true if the source type can be converted to the target type, false otherwise
+	 */
+	public boolean canConvert(Class<?> sourceType, Class<?> targetType) {
+		if ( sourceType == null || targetType == null ) {
+			return false;
+		}
+		ConverterTypes key = new ConverterTypes(sourceType, targetType);
+		return null != converterRegister.get(key) || null != autoMappings.get(key)
+				|| enumConversion && EnumMapper.canMap(sourceType, targetType);
+	}
+	
+	/**
+	 * Convert source object to target type.
+	 * 
+	 * @param source Object to convert
+	 * @param targetType Type to convert to
+	 * @param args Optional arguments to be passed to the converter
+	 * 
+	 * @return Converted type
+	 * @throws ConversionFailedException
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T convert(Object source, Class<T> targetType, Object ... args) throws ConversionFailedException {
+		// can't convert to null target type
+		if ( targetType == null ) {
+			throw new ConversionFailedException(Message.CONV_NULL_TARGET.getString());
+		}
+		// null converts to null
+		if ( source == null )
+			return null;
+		// same type, return same object
+		if ( source.getClass() == targetType ) {
+			return (T) source;
+		}
+		// look for converter
+		ConverterCommand registeredCommand = getConverter(converterRegister, resolvedConverters, source.getClass(), targetType);
+		if ( registeredCommand == null ) {
+			// not found
+			throw new ConversionFailedException(String.format(Message.CONV_NO_CONVERTER.getString(),
+					source.getClass(), targetType));
+		}
+		Map<ConverterTypes, WeakIdentityMap<IncrementalTarget>> incremental = incrementalTargets;
+		if ( !incremental.isEmpty() && args.length == 0 ) {
+			WeakIdentityMap<IncrementalTarget> targets = incremental.get(
+					new ConverterTypes(registeredCommand.getSourceType(), registeredCommand.getTargetType()));
+			if ( targets != null ) {
+				return (T) convertIncremental(targets, registeredCommand, source);
+			}
+		}
+		return (T) execute(registeredCommand, source, null, args);
+	}
+	
+	/**
+	 * Convert a part of a text, without copying it.
+	 * 
+	 * <p>The converter gets a {@link CharSlice} of the text, converters taking
+	 * a <code>CharSequence</code> are used.
+	 * 
+	 * @param text Text
+	 * @param offset Index of the first character
+	 * @param length Number of characters
+	 * @param targetType Type to convert to
+	 * 
+	 * @return Converted type
+	 * @throws ConversionFailedException
+	 * @see ParsingConverters
+	 */
+	public <T> T convertSlice(CharSequence text, int offset, int length, Class<T> targetType)
+			throws ConversionFailedException {
+		if ( text == null ) {
+			return null;
+		}
+		return convert(new CharSlice(text, offset, length), targetType);
+	}
+	
+	/**
+	 * Convert a part of a byte buffer, without copying it.
+	 * 
+	 * <p>The converter gets a view of the buffer with its position and limit
+	 * around the bytes, converters taking a <code>ByteBuffer</code> are used.
+	 * The position and limit of the buffer are left untouched.
+	 * 
+	 * @param buffer Byte buffer
+	 * @param offset Index of the first byte
+	 * @param length Number of bytes
+	 * @param targetType Type to convert to
+	 * 
+	 * @return Converted type
+	 * @throws ConversionFailedException
+	 * @see ParsingConverters
+	 */
+	public <T> T convertSlice(ByteBuffer buffer, int offset, int length, Class<T> targetType)
+			throws ConversionFailedException {
+		if ( buffer == null ) {
+			return null;
+		}
+		ByteBuffer view = buffer.duplicate();
+		view.limit(offset + length).position(offset);
+		return convert(view, targetType);
+	}
+	
+	/**
+	 * Convert source object to a parameterized type.
+	 * 
+	 * <p><pre>
+	 * List&lt;OrderDto&gt; dtos = converterManager.convert(orders, new TypeRef&lt;List&lt;OrderDto&gt;&gt;() {});
+	 * </pre>
+	 * 
+	 * <p>Collections, maps and arrays are converted element by element, from
+	 * a collection or an array, or from a map. Each element is converted with
+	 * the registered converter for its class and the element type, elements
+	 * that already are of the element type are kept as is. Interface targets
+	 * are created as an <code>ArrayList</code>, <code>LinkedHashSet</code>,
+	 * <code>TreeSet</code>, <code>LinkedHashMap</code> or <code>TreeMap</code>,
+	 * other targets with their public no argument constructor.
+	 * 
+	 * <p>The element converters of a type are built once, and look up the
+	 * converter again only when the class of the elements changes.
+	 * 
+	 * @param source Object to convert
+	 * @param targetType Type to convert to
+	 * 
+	 * @return Converted object
+	 * @throws ConversionFailedException
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T convert(Object source, TypeRef<T> targetType) throws ConversionFailedException {
+		// can't convert to null target type
+		if ( targetType == null ) {
+			throw new ConversionFailedException(Message.CONV_NULL_TARGET.getString());
+		}
+		// null converts to null
+		if ( source == null ) {
+			return null;
+		}
+		return (T) getTypeConverter(targetType.getType()).convert(source);
+	}
+	
+	private TypeConverter getTypeConverter(Type type) {
+		TypeConverter converter = typeConverters.get(type);
+		if ( converter == null ) {
+			converter = createTypeConverter(type);
+			typeConverters.put(type, converter);
+		}
+		return converter;
+	}
+	
+	private TypeConverter createTypeConverter(Type type) {
+		if ( type instanceof WildcardType ) {
+			return getTypeConverter(((WildcardType) type).getUpperBounds()[0]);
+		}
+		if ( type instanceof TypeVariable<?> ) {
+			return getTypeConverter(((TypeVariable<?>) type).getBounds()[0]);
+		}
+		if ( type instanceof GenericArrayType ) {
+			Type componentType = ((GenericArrayType) type).getGenericComponentType();
+			return new ArrayConverter(type, rawClass(componentType), getTypeConverter(componentType));
+		}
+		Class<?> rawType = rawClass(type);
+		if ( rawType.isArray() ) {
+			return new ArrayConverter(type, rawType.getComponentType(), getTypeConverter(rawType.getComponentType()));
+		}
+		Type[] arguments = type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments() : null;
+		if ( Collection.class.isAssignableFrom(rawType) ) {
+			return new CollectionConverter(type, rawType,
+					getTypeConverter(arguments == null ? Object.class : arguments[0]));
+		}
+		if ( Map.class.isAssignableFrom(rawType) ) {
+			return new MapConverter(type, rawType,
+					getTypeConverter(arguments == null ? Object.class : arguments[0]),
+					getTypeConverter(arguments == null ? Object.class : arguments[1]));
+		}
+		return new ClassConverter(type, PropertyMapper.wrap(rawType));
+	}
+	
+	private static Class<?> rawClass(Type type) {
+		if ( type instanceof Class<?> ) {
+			return (Class<?>) type;
+		} else if ( type instanceof ParameterizedType ) {
+			return (Class<?>) ((ParameterizedType) type).getRawType();
+		} else if ( type instanceof GenericArrayType ) {
+			return Array.newInstance(rawClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+		} else if ( type instanceof WildcardType ) {
+			return rawClass(((WildcardType) type).getUpperBounds()[0]);
+		} else if ( type instanceof TypeVariable<?> ) {
+			return rawClass(((TypeVariable<?>) type).getBounds()[0]);
+		}
+		throw new ConversionFailedException(String.format(Message.CONV_UNSUPPORTED_TYPE.getString(), type));
+	}
+	
+	/**
+	 * Convert sources.
+	 * 
+	 * @param sources Objects to convert
+	 * @param targetType Type to convert to
+	 * 
+	 * @return Converted objects, in order
+	 * @throws ConversionFailedException
+	 * @see #convert(Object, Class, Object...)
+	 */
+	public <T> List<T> convertAll(Iterable<?> sources, Class<T> targetType) throws ConversionFailedException {
+		return convertAll(sources, targetType, DuplicateDetection.NONE, false);
+	}
+	
+	/**
+	 * Convert sources, converting the duplicates once and sharing their
+	 * conversion.
+	 * 
+	 * @param sources Objects to convert
+	 * @param targetType Type to convert to
+	 * @param duplicates How duplicates are found
+	 * 
+	 * @return Converted objects, in order
+	 * @throws ConversionFailedException
+	 * @see #convertAll(Iterable, Class, DuplicateDetection, boolean)
+	 */
+	public <T> List<T> convertAll(Iterable<?> sources, Class<T> targetType, DuplicateDetection duplicates)
+			throws ConversionFailedException {
+		return convertAll(sources, targetType, duplicates, false);
+	}
+	
+	/**
+	 * Convert sources, converting the duplicates once.
+	 * 
+	 * <p>The conversion of a duplicate is shared, or copied for the targets
+	 * that may be changed. A copy is a new target with the properties that
+	 * have a getter and a setter set from the first conversion, the property
+	 * values themselves are shared. Targets without such properties, like
+	 * strings, are shared.
+	 * 
+	 * <p>Finding duplicates costs a lookup per source, so when the first
+	 * sources of a batch have few duplicates the rest are converted without
+	 * looking.
+	 * 
+	 * @param sources Objects to convert
+	 * @param targetType Type to convert to
+	 * @param duplicates How duplicates are found
+	 * @param copy true to copy the conversion of duplicates instead of sharing it
+	 * 
+	 * @return Converted objects, in order
+	 * @throws ConversionFailedException
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> convertAll(Iterable<?> sources, Class<T> targetType, DuplicateDetection duplicates,
+			boolean copy) throws ConversionFailedException {
+		if ( targetType == null ) {
+			throw new ConversionFailedException(Message.CONV_NULL_TARGET.getString());
+		}
+		List<T> results = sources instanceof Collection<?> ? new ArrayList<T>(((Collection<?>) sources).size())
+				: new ArrayList<T>();
+		Map<Object, T> converted = null;
+		if ( duplicates == DuplicateDetection.EQUALS ) {
+			converted = new HashMap<Object, T>();
+		} else if ( duplicates == DuplicateDetection.IDENTITY ) {
+			converted = new IdentityHashMap<Object, T>();
+		}
+		// copiers by target class, null for targets that are shared
+		Map<Class<?>, PropertyMapper> copiers = copy ? new HashMap<Class<?>, PropertyMapper>() : null;
+		int looked = 0;
+		int found = 0;
+		for ( Object source : sources ) {
+			if ( converted == null || source == null ) {
+				results.add(convert(source, targetType));
+				continue;
+			}
+			T result = converted.get(source);
+			if ( result != null || converted.containsKey(source) ) {
+				found++;
+				results.add(copy && result != null ? (T) copyResult(copiers, result) : result);
+			} else {
+				result = convert(source, targetType);
+				converted.put(source, result);
+				results.add(result);
+			}
+			// not worth looking when few of the first sources are duplicates
+			if ( ++looked == DUPLICATES_SAMPLE && found < DUPLICATES_SAMPLE * DUPLICATES_MIN_PERCENT / 100 ) {
+				converted = null;
+			}
+		}
+		return results;
+	}
+	
+	// shallow copy of a conversion, the conversion itself when it can't be copied
+	private static Object copyResult(Map<Class<?>, PropertyMapper> copiers, Object result) {
+		Class<?> type = result.getClass();
+		PropertyMapper copier = copiers.get(type);
+		if ( copier == null && !copiers.containsKey(type) ) {
+			try {
+				copier = PropertyMapper.create(type, type);
+				if ( copier.getProperties().length == 0 ) {
+					copier = null;
+				}
+			} catch ( ConverterManagerException ex ) {
+				// not a bean
+				copier = null;
+			}
+			copiers.put(type, copier);
+		}
+		if ( copier == null ) {
+			return result;
+		}
+		try {
+			return copier.map(result);
+		} catch ( Exception ex ) {
+			throw new ConversionFailedException(String.format(Message.CONV_FAILED.getString(),
+					type, type, PropertyMapper.class), ex);
+		}
+	}
+	
+	/**
+	 * Convert sources into the columns of a new batch on the heap.
+	 * 
+	 * @param sources Objects to convert
+	 * @param targetType Type to convert to, its readable properties are the columns
+	 * 
+	 * @return Batch, one row per source
+	 * @throws ConversionFailedException
+	 * @see #convertColumns(Iterable, ColumnBatch)
+	 */
+	public ColumnBatch convertColumns(Collection<?> sources, Class<?> targetType) throws ConversionFailedException {
+		if ( targetType == null ) {
+			throw new ConversionFailedException(Message.CONV_NULL_TARGET.getString());
+		}
+		ColumnBatch batch = ColumnBatch.heap(targetType, sources.size());
+		convertColumns(sources, batch);
+		return batch;
+	}
+	
+	/**
+	 * Convert sources into the columns of a batch, adding a row per source.
+	 * 
+	 * <p>When the source and target types are auto mapped the target
+	 * properties are read from the source getters straight into the
+	 * columns, no target is created. Other sources are converted, then the
+	 * properties of the target are read. Rows filled from the getters are
+	 * not seen by the conversion listeners.
+	 * 
+	 * <p>A null source adds a row of zeros and nulls.
+	 * 
+	 * @param sources Objects to convert
+	 * @param batch Batch of the target type
+	 * 
+	 * @throws ConversionFailedException when a source can't be converted, or the batch is full
+	 * @see #registerAutoMapping(Class, Class)
+	 */
+	public void convertColumns(Iterable<?> sources, ColumnBatch batch) throws ConversionFailedException {
+		Class<?> targetType = batch.getTargetType();
+		// columns of each mapper used, null when a column isn't mapped
+		Map<PropertyMapper, int[]> mapped = new IdentityHashMap<PropertyMapper, int[]>();
+		Method[] getters = null;
+		for ( Object source : sources ) {
+			int row = batch.addRow();
+			if ( source == null ) {
+				continue;
+			}
+			Object target = source;
+			if ( source.getClass() != targetType ) {
+				ConverterCommand registeredCommand = getConverter(converterRegister, resolvedConverters,
+						source.getClass(), targetType);
+				if ( registeredCommand == null ) {
+					throw new ConversionFailedException(String.format(Message.CONV_NO_CONVERTER.getString(),
+							source.getClass(), targetType));
+				}
+				PropertyMapper mapper = registeredCommand.getMapper();
+				int[] properties = mapper == null ? null : getMappedColumns(mapped, mapper, batch);
+				if ( properties != null ) {
+					try {
+						for ( int column = 0; column < properties.length; column++ ) {
+							batch.set(column, row, mapper.read(source, properties[column]));
+						}
+					} catch ( Exception ex ) {
+						throw new ConversionFailedException(String.format(Message.CONV_FAILED.getString(),
+								source.getClass(), targetType, registeredCommand.getConverterClass()), ex);
+					}
+					continue;
+				}
+				target = execute(registeredCommand, source, null, NO_ARGS);
+			}
+			if ( getters == null ) {
+				getters = PropertyMapper.getReadMethods(targetType);
+			}
+			try {
+				for ( int column = 0; column < getters.length; column++ ) {
+					batch.set(column, row, getters[column].invoke(target));
+				}
+			} catch ( Exception ex ) {
+				throw new ConversionFailedException(String.format(Message.CONV_FAILED.getString(),
+						source.getClass(), targetType, target.getClass()), ex);
+			}
+		}
+	}
+	
+	// source properties of the columns, null if one isn't mapped
+	private static int[] getMappedColumns(Map<PropertyMapper, int[]> mapped, PropertyMapper mapper, ColumnBatch batch) {
+		if ( mapped.containsKey(mapper) ) {
+			return mapped.get(mapper);
+		}
+		List<String> columns = batch.getColumnNames();
+		int[] properties = new int[columns.size()];
+		for ( int column = 0; properties != null && column < properties.length; column++ ) {
+			properties[column] = mapper.indexOf(columns.get(column));
+			if ( properties[column] < 0 ) {
+				// a read only target property, the target has to be created
+				properties = null;
+			}
+		}
+		mapped.put(mapper, properties);
+		return properties;
+	}
+	
+	/**
+	 * Convert a source to several target types at once.
+	 * 
+	 * <p>The converters of all the target types are looked up first, a
+	 * missing one fails before any conversion. Auto mapped targets share the
+	 * source getters, each property is read once for all of them. Pairs
+	 * converted incrementally are converted in full.
+	 * 
+	 * @param source Object to convert
+	 * @param targetTypes Types to convert to
+	 * 
+	 * @return Conversions by target type, all null for a null source
+	 * @throws ConversionFailedException
+	 */
+	public ConversionResults convertToMany(Object source, Class<?> ... targetTypes) throws ConversionFailedException {
+		return convertToMany(source, null, targetTypes);
+	}
+	
+	/**
+	 * Convert a source to several target types at once, concurrently.
+	 * 
+	 * <p>The first target type is converted by the calling thread, the
+	 * others by the executor, and the calling thread waits for them. Only
+	 * worth it when the conversions are expensive.
+	 * 
+	 * @param source Object to convert
+	 * @param executor Executor of the conversions, null to convert them all in the calling thread
+	 * @param targetTypes Types to convert to
+	 * 
+	 * @return Conversions by target type, all null for a null source
+	 * @throws ConversionFailedException
+	 * @see #convertToMany(Object, Class...)
+	 */
+	public ConversionResults convertToMany(Object source, Executor executor, Class<?> ... targetTypes)
+			throws ConversionFailedException {
+		Class<?>[] targets = checkTargetTypes(targetTypes);
+		if ( source == null ) {
+			return new ConversionResults(null, targets, new Object[targets.length]);
+		}
+		return new FanOut(source.getClass(), targets).convert(source, executor);
+	}
+	
+	/**
+	 * Convert sources to several target types at once.
+	 * 
+	 * <p>The converters are looked up once per source class.
+	 * 
+	 * @param sources Objects to convert
+	 * @param targetTypes Types to convert to
+	 * 
+	 * @return Conversions of each source, in order
+	 * @throws ConversionFailedException
+	 * @see #convertToMany(Object, Class...)
+	 */
+	public List<ConversionResults> convertAllToMany(Iterable<?> sources, Class<?> ... targetTypes)
+			throws ConversionFailedException {
+		return convertAllToMany(sources, null, targetTypes);
+	}
+	
+	/**
+	 * Convert sources to several target types at once, the target types of
+	 * each source concurrently.
+	 * 
+	 * @param sources Objects to convert
+	 * @param executor Executor of the conversions, null to convert them all in the calling thread
+	 * @param targetTypes Types to convert to
+	 * 
+	 * @return Conversions of each source, in order
+	 * @throws ConversionFailedException
+	 * @see #convertToMany(Object, Executor, Class...)
+	 */
+	public List<ConversionResults> convertAllToMany(Iterable<?> sources, Executor executor, Class<?> ... targetTypes)
+			throws ConversionFailedException {
+		Class<?>[] targets = checkTargetTypes(targetTypes);
+		Map<Class<?>, FanOut> fanOuts = new HashMap<Class<?>, FanOut>();
+		List<ConversionResults> results = new ArrayList<ConversionResults>();
+		for ( Object source : sources ) {
+			if ( source == null ) {
+				results.add(new ConversionResults(null, targets, new Object[targets.length]));
+				continue;
+			}
+			FanOut fanOut = fanOuts.get(source.getClass());
+			if ( fanOut == null ) {
+				fanOut = new FanOut(source.getClass(), targets);
+				fanOuts.put(source.getClass(), fanOut);
+			}
+			results.add(fanOut.convert(source, executor));
+		}
+		return results;
+	}
+	
+	private static Class<?>[] checkTargetTypes(Class<?>[] targetTypes) {
+		if ( targetTypes == null ) {
+			throw new ConversionFailedException(Message.CONV_NULL_TARGET.getString());
+		}
+		for ( Class<?> targetType : targetTypes ) {
+			if ( targetType == null ) {
+				throw new ConversionFailedException(Message.CONV_NULL_TARGET.getString());
+			}
+		}
+		// the caller may change its array
+		return targetTypes.clone();
+	}
+	
+	/**
+	 * Convert source object into an existing target object.
+	 * 
+	 * <p>Uses converter methods that take the target object as second
+	 * parameter and fill it, instead of returning a new one.
+	 * 
+	 * <p><pre>
+	 * &#064;Converter
+	 * public void convert(MyObject object, YourObject target) {
+	 *   target.setAttr(object.getAttr());
+	 * }</pre>
+	 * 
+	 * <p>Converters are looked up the same way as <code>convert</code> does,
+	 * using the class of the target object as target type.
+	 * 
+	 * @param source Object to convert, when null the target is left untouched
+	 * @param target Object to fill
+	 * @param args Optional arguments to be passed to the converter
+	 * 
+	 * @return The target object
+	 * @throws ConversionFailedException
+	 */
+	public <T> T convertInto(Object source, T target, Object ... args) throws ConversionFailedException {
+		// can't fill a null target
+		if ( target == null ) {
+			throw new ConversionFailedException(Message.CONV_NULL_TARGET.getString());
+		}
+		// nothing to copy
+		if ( source == null ) {
+			return target;
+		}
+		// look for converter
+		ConverterCommand registeredCommand = getConverter(converterIntoRegister, resolvedIntoConverters, source.getClass(), target.getClass());
+		if ( registeredCommand == null ) {
+			// not found
+			throw new ConversionFailedException(String.format(Message.CONV_NO_CONVERTER.getString(),
+					source.getClass(), target.getClass()));
+		}
+		execute(registeredCommand, source, target, args);
+		return target;
+	}
+	
+	/**
+	 * Convert source object into a target object taken from a pool.
+	 * 
+	 * <p>The caller gives the target back to the pool once done with it,
+	 * targets of failed conversions are simply dropped.
+	 * 
+	 * @param source Object to convert, when null the target is left untouched
+	 * @param pool Pool of target objects
+	 * @param args Optional arguments to be passed to the converter
+	 * 
+	 * @return Target object from the pool
+	 * @throws ConversionFailedException
+	 */
+	public <T> T convertPooled(Object source, TargetPool<T> pool, Object ... args) throws ConversionFailedException {
+		return convertInto(source, pool.acquire(), args);
+	}
+	
+	/**
+	 * Convert source object to an interface type on first use.
+	 * 
+	 * <p>Returns a proxy implementing the target interface. The converter
+	 * only runs when a method of the proxy is first called, the result is
+	 * kept and every call is delegated to it.
+	 * 
+	 * <p>The converter is looked up right away, so a missing converter still
+	 * fails here. Conversion errors show up on the first method call.
+	 * 
+	 * @param source Object to convert
+	 * @param targetType Interface to convert to
+	 * @param args Optional arguments to be passed to the converter
+	 * 
+	 * @return Proxy for the converted object
+	 * @throws ConversionFailedException
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T convertLazy(Object source, Class<T> targetType, Object ... args) throws ConversionFailedException {
+		// can't convert to null target type
+		if ( targetType == null ) {
+			throw new ConversionFailedException(Message.CONV_NULL_TARGET.getString());
+		}
+		// only interfaces can be proxied
+		if ( !targetType.isInterface() ) {
+			throw new ConversionFailedException(String.format(Message.CONV_LAZY_NOT_INTERFACE.getString(), targetType));
+		}
+		// null converts to null
+		if ( source == null ) {
+			return null;
+		}
+		// nothing to defer
+		if ( targetType.isInstance(source) ) {
+			return (T) source;
+		}
+		// look for converter
+		ConverterCommand registeredCommand = getConverter(converterRegister, resolvedConverters, source.getClass(), targetType);
+		if ( registeredCommand == null ) {
+			// not found
+			throw new ConversionFailedException(String.format(Message.CONV_NO_CONVERTER.getString(),
+					source.getClass(), targetType));
+		}
+		try {
+			return (T) LazyProxies.newProxy(targetType, new LazyConversion(registeredCommand, source, args));
+		} catch ( Exception ex ) {
+			throw new ConversionFailedException(String.format(Message.CONV_FAILED.getString(),
+					source.getClass(), targetType, registeredCommand.getConverterClass()), ex);
+		}
+	}
+	
+	// convert again only what changed since the last conversion of the source
+	private Object convertIncremental(WeakIdentityMap<IncrementalTarget> targets, ConverterCommand registeredCommand,
+			Object source) {
+		PropertyMapper mapper = registeredCommand.getMapper();
+		IncrementalTarget kept = targets.get(source);
+		if ( kept == null ) {
+			Object converted = execute(registeredCommand, source, null, NO_ARGS);
+			Method[] getters = mapper == null ? PropertyMapper.getReadMethods(source.getClass()) : null;
+			targets.put(source, new IncrementalTarget(converted, getters,
+					readProperties(registeredCommand, source, getters)));
+			return converted;
+		}
+		synchronized ( kept ) {
+			Object[] values = readProperties(registeredCommand, source, kept.getters);
+			boolean[] changed = new boolean[values.length];
+			boolean anyChanged = false;
+			for ( int i = 0; i < values.length; i++ ) {
+				Object value = values[i];
+				changed[i] = value == null ? kept.values[i] != null : !value.equals(kept.values[i]);
+				anyChanged |= changed[i];
+			}
+			if ( !anyChanged ) {
+				return kept.target;
+			}
+			if ( mapper != null && kept.target != null ) {
+				try {
+					mapper.apply(kept.target, values, changed);
+				} catch ( Exception ex ) {
+					throw new ConversionFailedException(String.format(Message.CONV_FAILED.getString(),
+							source.getClass(), registeredCommand.getTargetType(), registeredCommand.getConverterClass()), ex);
+				}
+			} else {
+				kept.target = execute(registeredCommand, source, null, NO_ARGS);
+			}
+			kept.values = values;
+			return kept.target;
+		}
+	}
+	
+	private static Object[] readProperties(ConverterCommand registeredCommand, Object source, Method[] getters) {
+		try {
+			PropertyMapper mapper = registeredCommand.getMapper();
+			return mapper != null ? mapper.read(source) : PropertyMapper.read(source, getters);
+		} catch ( Exception ex ) {
+			throw new ConversionFailedException(String.format(Message.CONV_FAILED.getString(),
+					source.getClass(), registeredCommand.getTargetType(), registeredCommand.getConverterClass()), ex);
+		}
+	}
+	
+	// call the converter, or the fastest of the competing ones
+	private Object execute(ConverterCommand registeredCommand, Object source, Object target, Object[] args) {
+		ConverterGroup group = registeredCommand.getGroup();
+		if ( group != null && group.choice != null && adaptiveSelection ) {
+			return executeAdaptive(group.choice, source, target, args);
+		}
+		return executeSelected(registeredCommand, source, target, args, null, 0);
+	}
+	
+	// call the chosen converter, the converter call itself is measured
+	private Object executeAdaptive(AdaptiveChoice<ConverterCommand> choice, Object source, Object target,
+			Object[] args) {
+		int index = choice.choose(explorationPeriod);
+		try {
+			return executeSelected(choice.get(index), source, target, args, choice, index);
+		} catch ( RuntimeException ex ) {
+			// not measured, a candidate failing again and again is retired
+			choice.recordFailure(index);
+			throw ex;
+		}
+	}
+	
+	// call the converter, observed when there are listeners or a flight recording
+	private Object executeSelected(ConverterCommand registeredCommand, Object source, Object target, Object[] args,
+			AdaptiveChoice<ConverterCommand> choice, int index) {
+		if ( !observed ) {
+			return invoke(registeredCommand, source, target, args, choice, index);
+		}
+		return executeObserved(listeners, registeredCommand, source, target, args, choice, index);
+	}
+	
+	// call the converter, timing it and telling the listeners
+	private Object executeObserved(ConversionListener[] observers, ConverterCommand registeredCommand,
+			Object source, Object target, Object[] args, AdaptiveChoice<ConverterCommand> choice, int index) {
+		boolean fallback = registeredCommand.getSourceType() != source.getClass();
+		ConversionEvent event = new ConversionEvent(source, registeredCommand.getTargetType(),
+				registeredCommand.getConverterClass(), registeredCommand.getSourceType(), args);
+		for ( ConversionListener observer : observers ) {
+			try {
+				observer.beforeConversion(event);
+			} catch ( RuntimeException ex ) {
+				log.warn(Message.LISTENER_FAILED.getString(), ex);
+			}
+		}
+		String outcome = FlightRecorderEvents.FAILURE;
+		Object recorded = FlightRecorderEvents.beginConversion();
+		try {
+			// listener time isn't conversion time
+			event.start(System.nanoTime());
+			Object converted = invoke(registeredCommand, source, target, args, choice, index);
+			outcome = FlightRecorderEvents.SUCCESS;
+			event.finish(System.nanoTime());
+			FlightRecorderEvents.endConversion(recorded);
+			for ( ConversionListener observer : observers ) {
+				try {
+					observer.afterConversion(event, converted);
+				} catch ( RuntimeException ex ) {
+					log.warn(Message.LISTENER_FAILED.getString(), ex);
+				}
+			}
+			return converted;
+		} catch ( RuntimeException failure ) {
+			event.finish(System.nanoTime());
+			FlightRecorderEvents.endConversion(recorded);
+			for ( ConversionListener observer : observers ) {
+				try {
+					observer.conversionFailed(event, failure);
+				} catch ( RuntimeException ex ) {
+					log.warn(Message.LISTENER_FAILED.getString(), ex);
+				}
+			}
+			throw failure;
+		} finally {
+			if ( recorded != null && event.getElapsedNanos() >= flightRecorderThreshold ) {
+				FlightRecorderEvents.conversion(recorded, source.getClass(), registeredCommand.getTargetType(),
+						registeredCommand.getConverterClass(), event.getElapsedNanos(), outcome, fallback);
+			}
+		}
+	}
+	
+	// call the converter, wrapping whatever goes wrong
+	private Object invoke(ConverterCommand registeredCommand, Object source, Object target, Object[] args,
+			AdaptiveChoice<ConverterCommand> choice, int index) {
+		try {
+			// lets convert
+			PersistentResultCache cache = resultCache;
+			if ( cache != null && registeredCommand.isPure() ) {
+				return convertCached(cache, registeredCommand, source, args, choice, index);
+			}
+			return convertMeasured(registeredCommand, source, target, args, choice, index);
+		} catch ( InvocationTargetException  ex ) {
+			// is it a handled exception?
+			if ( ex.getTargetException().getClass() == ConversionFailedException.class ) {
+				throw (ConversionFailedException) ex.getTargetException();
+			}
+			// Unhanddled error in conversion
+			throw new ConversionFailedException(String.format(Message.CONV_UNHANDLED_ERROR.getString(),
+					source.getClass(), registeredCommand.getTargetType(), registeredCommand.getConverterClass()), ex);
+			
+		// Bubble up conversion errors
+		} catch ( ConversionFailedException ex ) {
+			throw ex;
+			
+		} catch ( Exception ex ) {
+			// Don't know what happened, wrap error
+			throw new ConversionFailedException(String.format(Message.CONV_FAILED.getString(),
+					source.getClass(), registeredCommand.getTargetType(), registeredCommand.getConverterClass()), ex);
+		}
+	}
+	
+	// call a pure converter unless the result is cached
+	private Object convertCached(PersistentResultCache cache, ConverterCommand registeredCommand,
+			Object source, Object[] args, AdaptiveChoice<ConverterCommand> choice, int index) throws Exception {
+		byte[] key = PersistentResultCache.key(registeredCommand.getConverterClass(),
+				registeredCommand.getTargetType(), source, args);
+		if ( key == null ) {
+			return convertMeasured(registeredCommand, source, null, args, choice, index);
+		}
+		Object converted = cache.get(key, registeredCommand.getConverterClass());
+		if ( converted == PersistentResultCache.MISS ) {
+			converted = convertMeasured(registeredCommand, source, null, args, choice, index);
+			cache.put(key, registeredCommand.getConverterClass(), converted);
+		}
+		return converted;
+	}
+	
+	// call the converter, giving its latency to the adaptive choice it was picked by
+	private static Object convertMeasured(ConverterCommand registeredCommand, Object source, Object target,
+			Object[] args, AdaptiveChoice<ConverterCommand> choice, int index) throws Exception {
+		if ( choice == null ) {
+			return registeredCommand.convert(source, target, args);
+		}
+		long start = System.nanoTime();
+		Object converted = registeredCommand.convert(source, target, args);
+		choice.record(index, System.nanoTime() - start);
+		return converted;
+	}
+	
+	// look for a converter, remembering what was found
+	private ConverterCommand getConverter(Map<ConverterTypes, ConverterCommand> register,
+			WeakTypeMap<ConverterCommand> resolved, Class<?> sourceType, Class<?> targetType) {
+		ConverterCommand resolvedConverter = resolved.get(sourceType, targetType);
+		if ( resolvedConverter == null ) {
+			resolvedConverter = findConverter(register, sourceType, targetType);
+			// no converter, maybe it can be mapped
+			if ( resolvedConverter == null && register == converterRegister && !autoMappings.isEmpty() ) {
+				resolvedConverter = findConverter(autoMappings, sourceType, targetType);
+			}
+			// or generated, the next lookups find it like a registered one
+			if ( resolvedConverter == null && register == converterRegister && enumConversion
+					&& EnumMapper.canMap(sourceType, targetType) ) {
+				resolvedConverter = new ConverterCommand(EnumMapper.create(sourceType, targetType,
+						enumFallbacks.get(targetType)));
+			}
+			if ( resolvedConverter != null ) {
+				resolved.put(sourceType, targetType, resolvedConverter);
+			}
+		}
+		return resolvedConverter;
+	}
+	
+	// look for a registered converter
+	private ConverterCommand findConverter(Map<ConverterTypes, ConverterCommand> register,
+			Class<?> sourceType, Class<?> targetType) {
+		// try the object class
+		ConverterCommand registeredConverter = register.get(new ConverterTypes(sourceType, targetType));
+		if ( registeredConverter != null ) {
+			return registeredConverter;
+		}
 		// try the object's interfaces
-		for ( Class<?> i : source.getClass().getInterfaces() ) {
-			registeredConverter = converterRegister.get(new ConverterTypes(i, targetType));
+		for ( Class<?> i : sourceType.getInterfaces() ) {
+			registeredConverter = register.get(new ConverterTypes(i, targetType));
 			if ( registeredConverter != null ) {
 				return registeredConverter;
 			}
 		}
-		// try the object's supper class
-		registeredConverter = converterRegister.get(new ConverterTypes(source.getClass().getSuperclass(), targetType));
-		if ( registeredConverter != null ) {
-			return registeredConverter;
+		// try the object's supper classes, and their interfaces
+		for ( Class<?> superclass = sourceType.getSuperclass(); superclass != null; superclass = superclass.getSuperclass() ) {
+			registeredConverter = register.get(new ConverterTypes(superclass, targetType));
+			if ( registeredConverter != null ) {
+				return registeredConverter;
+			}
+			for ( Class<?> i : superclass.getInterfaces() ) {
+				registeredConverter = register.get(new ConverterTypes(i, targetType));
+				if ( registeredConverter != null ) {
+					return registeredConverter;
+				}
+			}
 		}
 		// no match
 		return null;
 	}
 
+	// Proxy handler that converts on first call
+	private class LazyConversion implements InvocationHandler {
+		private ConverterCommand command;
+		private Object source;
+		private Object[] args;
+		private volatile Object target;
+		// construct
+		public LazyConversion(ConverterCommand command, Object source, Object[] args) {
+			this.command = command;
+			this.source = source;
+			this.args = args;
+		}
+		// delegate to the converted object
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] methodArgs) throws Throwable {
+			try {
+				return method.invoke(getTarget(), methodArgs);
+			} catch ( InvocationTargetException ex ) {
+				throw ex.getTargetException();
+			}
+		}
+		// convert once, the source is not needed afterwards
+		private Object getTarget() {
+			Object converted = target;
+			if ( converted == null ) {
+				synchronized ( this ) {
+					converted = target;
+					if ( converted == null ) {
+						converted = execute(command, source, null, args);
+						if ( converted == null ) {
+							throw new ConversionFailedException(String.format(Message.CONV_NULL_RESULT.getString(),
+									source.getClass(), command.getTargetType()));
+						}
+						target = converted;
+						command = null;
+						source = null;
+						args = null;
+					}
+				}
+			}
+			return converted;
+		}
+	}
+
+	// Converts to a type, built once per type
+	private abstract static class TypeConverter {
+		protected final Type type;
+		// construct
+		protected TypeConverter(Type type) {
+			this.type = type;
+		}
+		// convert a source, or an element
+		public abstract Object convert(Object source);
+		// the elements of a collection or an array
+		protected Object[] getElements(Object source) {
+			if ( source instanceof Collection<?> ) {
+				return ((Collection<?>) source).toArray();
+			}
+			if ( source instanceof Object[] ) {
+				return (Object[]) source;
+			}
+			if ( source.getClass().isArray() ) {
+				Object[] elements = new Object[Array.getLength(source)];
+				for ( int i = 0; i < elements.length; i++ ) {
+					elements[i] = Array.get(source, i);
+				}
+				return elements;
+			}
+			throw new ConversionFailedException(String.format(Message.CONV_NOT_A_COLLECTION.getString(),
+					source.getClass(), type));
+		}
+		// the target constructor, for types that are not created directly
+		protected Constructor<?> getConstructor(Class<?> rawType) {
+			try {
+				if ( !rawType.isInterface() && !Modifier.isAbstract(rawType.getModifiers()) ) {
+					return rawType.getConstructor();
+				}
+			} catch ( NoSuchMethodException ex ) {
+				// not supported
+			}
+			throw new ConversionFailedException(String.format(Message.CONV_UNSUPPORTED_TYPE.getString(), type));
+		}
+		protected Object newInstance(Constructor<?> constructor) {
+			try {
+				return constructor.newInstance();
+			} catch ( Exception ex ) {
+				throw new ConversionFailedException(String.format(Message.CONV_UNSUPPORTED_TYPE.getString(), type), ex);
+			}
+		}
+		// hash based collection capacity holding the elements without growing
+		protected static int capacity(int size) {
+			return size < 3 ? size + 1 : (int) (size / 0.75f) + 1;
+		}
+	}
+	
+	// Converts a single object with the registered converters
+	private class ClassConverter extends TypeConverter {
+		private final Class<?> targetType;
+		// converter of the last source class, the elements are most often of the same class
+		private volatile ResolvedConverter last;
+		// construct
+		public ClassConverter(Type type, Class<?> targetType) {
+			super(type);
+			this.targetType = targetType;
+		}
+		@Override
+		public Object convert(Object source) {
+			if ( source == null ) {
+				return null;
+			}
+			Class<?> sourceClass = source.getClass();
+			if ( sourceClass == targetType || targetType == Object.class ) {
+				return source;
+			}
+			ResolvedConverter resolved = last;
+			if ( resolved == null || resolved.sourceClass != sourceClass ) {
+				resolved = new ResolvedConverter(sourceClass,
+						getConverter(converterRegister, resolvedConverters, sourceClass, targetType));
+				last = resolved;
+			}
+			if ( resolved.command == null ) {
+				if ( targetType.isInstance(source) ) {
+					return source;
+				}
+				throw new ConversionFailedException(String.format(Message.CONV_NO_CONVERTER.getString(),
+						sourceClass, targetType));
+			}
+			return execute(resolved.command, source, null, NO_ARGS);
+		}
+	}
+	
+	// Converter found for a source class
+	private static class ResolvedConverter {
+		private final Class<?> sourceClass;
+		private final ConverterCommand command;
+		// construct
+		public ResolvedConverter(Class<?> sourceClass, ConverterCommand command) {
+			this.sourceClass = sourceClass;
+			this.command = command;
+		}
+	}
+	
+	// Converts the elements of a collection or an array into a collection
+	private static class CollectionConverter extends TypeConverter {
+		private final Class<?> rawType;
+		private final TypeConverter element;
+		// null for the collections created directly
+		private final Constructor<?> constructor;
+		// construct
+		public CollectionConverter(Type type, Class<?> rawType, TypeConverter element) {
+			super(type);
+			this.rawType = rawType;
+			this.element = element;
+			this.constructor = rawType.isAssignableFrom(ArrayList.class) || rawType.isAssignableFrom(LinkedHashSet.class)
+					|| rawType.isAssignableFrom(TreeSet.class) ? null : getConstructor(rawType);
+		}
+		@Override
+		@SuppressWarnings("unchecked")
+		public Object convert(Object source) {
+			Object[] elements = getElements(source);
+			Collection<Object> target;
+			if ( constructor != null ) {
+				target = (Collection<Object>) newInstance(constructor);
+			} else if ( rawType.isAssignableFrom(ArrayList.class) ) {
+				target = new ArrayList<Object>(elements.length);
+			} else if ( rawType.isAssignableFrom(LinkedHashSet.class) ) {
+				target = new LinkedHashSet<Object>(capacity(elements.length));
+			} else {
+				target = new TreeSet<Object>();
+			}
+			for ( Object item : elements ) {
+				target.add(element.convert(item));
+			}
+			return target;
+		}
+	}
+	
+	// Converts the keys and values of a map into a map
+	private static class MapConverter extends TypeConverter {
+		private final Class<?> rawType;
+		private final TypeConverter key;
+		private final TypeConverter value;
+		// null for the maps created directly
+		private final Constructor<?> constructor;
+		// construct
+		public MapConverter(Type type, Class<?> rawType, TypeConverter key, TypeConverter value) {
+			super(type);
+			this.rawType = rawType;
+			this.key = key;
+			this.value = value;
+			this.constructor = rawType.isAssignableFrom(LinkedHashMap.class) || rawType.isAssignableFrom(TreeMap.class)
+					? null : getConstructor(rawType);
+		}
+		@Override
+		@SuppressWarnings("unchecked")
+		public Object convert(Object source) {
+			if ( !(source instanceof Map<?, ?>) ) {
+				throw new ConversionFailedException(String.format(Message.CONV_NOT_A_COLLECTION.getString(),
+						source.getClass(), type));
+			}
+			Map<?, ?> sourceMap = (Map<?, ?>) source;
+			Map<Object, Object> target;
+			if ( constructor != null ) {
+				target = (Map<Object, Object>) newInstance(constructor);
+			} else if ( rawType.isAssignableFrom(LinkedHashMap.class) ) {
+				target = new LinkedHashMap<Object, Object>(capacity(sourceMap.size()));
+			} else {
+				target = new TreeMap<Object, Object>();
+			}
+			for ( Map.Entry<?, ?> entry : sourceMap.entrySet() ) {
+				target.put(key.convert(entry.getKey()), value.convert(entry.getValue()));
+			}
+			return target;
+		}
+	}
+	
+	// Converts the elements of a collection or an array into an array
+	private static class ArrayConverter extends TypeConverter {
+		private final Class<?> componentType;
+		private final TypeConverter element;
+		// construct
+		public ArrayConverter(Type type, Class<?> componentType, TypeConverter element) {
+			super(type);
+			this.componentType = componentType;
+			this.element = element;
+		}
+		@Override
+		public Object convert(Object source) {
+			Object[] elements = getElements(source);
+			Object target = Array.newInstance(componentType, elements.length);
+			for ( int i = 0; i < elements.length; i++ ) {
+				Array.set(target, i, element.convert(elements[i]));
+			}
+			return target;
+		}
+	}
+	
+	// Target kept for a source, with the source properties it was converted from
+	private static class IncrementalTarget {
+		private Object target;
+		// null for auto mapped pairs, the mapper reads the properties
+		private final Method[] getters;
+		private Object[] values;
+		// construct
+		public IncrementalTarget(Object target, Method[] getters, Object[] values) {
+			this.target = target;
+			this.getters = getters;
+			this.values = values;
+		}
+	}
+
+	// the converters of a source class to several target types
+	private class FanOut {
+		private final Class<?>[] targetTypes;
+		// null for a target of the source class
+		private final ConverterCommand[] commands;
+		// properties of the auto mapped targets, read once with the mapper and index given
+		private final List<PropertyMapper> readers = new ArrayList<PropertyMapper>();
+		private final List<Integer> readIndexes = new ArrayList<Integer>();
+		// for each auto mapped target, index of each of its properties in the ones read
+		private final int[][] valueIndexes;
+		// construct
+		public FanOut(Class<?> sourceType, Class<?>[] targetTypes) {
+			this.targetTypes = targetTypes;
+			this.commands = new ConverterCommand[targetTypes.length];
+			this.valueIndexes = new int[targetTypes.length][];
+			List<String> read = new ArrayList<String>();
+			for ( int i = 0; i < targetTypes.length; i++ ) {
+				if ( targetTypes[i] == sourceType ) {
+					continue;
+				}
+				commands[i] = getConverter(converterRegister, resolvedConverters, sourceType, targetTypes[i]);
+				if ( commands[i] == null ) {
+					throw new ConversionFailedException(String.format(Message.CONV_NO_CONVERTER.getString(),
+							sourceType, targetTypes[i]));
+				}
+				PropertyMapper mapper = commands[i].getMapper();
+				if ( mapper == null ) {
+					continue;
+				}
+				String[] properties = mapper.getProperties();
+				valueIndexes[i] = new int[properties.length];
+				for ( int p = 0; p < properties.length; p++ ) {
+					int index = read.indexOf(properties[p]);
+					if ( index < 0 ) {
+						index = read.size();
+						read.add(properties[p]);
+						readers.add(mapper);
+						readIndexes.add(Integer.valueOf(p));
+					}
+					valueIndexes[i][p] = index;
+				}
+			}
+		}
+		// convert a source to every target
+		public ConversionResults convert(final Object source, Executor executor) {
+			final Object[] values = read(source);
+			Object[] results = new Object[targetTypes.length];
+			if ( executor == null || targetTypes.length < 2 ) {
+				for ( int i = 0; i < targetTypes.length; i++ ) {
+					results[i] = convert(i, source, values);
+				}
+				return new ConversionResults(source, targetTypes, results);
+			}
+			List<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>(targetTypes.length - 1);
+			for ( int i = 1; i < targetTypes.length; i++ ) {
+				final int target = i;
+				FutureTask<Object> task = new FutureTask<Object>(new Callable<Object>() {
+					@Override
+					public Object call() {
+						return convert(target, source, values);
+					}
+				});
+				executor.execute(task);
+				tasks.add(task);
+			}
+			// tasks taken, the failing one included
+			int taken = 0;
+			boolean converted = false;
+			try {
+				results[0] = convert(0, source, values);
+				for ( int i = 1; i < targetTypes.length; i++ ) {
+					taken = i;
+					results[i] = await(tasks.get(i - 1), source, i);
+				}
+				converted = true;
+			} finally {
+				if ( !converted ) {
+					cancel(tasks, taken, source);
+				}
+			}
+			return new ConversionResults(source, targetTypes, results);
+		}
+		// stop the conversions not taken yet after a failure, logging the ones that failed too
+		private void cancel(List<FutureTask<Object>> tasks, int taken, Object source) {
+			for ( int i = taken; i < tasks.size(); i++ ) {
+				FutureTask<Object> task = tasks.get(i);
+				if ( task.cancel(true) ) {
+					continue;
+				}
+				try {
+					task.get();
+				} catch ( ExecutionException ex ) {
+					log.warn(String.format(Message.CONV_ALSO_FAILED.getString(), source.getClass(),
+							targetTypes[i + 1]), ex.getCause());
+				} catch ( InterruptedException ex ) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+		// read the properties of the auto mapped targets
+		private Object[] read(Object source) {
+			Object[] values = new Object[readers.size()];
+			for ( int i = 0; i < values.length; i++ ) {
+				PropertyMapper reader = readers.get(i);
+				try {
+					values[i] = reader.read(source, readIndexes.get(i).intValue());
+				} catch ( Exception ex ) {
+					throw new ConversionFailedException(String.format(Message.CONV_FAILED.getString(),
+							source.getClass(), reader.getTargetType(), PropertyMapper.class), ex);
+				}
+			}
+			return values;
+		}
+		// convert a source to a target
+		private Object convert(int target, Object source, Object[] values) {
+			ConverterCommand command = commands[target];
+			if ( command == null ) {
+				return source;
+			}
+			int[] indexes = valueIndexes[target];
+			if ( indexes == null ) {
+				return execute(command, source, null, NO_ARGS);
+			}
+			Object[] properties = new Object[indexes.length];
+			for ( int p = 0; p < indexes.length; p++ ) {
+				properties[p] = values[indexes[p]];
+			}
+			try {
+				return command.getMapper().create(properties);
+			} catch ( Exception ex ) {
+				throw new ConversionFailedException(String.format(Message.CONV_FAILED.getString(),
+						source.getClass(), targetTypes[target], PropertyMapper.class), ex);
+			}
+		}
+		// wait for a conversion of the executor
+		private Object await(FutureTask<Object> task, Object source, int target) {
+			try {
+				return task.get();
+			} catch ( InterruptedException ex ) {
+				Thread.currentThread().interrupt();
+				throw new ConversionFailedException(Message.CONV_INTERRUPTED.getString(), ex);
+			} catch ( ExecutionException ex ) {
+				Throwable cause = ex.getCause();
+				if ( cause instanceof Error ) {
+					throw (Error) cause;
+				}
+				if ( cause instanceof RuntimeException ) {
+					throw (RuntimeException) cause;
+				}
+				throw new ConversionFailedException(String.format(Message.CONV_FAILED.getString(),
+						source.getClass(), targetTypes[target], commands[target].getConverterClass()), cause);
+			}
+		}
+	}
+
+	// the lookups of findConverter, recorded
+	private static class ExplainedLookup {
+		private final Class<?> targetType;
+		private final List<ConversionExplanation.Step> steps = new ArrayList<ConversionExplanation.Step>();
+		private final Set<Class<?>> checked = new HashSet<Class<?>>();
+		private final List<ConverterDescription> shadowed = new ArrayList<ConverterDescription>();
+		private final List<ConverterDescription> ambiguous = new ArrayList<ConverterDescription>();
+		// an interface can be seen again on a superclass
+		private final Set<ConverterCommand> seen = new HashSet<ConverterCommand>();
+		private ConverterDescription found;
+		// where it was found, interfaces of the same class share a level
+		private int foundLevel;
+		private boolean foundAutoMapping;
+		// construct
+		public ExplainedLookup(Class<?> targetType) {
+			this.targetType = targetType;
+		}
+		// same order as findConverter, going on after a match
+		public void walk(Map<ConverterTypes, ConverterCommand> register, Class<?> sourceType, boolean autoMapping) {
+			int level = 0;
+			visit(register, ConversionExplanation.Lookup.EXACT, sourceType, autoMapping, level++);
+			for ( Class<?> i : sourceType.getInterfaces() ) {
+				visit(register, ConversionExplanation.Lookup.INTERFACE, i, autoMapping, level);
+			}
+			level++;
+			for ( Class<?> superclass = sourceType.getSuperclass(); superclass != null; superclass = superclass.getSuperclass() ) {
+				visit(register, ConversionExplanation.Lookup.SUPERCLASS, superclass, autoMapping, level++);
+				for ( Class<?> i : superclass.getInterfaces() ) {
+					visit(register, ConversionExplanation.Lookup.SUPERCLASS_INTERFACE, i, autoMapping, level);
+				}
+				level++;
+			}
+		}
+		private void visit(Map<ConverterTypes, ConverterCommand> register, ConversionExplanation.Lookup lookup,
+				Class<?> type, boolean autoMapping, int level) {
+			checked.add(type);
+			ConverterCommand command = register.get(new ConverterTypes(type, targetType));
+			if ( found == null ) {
+				ConverterDescription description = command == null ? null : describe(command, null);
+				steps.add(new ConversionExplanation.Step(lookup, type, autoMapping, description));
+				if ( description != null ) {
+					seen.add(command);
+					found = description;
+					foundLevel = level;
+					foundAutoMapping = autoMapping;
+				}
+			} else if ( command != null && seen.add(command) ) {
+				if ( level == foundLevel && autoMapping == foundAutoMapping ) {
+					ambiguous.add(describe(command, null));
+				} else {
+					shadowed.add(describe(command, null));
+				}
+			}
+		}
+	}
+
+	// converters registered for the same types
+	private static class ConverterGroup {
+		// fixed choice first
+		private final List<ConverterCommand> commands;
+		// the fixed choice and the candidates competing with it
+		private final List<ConverterCommand> competing;
+		// null when no candidate competes with the fixed choice
+		private final AdaptiveChoice<ConverterCommand> choice;
+		// construct
+		public ConverterGroup(List<ConverterCommand> commands, List<ConverterCommand> competing) {
+			this.commands = Collections.unmodifiableList(commands);
+			this.competing = competing;
+			this.choice = competing.size() > 1 ? new AdaptiveChoice<ConverterCommand>(competing) : null;
+		}
+	}
+
 	// Class that holds the object and method to use for conversion
 	private class ConverterCommand {
-		private Object converter;
+		private Class<?> converterClass;
+		// null for static methods, they are called without an instance
+		private ConverterInstances instances;
 		private Method method;
+		private Class<?>[] paramTypes;
+		private Class<?> sourceType;
+		private Class<?> targetType;
+		// parameters before the optional arguments: source, or source and target
+		private int fixedParams;
+		// result only depends on the source and arguments
+		private boolean pure;
+		// generated converters, called instead of the method
+		private PropertyMapper mapper;
+		private EnumMapper enumMapper;
+		private int priority;
+		private boolean candidate;
+		// the other converters of the same types, null if none
+		private ConverterGroup group;
 		// construct
-		public ConverterCommand(Object converter, Method method) {
-			this.converter = converter;
+		public ConverterCommand(Class<?> converterClass, ConverterInstances instances, Method method,
+				Class<?> targetType, int fixedParams) {
+			this.converterClass = converterClass;
+			this.instances = Modifier.isStatic(method.getModifiers()) ? null : instances;
 			this.method = method;
+			this.paramTypes = method.getParameterTypes();
+			this.sourceType = paramTypes[0];
+			this.targetType = targetType;
+			this.fixedParams = fixedParams;
+			Converter annotation = method.getAnnotation(Converter.class);
+			this.pure = fixedParams == 1 && annotation.pure();
+			this.priority = annotation.priority();
+			this.candidate = annotation.candidate();
+		}
+		// construct a generated converter
+		public ConverterCommand(PropertyMapper mapper) {
+			this.converterClass = PropertyMapper.class;
+			this.mapper = mapper;
+			this.paramTypes = new Class<?>[] { mapper.getSourceType() };
+			this.sourceType = mapper.getSourceType();
+			this.targetType = mapper.getTargetType();
+			this.fixedParams = 1;
+		}
+		// construct a generated enum converter
+		public ConverterCommand(EnumMapper enumMapper) {
+			this.converterClass = EnumMapper.class;
+			this.enumMapper = enumMapper;
+			this.paramTypes = new Class<?>[] { enumMapper.getSourceType() };
+			this.sourceType = enumMapper.getSourceType();
+			this.targetType = enumMapper.getTargetType();
+			this.fixedParams = 1;
 		}
 		// call the converter method with optional arguments
-		public Object convert(Object source, Object ... args) throws Exception {
-			Class<?>[] paramTypes = method.getParameterTypes();
+		public Object convert(Object source, Object target, Object ... args) throws Exception {
 			// check for too few args
-			if ( args.length < paramTypes.length - 1) {
+			if ( args.length < paramTypes.length - fixedParams) {
 				throw new ConversionFailedException(
 						String.format(Message.CONV_LESS_ARGS.getString(),
-								source.getClass(), method.getReturnType(), converter.getClass()));
+								source.getClass(), targetType, converterClass));
 			}
 			// check for too many args
-			if ( args.length > paramTypes.length - 1) {
+			if ( args.length > paramTypes.length - fixedParams) {
 				throw new ConversionFailedException(
 						String.format(Message.CONV_MORE_ARGS.getString(),
-								source.getClass(), method.getReturnType(), converter.getClass()));
+								source.getClass(), targetType, converterClass));
 			}
 			// check arg types
-			for ( int i = 1 /* 1=first parameter */; i < paramTypes.length; i++ ) {
-				if ( paramTypes[i] != args[i-1].getClass() ) {
+			for ( int i = fixedParams; i < paramTypes.length; i++ ) {
+				if ( paramTypes[i] != args[i-fixedParams].getClass() ) {
 					throw new ConversionFailedException(
 							String.format(Message.CONV_ARG_MISMATCH.getString(),
-									source.getClass(), method.getReturnType(), converter.getClass()));
+									source.getClass(), targetType, converterClass));
 				}
 			}
 			// almost certain it is good to call
-			return method.invoke(converter, appendArgs(source, args));
+			if ( mapper != null ) {
+				return mapper.map(source);
+			}
+			if ( enumMapper != null ) {
+				return enumMapper.map(source);
+			}
+			if ( instances == null ) {
+				return method.invoke(null, appendArgs(source, target, args));
+			}
+			Object converter = instances.acquire();
+			try {
+				return method.invoke(converter, appendArgs(source, target, args));
+			} finally {
+				instances.release(converter);
+			}
 		}
-		// get converter
-		public Object getConverter() {
-			return converter;
-		}
-		// helper method to append arguments to the source object for invoke method
-		private <T> T[] appendArgs( T object, T[] args) {
-		    T[] objAndargs = java.util.Arrays.copyOf(args, args.length + 1);
-		    System.arraycopy(args, 0, objAndargs, 1, args.length);
-		    objAndargs[0] = object;
-		    return objAndargs;
+		// unregistered, the instances kept by other threads must not pin its class loader
+		public void clearInstances() {
+			if ( instances != null ) {
+				instances.clear();
+			}
 		}
-	}
-	
-	// Lookup key for converter register
-	private class ConverterTypes {
-		private Class<?> source;
-		private Class<?> target;
-
-		public ConverterTypes(Class<?> source, Class<?> target) {
-			this.source = source;
-			this.target = target;
+		// load the classes and skip access checks ahead of the first call
+		public void warmUp() {
+			initialize(converterClass);
+			initialize(sourceType);
+			initialize(targetType);
+			try {
+				method.setAccessible(true);
+			} catch ( SecurityException ex ) {
+				// not allowed, calls keep checking access
+			}
+		}
+		private void initialize(Class<?> type) {
+			if ( type.isPrimitive() ) {
+				return;
+			}
+			try {
+				Class.forName(type.getName(), true, type.getClassLoader());
+			} catch ( ClassNotFoundException ex ) {
+				// can't happen, the class is already loaded
+			}
+		}
+		// get converter method
+		public Method getMethod() {
+			return method;
+		}
+		// get converter class
+		public Class<?> getConverterClass() {
+			return converterClass;
+		}
+		// get registered source type
+		public Class<?> getSourceType() {
+			return sourceType;
 		}
-	
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj) return true;
-			if ((obj == null) || (obj.getClass() != this.getClass()))
-				return false;
-	
-			ConverterTypes other = (ConverterTypes) obj;
-			return (source == other.source || (source != null && source.equals(other.source)))
-					&& (target == other.target || (target != null && target.equals(other.target)));
+		// get target type
+		public Class<?> getTargetType() {
+			return targetType;
 		}
-	
-		@Override
-		public int hashCode() {
-			int hash = 7;
-			hash = 31 * hash + (null == source ? 0 : source.hashCode());
-			hash = 31 * hash + (null == target ? 0 : target.hashCode());
-			return hash;
+		// can the result be cached
+		public boolean isPure() {
+			return pure;
 		}
-	}
+		// get the generated converter, null for converter methods
+		public PropertyMapper getMapper() {
+			return mapper;
+		}
+		// get priority among the converters of the same types
+		public int getPriority() {
+			return priority;
+		}
+		// does it compete with the other converters of the same types
+		public boolean isCandidate() {
+			return candidate;
+		}
+		// takes the same parameters as another converter
+		public boolean hasParameters(ConverterCommand other) {
+			return fixedParams == other.fixedParams && Arrays.equals(paramTypes, other.paramTypes);
+		}
+		// does it fill the target
+		public boolean isInto() {
+			return fixedParams > 1;
+		}
+		// get the converters of the same types
+		public ConverterGroup getGroup() {
+			return group;
+		}
+		public void setGroup(ConverterGroup group) {
+			this.group = group;
+		}
+		// this converter and the others of the same types, fixed choice first
+		public List<ConverterCommand> getGroupCommands() {
+			return group == null ? Collections.singletonList(this) : group.commands;
+		}
+		// helper method to put the source (and target) object before the arguments for invoke method
+		private Object[] appendArgs(Object source, Object target, Object[] args) {
+		    Object[] objAndargs = new Object[args.length + fixedParams];
+		    System.arraycopy(args, 0, objAndargs, fixedParams, args.length);
+		    objAndargs[0] = source;
+		    if ( fixedParams > 1 ) {
+		    	objAndargs[1] = target;
+		    }
+		    return objAndargs;
+		}
+	}
 }
\ No newline at end of file
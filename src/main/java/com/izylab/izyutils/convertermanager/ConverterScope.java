@@ -0,0 +1,32 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+/**
+ * How converter instances are shared between threads.
+ * 
+ * <p>Static <code>&#064;Converter</code> methods never need an instance and
+ * are called directly whatever the scope.
+ */
+public enum ConverterScope {
+	/** One instance shared by all threads, the converter must be thread safe */
+	SINGLETON,
+	/** One instance per thread */
+	THREAD_LOCAL,
+	/** Instances are borrowed for each conversion and given back afterwards, one idle instance per processor is kept */
+	POOLED
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Code of an enum constant, used instead of its name by the generated enum
+ * converters.
+ * 
+ * <p><pre>
+ * public enum Status {
+ *   &#064;EnumCode("A") ACTIVE,
+ *   &#064;EnumCode("I") INACTIVE
+ * }
+ * </pre>
+ * 
+ * @see ConverterManager#setEnumConversion(boolean)
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EnumCode {
+	/**
+	 * Code of the constant, unique within its enum.
+	 */
+	String value();
+}
@@ -0,0 +1,310 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.izylab.izyutils.convertermanager.internal.Json;
+import com.izylab.izyutils.convertermanager.internal.Message;
+import com.izylab.izyutils.convertermanager.internal.PropertyMapper;
+
+/**
+ * Writes GraalVM native image metadata for the registered converters.
+ *
+ * <p><pre>
+ * new NativeImageMetadata(converterManager).export(
+ *     new File("src/main/resources/META-INF/native-image/com.example/app"),
+ *     NativeImageMetadata.Format.REACHABILITY_METADATA);
+ * </pre>
+ *
+ * <p>Converters are found and called through reflection, so a native image
+ * needs every converter class, its <code>&#064;Converter</code> methods and
+ * its public no argument constructor registered for reflection. The
+ * getters, setters and constructors the auto mappings and the copies of
+ * <code>convertAll</code> call are registered too, and the interface target
+ * types get a dynamic proxy for <code>convertLazy</code>.
+ */
+public class NativeImageMetadata {
+	/** Reflection configuration file name */
+	public static final String REFLECT_CONFIG = "reflect-config.json"; //$NON-NLS-1$
+	/** Dynamic proxy configuration file name, goes with the reflection configuration */
+	public static final String PROXY_CONFIG = "proxy-config.json"; //$NON-NLS-1$
+	/** Reachability metadata file name */
+	public static final String REACHABILITY_METADATA = "reachability-metadata.json"; //$NON-NLS-1$
+
+	/**
+	 * Metadata format.
+	 */
+	public static enum Format {
+		/** <code>reflect-config.json</code> and <code>proxy-config.json</code>, read by every release */
+		REFLECT_CONFIG,
+		/** The single <code>reachability-metadata.json</code> of the newer releases */
+		REACHABILITY_METADATA
+	}
+
+	private static final List<String> PROXIED_OBJECT_METHODS =
+			Arrays.asList("equals", "hashCode", "toString"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+	private final ConverterManager converterManager;
+
+	/**
+	 * Creates an exporter.
+	 *
+	 * @param converterManager Converter manager with the converters registered
+	 */
+	public NativeImageMetadata(ConverterManager converterManager) {
+		this.converterManager = converterManager;
+	}
+
+	/**
+	 * Writes the metadata files of a format in the directory, creating it if
+	 * needed.
+	 *
+	 * @param directory Directory
+	 * @param format Format
+	 * @throws ConverterManagerException
+	 */
+	public void export(File directory, Format format) {
+		if ( !directory.isDirectory() && !directory.mkdirs() ) {
+			throw new ConverterManagerException(String.format(Message.METADATA_IO_ERROR.getString(), directory));
+		}
+		if ( format == Format.REACHABILITY_METADATA ) {
+			write(new File(directory, REACHABILITY_METADATA), format);
+		} else {
+			write(new File(directory, REFLECT_CONFIG), format);
+			write(new File(directory, PROXY_CONFIG), null);
+		}
+	}
+
+	// null format for the proxy configuration
+	private void write(File file, Format format) {
+		try {
+			Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8"); //$NON-NLS-1$
+			try {
+				if ( format == Format.REACHABILITY_METADATA ) {
+					writeReachabilityMetadata(writer);
+				} else if ( format == Format.REFLECT_CONFIG ) {
+					writeReflectConfig(writer);
+				} else {
+					writeProxyConfig(writer);
+				}
+			} finally {
+				writer.close();
+			}
+		} catch ( IOException ex ) {
+			throw new ConverterManagerException(String.format(Message.METADATA_IO_ERROR.getString(), file), ex);
+		}
+	}
+
+	/**
+	 * Writes the <code>reflect-config.json</code> content.
+	 *
+	 * @param writer Writer
+	 * @throws IOException
+	 */
+	public void writeReflectConfig(Writer writer) throws IOException {
+		writer.write("[\n"); //$NON-NLS-1$
+		writeTypes(writer, "name", "  ", new TreeSet<String>()); //$NON-NLS-1$ //$NON-NLS-2$
+		writer.write("]\n"); //$NON-NLS-1$
+		writer.flush();
+	}
+
+	/**
+	 * Writes the <code>proxy-config.json</code> content.
+	 *
+	 * @param writer Writer
+	 * @throws IOException
+	 */
+	public void writeProxyConfig(Writer writer) throws IOException {
+		writer.write("[\n"); //$NON-NLS-1$
+		TreeSet<String> proxies = getProxies();
+		int remaining = proxies.size();
+		for ( String proxy : proxies ) {
+			writer.write("  { \"interfaces\": [ " + Json.quote(proxy) + " ] }" //$NON-NLS-1$ //$NON-NLS-2$
+					+ (--remaining > 0 ? "," : "") + "\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		writer.write("]\n"); //$NON-NLS-1$
+		writer.flush();
+	}
+
+	/**
+	 * Writes the <code>reachability-metadata.json</code> content, the
+	 * proxies are part of it.
+	 *
+	 * @param writer Writer
+	 * @throws IOException
+	 */
+	public void writeReachabilityMetadata(Writer writer) throws IOException {
+		writer.write("{\n  \"reflection\": [\n"); //$NON-NLS-1$
+		writeTypes(writer, "type", "    ", getProxies()); //$NON-NLS-1$ //$NON-NLS-2$
+		writer.write("  ]\n}\n"); //$NON-NLS-1$
+		writer.flush();
+	}
+
+	private void writeTypes(Writer writer, String nameKey, String indent, TreeSet<String> proxies)
+			throws IOException {
+		Map<String, List<Method>> types = getTypes();
+		int remaining = types.size() + proxies.size();
+		for ( Map.Entry<String, List<Method>> type : types.entrySet() ) {
+			writer.write(indent + "{\n"); //$NON-NLS-1$
+			writer.write(indent + "  \"" + nameKey + "\": " + Json.quote(type.getKey()) + ",\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			if ( "name".equals(nameKey) ) { //$NON-NLS-1$
+				writer.write(indent + "  \"queryAllDeclaredMethods\": true,\n"); //$NON-NLS-1$
+			}
+			writer.write(indent + "  \"methods\": [\n"); //$NON-NLS-1$
+			List<Method> methods = type.getValue();
+			for ( int i = 0; i < methods.size(); i++ ) {
+				Method method = methods.get(i);
+				writer.write(indent + "    { \"name\": " + Json.quote(method == null ? "<init>" : method.getName()) //$NON-NLS-1$ //$NON-NLS-2$
+						+ ", \"parameterTypes\": ["); //$NON-NLS-1$
+				Class<?>[] parameterTypes = method == null ? new Class<?>[0] : method.getParameterTypes();
+				for ( int p = 0; p < parameterTypes.length; p++ ) {
+					writer.write((p == 0 ? " " : ", ") + Json.quote(typeName(parameterTypes[p]))); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				writer.write((parameterTypes.length == 0 ? "" : " ") + "] }" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						+ (i < methods.size() - 1 ? "," : "") + "\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			writer.write(indent + "  ]\n"); //$NON-NLS-1$
+			writer.write(indent + "}" + (--remaining > 0 ? "," : "") + "\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+		for ( String proxy : proxies ) {
+			writer.write(indent + "{ \"" + nameKey + "\": { \"proxy\": [ " + Json.quote(proxy) + " ] } }" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ (--remaining > 0 ? "," : "") + "\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	// reflected methods by class name, a null method for the no argument constructor
+	private Map<String, List<Method>> getTypes() {
+		Map<String, List<Method>> types = new TreeMap<String, List<Method>>();
+		for ( Method method : converterManager.getConverterMethods() ) {
+			Class<?> converterClass = method.getDeclaringClass();
+			if ( !types.containsKey(converterClass.getName()) && hasDefaultConstructor(converterClass) ) {
+				add(types, converterClass, null);
+			}
+			add(types, converterClass, method);
+		}
+		// the annotation is read when registering
+		for ( Method method : Converter.class.getDeclaredMethods() ) {
+			add(types, Converter.class, method);
+		}
+		// the auto mappings read the source and fill a new target
+		for ( PropertyMapper mapper : converterManager.getAutoMappers() ) {
+			addMapper(types, mapper);
+		}
+		for ( Class<?> targetType : converterManager.getTargetTypes() ) {
+			if ( targetType.isInterface() ) {
+				// a lazy conversion calls the converted object through the interface methods
+				for ( Method method : targetType.getMethods() ) {
+					if ( !Modifier.isStatic(method.getModifiers()) ) {
+						add(types, method.getDeclaringClass(), method);
+					}
+				}
+				// and the Object methods a proxy passes on
+				for ( Method method : Object.class.getMethods() ) {
+					if ( PROXIED_OBJECT_METHODS.contains(method.getName()) ) {
+						add(types, Object.class, method);
+					}
+				}
+			} else {
+				// copies of convertAll, for the beans that have properties to copy
+				try {
+					PropertyMapper copier = PropertyMapper.create(targetType, targetType);
+					if ( copier.getProperties().length > 0 ) {
+						addMapper(types, copier);
+					}
+				} catch ( ConverterManagerException ex ) {
+					// not a bean, the conversions are shared
+				}
+			}
+		}
+		for ( List<Method> methods : types.values() ) {
+			Collections.sort(methods, new Comparator<Method>() {
+				@Override
+				public int compare(Method o1, Method o2) {
+					return signature(o1).compareTo(signature(o2));
+				}
+			});
+		}
+		return types;
+	}
+
+	// interfaces converted to, each proxied on its own
+	private TreeSet<String> getProxies() {
+		TreeSet<String> proxies = new TreeSet<String>();
+		for ( Class<?> targetType : converterManager.getTargetTypes() ) {
+			if ( targetType.isInterface() ) {
+				proxies.add(targetType.getName());
+			}
+		}
+		return proxies;
+	}
+
+	private static void addMapper(Map<String, List<Method>> types, PropertyMapper mapper) {
+		for ( Method getter : mapper.getGetters() ) {
+			add(types, getter.getDeclaringClass(), getter);
+		}
+		add(types, mapper.getTargetType(), null);
+		for ( Method setter : mapper.getSetters() ) {
+			add(types, setter.getDeclaringClass(), setter);
+		}
+	}
+
+	private static void add(Map<String, List<Method>> types, Class<?> type, Method method) {
+		List<Method> methods = types.get(type.getName());
+		if ( methods == null ) {
+			methods = new ArrayList<Method>();
+			types.put(type.getName(), methods);
+		}
+		if ( !methods.contains(method) ) {
+			methods.add(method);
+		}
+	}
+
+	private static boolean hasDefaultConstructor(Class<?> type) {
+		try {
+			return Modifier.isPublic(type.getConstructor().getModifiers());
+		} catch ( NoSuchMethodException ex ) {
+			return false;
+		}
+	}
+
+	private static String signature(Method method) {
+		return method == null ? "" : method.toString(); //$NON-NLS-1$
+	}
+
+	// source form of the name, arrays end with []
+	private static String typeName(Class<?> type) {
+		if ( type.isArray() ) {
+			return typeName(type.getComponentType()) + "[]"; //$NON-NLS-1$
+		}
+		return type.getName();
+	}
+}
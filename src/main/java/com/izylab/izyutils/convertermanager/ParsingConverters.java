@@ -0,0 +1,455 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import com.izylab.izyutils.convertermanager.internal.Message;
+
+/**
+ * Parses numbers, booleans and dates from characters or bytes, without
+ * creating a <code>String</code>.
+ *
+ * <p><pre>
+ * converterManager.registerConverter(ParsingConverters.class);
+ * Long id = converterManager.convertSlice(buffer, offset, length, Long.class);
+ * </pre>
+ *
+ * <p>Any <code>CharSequence</code>, like a {@link CharSlice}, and the bytes
+ * between the position and the limit of a <code>ByteBuffer</code>, read as
+ * ISO-8859-1 characters, can be parsed. Integers take an optional sign,
+ * booleans are <code>true</code> or <code>false</code> in any case, and dates
+ * are UTC ISO-8601 dates, <code>yyyy-MM-dd</code>, optionally followed by
+ * <code>'T'HH:mm:ss</code>, milliseconds and a <code>Z</code>. Decimal
+ * numbers that can't be parsed exactly from their digits fall back to the
+ * JDK parser.
+ */
+public final class ParsingConverters {
+	// powers of ten a double holds exactly
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	// largest integers a double and a float hold exactly
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	private static final long MAX_EXACT_FLOAT_MANTISSA = 1L << 24;
+	// views of the bytes being parsed
+	private static final ThreadLocal<CharSlice> BYTES = new ThreadLocal<CharSlice>() {
+		@Override
+		protected CharSlice initialValue() {
+			return new CharSlice();
+		}
+	};
+
+	private ParsingConverters() {
+		/* static converters only */
+	}
+
+	/**
+	 * Parses a long.
+	 *
+	 * @param text Characters
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Long toLong(CharSequence text) {
+		return Long.valueOf(parseLong(text, Long.MIN_VALUE, Long.MAX_VALUE, Long.class));
+	}
+
+	/**
+	 * Parses an integer.
+	 *
+	 * @param text Characters
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Integer toInteger(CharSequence text) {
+		return Integer.valueOf((int) parseLong(text, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.class));
+	}
+
+	/**
+	 * Parses a short.
+	 *
+	 * @param text Characters
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Short toShort(CharSequence text) {
+		return Short.valueOf((short) parseLong(text, Short.MIN_VALUE, Short.MAX_VALUE, Short.class));
+	}
+
+	/**
+	 * Parses a byte.
+	 *
+	 * @param text Characters
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Byte toByte(CharSequence text) {
+		return Byte.valueOf((byte) parseLong(text, Byte.MIN_VALUE, Byte.MAX_VALUE, Byte.class));
+	}
+
+	/**
+	 * Parses a double.
+	 *
+	 * @param text Characters
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Double toDouble(CharSequence text) {
+		return Double.valueOf(parseDouble(text, false, Double.class));
+	}
+
+	/**
+	 * Parses a float.
+	 *
+	 * @param text Characters
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Float toFloat(CharSequence text) {
+		return Float.valueOf((float) parseDouble(text, true, Float.class));
+	}
+
+	/**
+	 * Parses a boolean.
+	 *
+	 * @param text Characters
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Boolean toBoolean(CharSequence text) {
+		if ( matches(text, "true") ) { //$NON-NLS-1$
+			return Boolean.TRUE;
+		}
+		if ( matches(text, "false") ) { //$NON-NLS-1$
+			return Boolean.FALSE;
+		}
+		throw failure(text, Boolean.class);
+	}
+
+	/**
+	 * Parses a UTC date.
+	 *
+	 * @param text Characters
+	 * @return Date
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Date toDate(CharSequence text) {
+		return new Date(parseDate(text));
+	}
+
+	/**
+	 * Parses a long.
+	 *
+	 * @param bytes Bytes between the position and the limit
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Long toLong(ByteBuffer bytes) {
+		return toLong(view(bytes));
+	}
+
+	/**
+	 * Parses an integer.
+	 *
+	 * @param bytes Bytes between the position and the limit
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Integer toInteger(ByteBuffer bytes) {
+		return toInteger(view(bytes));
+	}
+
+	/**
+	 * Parses a short.
+	 *
+	 * @param bytes Bytes between the position and the limit
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Short toShort(ByteBuffer bytes) {
+		return toShort(view(bytes));
+	}
+
+	/**
+	 * Parses a byte.
+	 *
+	 * @param bytes Bytes between the position and the limit
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Byte toByte(ByteBuffer bytes) {
+		return toByte(view(bytes));
+	}
+
+	/**
+	 * Parses a double.
+	 *
+	 * @param bytes Bytes between the position and the limit
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Double toDouble(ByteBuffer bytes) {
+		return toDouble(view(bytes));
+	}
+
+	/**
+	 * Parses a float.
+	 *
+	 * @param bytes Bytes between the position and the limit
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Float toFloat(ByteBuffer bytes) {
+		return toFloat(view(bytes));
+	}
+
+	/**
+	 * Parses a boolean.
+	 *
+	 * @param bytes Bytes between the position and the limit
+	 * @return Value
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Boolean toBoolean(ByteBuffer bytes) {
+		return toBoolean(view(bytes));
+	}
+
+	/**
+	 * Parses a UTC date.
+	 *
+	 * @param bytes Bytes between the position and the limit
+	 * @return Date
+	 * @throws ConversionFailedException
+	 */
+	@Converter
+	public static Date toDate(ByteBuffer bytes) {
+		return toDate(view(bytes));
+	}
+
+	// the parsers don't call each other with bytes, so one view per thread is enough
+	private static CharSlice view(ByteBuffer bytes) {
+		return BYTES.get().reset(bytes, bytes.position(), bytes.remaining());
+	}
+
+	private static long parseLong(CharSequence text, long min, long max, Class<?> type) {
+		int length = text.length();
+		int i = 0;
+		boolean negative = false;
+		if ( length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+') ) {
+			negative = text.charAt(0) == '-';
+			i++;
+		}
+		if ( i == length ) {
+			throw failure(text, type);
+		}
+		// accumulate negatively, the minimum has no positive counterpart
+		long limit = negative ? min : -max;
+		long value = 0;
+		for ( ; i < length; i++ ) {
+			int digit = text.charAt(i) - '0';
+			if ( digit < 0 || digit > 9 || value < (limit + digit) / 10 ) {
+				throw failure(text, type);
+			}
+			value = value * 10 - digit;
+		}
+		return negative ? value : -value;
+	}
+
+	// the digits give the value exactly in most cases, without going through a string
+	private static double parseDouble(CharSequence text, boolean single, Class<?> type) {
+		int length = text.length();
+		int i = 0;
+		boolean negative = false;
+		if ( length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+') ) {
+			negative = text.charAt(0) == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int exponent = 0;
+		int digits = 0;
+		boolean exact = true;
+		boolean fraction = false;
+		for ( ; i < length; i++ ) {
+			char c = text.charAt(i);
+			if ( c == '.' && !fraction ) {
+				fraction = true;
+			} else if ( c >= '0' && c <= '9' ) {
+				digits++;
+				if ( mantissa < MAX_EXACT_MANTISSA / 10 ) {
+					mantissa = mantissa * 10 + (c - '0');
+					if ( fraction ) {
+						exponent--;
+					}
+				} else {
+					exact = false;
+				}
+			} else {
+				break;
+			}
+		}
+		if ( i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E') && digits > 0 ) {
+			i++;
+			boolean negativePower = false;
+			if ( i < length && (text.charAt(i) == '-' || text.charAt(i) == '+') ) {
+				negativePower = text.charAt(i) == '-';
+				i++;
+			}
+			int powerStart = i;
+			int power = 0;
+			for ( ; i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9'; i++ ) {
+				if ( power < 10000 ) {
+					power = power * 10 + (text.charAt(i) - '0');
+				}
+			}
+			if ( i == powerStart ) {
+				throw failure(text, type);
+			}
+			exponent += negativePower ? -power : power;
+		}
+		if ( i < length || digits == 0 || !exact ) {
+			// NaN, Infinity, hexadecimal or too many digits
+			return parseDecimal(text, single, type);
+		}
+		// the mantissa and the power of ten are exact, so the result is rounded once
+		double value;
+		if ( mantissa == 0 ) {
+			value = 0;
+		} else if ( single ) {
+			if ( mantissa >= MAX_EXACT_FLOAT_MANTISSA || exponent < -10 || exponent > 10 ) {
+				return parseDecimal(text, single, type);
+			}
+			value = exponent >= 0 ? (float) mantissa * (float) POWERS_OF_TEN[exponent]
+					: (float) mantissa / (float) POWERS_OF_TEN[-exponent];
+		} else if ( exponent >= 0 && exponent < POWERS_OF_TEN.length ) {
+			value = mantissa * POWERS_OF_TEN[exponent];
+		} else if ( exponent < 0 && -exponent < POWERS_OF_TEN.length ) {
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			return parseDecimal(text, single, type);
+		}
+		return negative ? -value : value;
+	}
+
+	private static double parseDecimal(CharSequence text, boolean single, Class<?> type) {
+		try {
+			return single ? Float.parseFloat(text.toString()) : Double.parseDouble(text.toString());
+		} catch ( NumberFormatException ex ) {
+			throw failure(text, type);
+		}
+	}
+
+	private static long parseDate(CharSequence text) {
+		int length = text.length();
+		if ( length != 10 && length != 19 && length != 20 && length != 23 && length != 24 ) {
+			throw failure(text, Date.class);
+		}
+		int year = digits(text, 0, 4);
+		int month = digits(text, 5, 2);
+		int day = digits(text, 8, 2);
+		if ( text.charAt(4) != '-' || text.charAt(7) != '-' || month < 1 || month > 12
+				|| day < 1 || day > daysInMonth(year, month) ) {
+			throw failure(text, Date.class);
+		}
+		long millis = daysSinceEpoch(year, month, day) * 86400000L;
+		if ( length == 10 ) {
+			return millis;
+		}
+		int hour = digits(text, 11, 2);
+		int minute = digits(text, 14, 2);
+		int second = digits(text, 17, 2);
+		if ( text.charAt(10) != 'T' || text.charAt(13) != ':' || text.charAt(16) != ':'
+				|| hour > 23 || minute > 59 || second > 59 ) {
+			throw failure(text, Date.class);
+		}
+		millis += hour * 3600000L + minute * 60000L + second * 1000L;
+		int end = 19;
+		if ( length >= 23 ) {
+			if ( text.charAt(19) != '.' ) {
+				throw failure(text, Date.class);
+			}
+			millis += digits(text, 20, 3);
+			end = 23;
+		}
+		if ( length > end && text.charAt(end) != 'Z' ) {
+			throw failure(text, Date.class);
+		}
+		return millis;
+	}
+
+	private static int digits(CharSequence text, int offset, int count) {
+		int value = 0;
+		for ( int i = offset; i < offset + count; i++ ) {
+			int digit = text.charAt(i) - '0';
+			if ( digit < 0 || digit > 9 ) {
+				throw failure(text, Date.class);
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static int daysInMonth(int year, int month) {
+		if ( month == 2 ) {
+			return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+		}
+		return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+	}
+
+	// days of the proleptic Gregorian calendar date since 1970-01-01
+	private static long daysSinceEpoch(int year, int month, int day) {
+		int y = month <= 2 ? year - 1 : year;
+		int era = y / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - 719468;
+	}
+
+	private static boolean matches(CharSequence text, String expected) {
+		if ( text.length() != expected.length() ) {
+			return false;
+		}
+		for ( int i = 0; i < expected.length(); i++ ) {
+			if ( Character.toLowerCase(text.charAt(i)) != expected.charAt(i) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static ConversionFailedException failure(CharSequence text, Class<?> type) {
+		return new ConversionFailedException(String.format(Message.PARSE_FAILED.getString(), text, type));
+	}
+}
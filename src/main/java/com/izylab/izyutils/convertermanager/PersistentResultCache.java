@@ -0,0 +1,633 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import com.izylab.izyutils.convertermanager.internal.Message;
+import com.izylab.izyutils.convertermanager.internal.WeakTypeMap;
+
+/**
+ * Result cache of pure converters kept in a memory mapped file, so it
+ * survives restarts.
+ *
+ * <p><pre>
+ * &#064;Converter(pure = true)
+ * public RateDto convert(RateKey key) {
+ *   ...
+ * }
+ *
+ * PersistentResultCache cache = new PersistentResultCache(new File("rates.cache"), 64 * 1024 * 1024);
+ * converterManager.setResultCache(cache);
+ * </pre>
+ *
+ * <p>Entries are keyed by the converter, target type, source and
+ * arguments, and hold the serialized result, so only serializable values
+ * are cached. Strings, boxed primitives and enums are written to the key
+ * directly, other values are serialized. Each entry also holds a
+ * fingerprint of the converter class bytes, entries written by a different
+ * version of the converter are ignored. The file is a circular log of the
+ * given size, the oldest entries are overwritten when it is full.
+ *
+ * <p>Only the key hashes and positions are kept on the heap, keys and
+ * results stay in the mapped file. Lookups share a read lock while they
+ * copy the result bytes, results are deserialized outside of it.
+ *
+ * <p>Every entry has a CRC. When the file is opened the entries are checked
+ * oldest first, the first damaged one and everything written after it are
+ * dropped, as left by a crash in the middle of a write.
+ */
+public class PersistentResultCache implements Closeable {
+	private static final Logger log = Logger.getLogger(PersistentResultCache.class);
+
+	/** Returned by <code>get</code> when nothing is cached */
+	static final Object MISS = new Object();
+
+	private static final int MAGIC = 0x434d5243; // CMRC
+	private static final int VERSION = 2;
+	// magic, version, capacity, head, tail, count
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 8;
+	private static final int HEAD_OFFSET = 16;
+	private static final int TAIL_OFFSET = 24;
+	private static final int COUNT_OFFSET = 32;
+	// length, crc of the rest of the record, key hash, fingerprint, key length, value length
+	private static final int RECORD_HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4;
+	private static final int CRC_OFFSET = 4;
+	private static final int HASH_OFFSET = 8;
+	private static final int FINGERPRINT_OFFSET = 16;
+	private static final int KEY_LENGTH_OFFSET = 24;
+	private static final int VALUE_LENGTH_OFFSET = 28;
+
+	// key values written directly
+	private static final byte KEY_NULL = 0;
+	private static final byte KEY_STRING = 1;
+	private static final byte KEY_LONG = 2;
+	private static final byte KEY_INTEGER = 3;
+	private static final byte KEY_SHORT = 4;
+	private static final byte KEY_BYTE = 5;
+	private static final byte KEY_DOUBLE = 6;
+	private static final byte KEY_FLOAT = 7;
+	private static final byte KEY_BOOLEAN = 8;
+	private static final byte KEY_CHARACTER = 9;
+	private static final byte KEY_ENUM = 10;
+	private static final byte KEY_SERIALIZED = 11;
+
+	private static final WeakTypeMap<Long> fingerprints = new WeakTypeMap<Long>();
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final MappedByteBuffer buffer;
+	private final long capacity;
+	// the index and the positions, the file contents are copied out under the read lock
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Long, Integer> index = new HashMap<Long, Integer>();
+	private int head;
+	private int tail;
+	private int count;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private boolean closed;
+
+	/**
+	 * Opens the cache file, or creates it.
+	 *
+	 * <p>An existing file of a different size or format is emptied.
+	 *
+	 * @param file Cache file
+	 * @param maxSize Size of the file in bytes, at most 2 GB
+	 * @throws ConverterManagerException
+	 */
+	public PersistentResultCache(File file, long maxSize) {
+		if ( maxSize <= HEADER_SIZE + RECORD_HEADER_SIZE || maxSize > Integer.MAX_VALUE ) {
+			throw new ConverterManagerException(String.format(Message.CACHE_INVALID_SIZE.getString(),
+					Long.valueOf(maxSize)));
+		}
+		this.file = file;
+		this.capacity = maxSize - HEADER_SIZE;
+		try {
+			raf = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+			boolean existing = raf.length() == maxSize;
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, maxSize);
+			if ( existing && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+					&& buffer.getLong(8) == capacity ) {
+				head = (int) buffer.getLong(HEAD_OFFSET);
+				tail = (int) buffer.getLong(TAIL_OFFSET);
+				count = (int) buffer.getLong(COUNT_OFFSET);
+				rebuildIndex();
+			} else {
+				buffer.putInt(0, MAGIC);
+				buffer.putInt(4, VERSION);
+				buffer.putLong(8, capacity);
+				writeHeader();
+			}
+		} catch ( IOException ex ) {
+			throw new ConverterManagerException(String.format(Message.CACHE_IO_ERROR.getString(), file), ex);
+		}
+	}
+
+	// positions of the records kept in the file, oldest first, up to the first damaged one
+	private void rebuildIndex() {
+		if ( head < 0 || head > capacity || tail < 0 || tail >= capacity || count < 0 ) {
+			log.warn(String.format(Message.CACHE_DAMAGED.getString(), Integer.valueOf(count), file));
+			head = 0;
+			tail = 0;
+			count = 0;
+			writeHeader();
+			return;
+		}
+		CRC32 crc = new CRC32();
+		int position = tail;
+		boolean wrapped = false;
+		int valid = 0;
+		for ( ; valid < count; valid++ ) {
+			int start = recordStart(position);
+			if ( start != position ) {
+				// the log wraps around once, and only when it doesn't start at 0
+				if ( wrapped || tail == 0 ) {
+					break;
+				}
+				wrapped = true;
+				position = start;
+			}
+			int length = checkedLength(position, wrapped ? tail : capacity, crc);
+			if ( length < 0 ) {
+				break;
+			}
+			index.put(Long.valueOf(buffer.getLong(address(position) + HASH_OFFSET)), Integer.valueOf(position));
+			position += length;
+		}
+		if ( valid < count ) {
+			log.warn(String.format(Message.CACHE_DAMAGED.getString(), Integer.valueOf(count - valid), file));
+			count = valid;
+			head = count == 0 ? 0 : position;
+			tail = count == 0 ? 0 : tail;
+			writeHeader();
+		}
+	}
+
+	// length of the record at a position, -1 when it doesn't end before the limit or fails its crc
+	private int checkedLength(int position, long limit, CRC32 crc) {
+		if ( limit - position < RECORD_HEADER_SIZE ) {
+			return -1;
+		}
+		int address = address(position);
+		int length = buffer.getInt(address);
+		int keyLength = buffer.getInt(address + KEY_LENGTH_OFFSET);
+		int valueLength = buffer.getInt(address + VALUE_LENGTH_OFFSET);
+		if ( length < RECORD_HEADER_SIZE || length > limit - position || keyLength < 0 || valueLength < 0
+				|| (long) RECORD_HEADER_SIZE + keyLength + valueLength != length ) {
+			return -1;
+		}
+		byte[] bytes = new byte[length - HASH_OFFSET];
+		read(address + HASH_OFFSET, bytes);
+		crc.reset();
+		crc.update(bytes, 0, bytes.length);
+		return (int) crc.getValue() == buffer.getInt(address + CRC_OFFSET) ? length : -1;
+	}
+
+	/**
+	 * Number of cached results.
+	 *
+	 * @return Entries
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return index.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Number of lookups that found a result.
+	 *
+	 * @return Hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Number of lookups that found nothing.
+	 *
+	 * @return Misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Removes all the cached results.
+	 */
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			index.clear();
+			head = 0;
+			tail = 0;
+			count = 0;
+			writeHeader();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes the cache to disk and releases the file. Later lookups miss.
+	 *
+	 * @throws ConverterManagerException
+	 */
+	@Override
+	public void close() {
+		lock.writeLock().lock();
+		try {
+			if ( closed ) {
+				return;
+			}
+			closed = true;
+			index.clear();
+			buffer.force();
+			raf.close();
+		} catch ( IOException ex ) {
+			throw new ConverterManagerException(String.format(Message.CACHE_IO_ERROR.getString(), file), ex);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Key of a conversion.
+	 *
+	 * @return Key, null when the source or an argument is not serializable
+	 */
+	static byte[] key(Class<?> converterClass, Class<?> targetType, Object source, Object[] args) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeUTF(converterClass.getName());
+			out.writeUTF(targetType.getName());
+			out.writeInt(args.length);
+			if ( !writeKeyValue(out, source) ) {
+				return null;
+			}
+			for ( Object arg : args ) {
+				if ( !writeKeyValue(out, arg) ) {
+					return null;
+				}
+			}
+			out.close();
+		} catch ( IOException ex ) {
+			// not thrown by a byte array
+			return null;
+		}
+		return bytes.toByteArray();
+	}
+
+	// equal values give equal bytes, false when the value can't be written
+	private static boolean writeKeyValue(DataOutputStream out, Object value) throws IOException {
+		Class<?> type = value == null ? null : value.getClass();
+		if ( type == null ) {
+			out.writeByte(KEY_NULL);
+		} else if ( type == String.class ) {
+			String string = (String) value;
+			out.writeByte(KEY_STRING);
+			out.writeInt(string.length());
+			out.writeChars(string);
+		} else if ( type == Long.class ) {
+			out.writeByte(KEY_LONG);
+			out.writeLong(((Long) value).longValue());
+		} else if ( type == Integer.class ) {
+			out.writeByte(KEY_INTEGER);
+			out.writeInt(((Integer) value).intValue());
+		} else if ( type == Short.class ) {
+			out.writeByte(KEY_SHORT);
+			out.writeShort(((Short) value).shortValue());
+		} else if ( type == Byte.class ) {
+			out.writeByte(KEY_BYTE);
+			out.writeByte(((Byte) value).byteValue());
+		} else if ( type == Double.class ) {
+			// same bits as Double.equals
+			out.writeByte(KEY_DOUBLE);
+			out.writeLong(Double.doubleToLongBits(((Double) value).doubleValue()));
+		} else if ( type == Float.class ) {
+			out.writeByte(KEY_FLOAT);
+			out.writeInt(Float.floatToIntBits(((Float) value).floatValue()));
+		} else if ( type == Boolean.class ) {
+			out.writeByte(KEY_BOOLEAN);
+			out.writeBoolean(((Boolean) value).booleanValue());
+		} else if ( type == Character.class ) {
+			out.writeByte(KEY_CHARACTER);
+			out.writeChar(((Character) value).charValue());
+		} else if ( value instanceof Enum ) {
+			Enum<?> constant = (Enum<?>) value;
+			out.writeByte(KEY_ENUM);
+			out.writeUTF(constant.getDeclaringClass().getName());
+			out.writeUTF(constant.name());
+		} else if ( value instanceof Serializable ) {
+			byte[] serialized = serialize(value);
+			if ( serialized == null ) {
+				return false;
+			}
+			out.writeByte(KEY_SERIALIZED);
+			out.writeInt(serialized.length);
+			out.write(serialized);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Looks up a cached result.
+	 *
+	 * @param key Key
+	 * @param converterClass Converter class
+	 * @return Result, or <code>MISS</code>
+	 */
+	Object get(byte[] key, Class<?> converterClass) {
+		long fingerprint = fingerprint(converterClass);
+		Long hash = Long.valueOf(hash(key));
+		byte[] value = null;
+		lock.readLock().lock();
+		try {
+			Integer position = closed ? null : index.get(hash);
+			if ( position != null ) {
+				int address = address(position.intValue());
+				if ( buffer.getLong(address + FINGERPRINT_OFFSET) == fingerprint
+						&& buffer.getInt(address + KEY_LENGTH_OFFSET) == key.length
+						&& keyEquals(address + RECORD_HEADER_SIZE, key) ) {
+					value = new byte[buffer.getInt(address + VALUE_LENGTH_OFFSET)];
+					read(address + RECORD_HEADER_SIZE + key.length, value);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		if ( value != null ) {
+			try {
+				Object result = new ConverterObjectInputStream(value, converterClass.getClassLoader()).readObject();
+				hits.incrementAndGet();
+				return result;
+			} catch ( Exception ex ) {
+				log.warn(String.format(Message.CACHE_UNREADABLE.getString(), converterClass), ex);
+			}
+		}
+		misses.incrementAndGet();
+		return MISS;
+	}
+
+	private boolean keyEquals(int address, byte[] key) {
+		for ( int i = 0; i < key.length; i++ ) {
+			if ( buffer.get(address + i) != key[i] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Caches a result, when it is serializable and fits.
+	 *
+	 * @param key Key
+	 * @param converterClass Converter class
+	 * @param result Result
+	 */
+	void put(byte[] key, Class<?> converterClass, Object result) {
+		if ( result != null && !(result instanceof Serializable) ) {
+			return;
+		}
+		byte[] value = serialize(result);
+		if ( value == null ) {
+			return;
+		}
+		long length = (long) RECORD_HEADER_SIZE + key.length + value.length;
+		if ( length > capacity - 4 ) {
+			return;
+		}
+		// the record is built and checksummed before taking the lock
+		long hash = hash(key);
+		ByteBuffer record = ByteBuffer.allocate((int) length);
+		record.putInt((int) length);
+		record.putInt(0);
+		record.putLong(hash);
+		record.putLong(fingerprint(converterClass));
+		record.putInt(key.length);
+		record.putInt(value.length);
+		record.put(key);
+		record.put(value);
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), HASH_OFFSET, (int) length - HASH_OFFSET);
+		record.putInt(CRC_OFFSET, (int) crc.getValue());
+		lock.writeLock().lock();
+		try {
+			if ( closed ) {
+				return;
+			}
+			int position = reserve((int) length);
+			write(address(position), record.array());
+			index.put(Long.valueOf(hash), Integer.valueOf(position));
+			head = position + (int) length;
+			count++;
+			writeHeader();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// find room for a record at the head, evicting the oldest ones
+	private int reserve(int length) {
+		while ( true ) {
+			if ( count == 0 ) {
+				head = 0;
+				tail = 0;
+			}
+			if ( head > tail || count == 0 ) {
+				// used space is [tail, head), room after the head
+				if ( (long) head + length <= capacity ) {
+					return head;
+				}
+				// wrap around, leaving a marker when there is room for it
+				if ( capacity - head >= 4 ) {
+					buffer.putInt(address(head), 0);
+				}
+				head = 0;
+			} else {
+				// used space is [tail, end) and [0, head), room between the head and the tail
+				if ( head + length <= tail ) {
+					return head;
+				}
+				evictOldest();
+			}
+		}
+	}
+
+	private void evictOldest() {
+		int position = recordStart(tail);
+		if ( position != tail ) {
+			// tail was on the wrap marker
+			tail = position;
+			return;
+		}
+		Long hash = Long.valueOf(buffer.getLong(address(position) + HASH_OFFSET));
+		Integer indexed = index.get(hash);
+		if ( indexed != null && indexed.intValue() == position ) {
+			index.remove(hash);
+		}
+		tail = position + buffer.getInt(address(position));
+		count--;
+	}
+
+	// skip the wrap marker
+	private int recordStart(int position) {
+		if ( capacity - position < RECORD_HEADER_SIZE || buffer.getInt(address(position)) == 0 ) {
+			return 0;
+		}
+		return position;
+	}
+
+	private void writeHeader() {
+		buffer.putLong(HEAD_OFFSET, head);
+		buffer.putLong(TAIL_OFFSET, tail);
+		buffer.putLong(COUNT_OFFSET, count);
+	}
+
+	private static int address(int position) {
+		return HEADER_SIZE + position;
+	}
+
+	private void read(int address, byte[] bytes) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(address);
+		view.get(bytes);
+	}
+
+	private void write(int address, byte[] bytes) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(address);
+		view.put(bytes);
+	}
+
+	private static byte[] serialize(Object value) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(value);
+			out.close();
+			return bytes.toByteArray();
+		} catch ( IOException ex ) {
+			// a field that isn't serializable
+			return null;
+		}
+	}
+
+	// 64 bit FNV-1a
+	private static long hash(byte[] bytes) {
+		long hash = 0xcbf29ce484222325L;
+		for ( byte b : bytes ) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	// CRC of the class file, or of the method signatures when it can't be read
+	static long fingerprint(Class<?> converterClass) {
+		Long fingerprint = fingerprints.get(converterClass, null);
+		if ( fingerprint != null ) {
+			return fingerprint.longValue();
+		}
+		CRC32 crc = new CRC32();
+		InputStream in = converterClass.getResourceAsStream(
+				converterClass.getName().substring(converterClass.getName().lastIndexOf('.') + 1) + ".class"); //$NON-NLS-1$
+		try {
+			if ( in == null ) {
+				throw new IOException();
+			}
+			byte[] chunk = new byte[4096];
+			int read;
+			while ( (read = in.read(chunk)) > 0 ) {
+				crc.update(chunk, 0, read);
+			}
+		} catch ( IOException ex ) {
+			crc.reset();
+			Method[] methods = converterClass.getDeclaredMethods();
+			String[] signatures = new String[methods.length];
+			for ( int i = 0; i < methods.length; i++ ) {
+				signatures[i] = methods[i].toString();
+			}
+			Arrays.sort(signatures);
+			for ( String signature : signatures ) {
+				crc.update(signature.getBytes());
+			}
+		} finally {
+			if ( in != null ) {
+				try {
+					in.close();
+				} catch ( IOException ex ) {
+					/* ignore */
+				}
+			}
+		}
+		fingerprint = Long.valueOf(crc.getValue());
+		fingerprints.put(converterClass, null, fingerprint);
+		return fingerprint.longValue();
+	}
+
+	// resolves the result classes with the converter's class loader
+	private static class ConverterObjectInputStream extends ObjectInputStream {
+		private final ClassLoader classLoader;
+
+		ConverterObjectInputStream(byte[] bytes, ClassLoader classLoader) throws IOException {
+			super(new ByteArrayInputStream(bytes));
+			this.classLoader = classLoader;
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			try {
+				return Class.forName(desc.getName(), false, classLoader);
+			} catch ( ClassNotFoundException ex ) {
+				return super.resolveClass(desc);
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the registered converters and how chosen conversions are looked
+ * up, as text or JSON.
+ *
+ * <p><pre>
+ * new RegistryReport(converterManager)
+ *     .explain(ArrayList.class, OrderDto.class)
+ *     .writeText(new PrintWriter(System.out));
+ * </pre>
+ *
+ * <p>Use it to find the converters that are never used, and the source
+ * classes that take many lookups before their converter is found.
+ *
+ * @see ConverterManager#describeConverters()
+ * @see ConverterManager#explain(Class, Class)
+ */
+public class RegistryReport {
+	private final ConverterManager converterManager;
+	private final List<Class<?>[]> explained = new ArrayList<Class<?>[]>();
+
+	/**
+	 * Creates a report.
+	 *
+	 * @param converterManager Converter manager with the converters registered
+	 */
+	public RegistryReport(ConverterManager converterManager) {
+		this.converterManager = converterManager;
+	}
+
+	/**
+	 * Adds the explanation of a conversion to the report.
+	 *
+	 * @param sourceType Source class
+	 * @param targetType Target type
+	 * @return This report
+	 */
+	public RegistryReport explain(Class<?> sourceType, Class<?> targetType) {
+		explained.add(new Class<?>[] { sourceType, targetType });
+		return this;
+	}
+
+	/**
+	 * Writes the report as text.
+	 *
+	 * @param writer Writer
+	 * @throws IOException
+	 */
+	public void writeText(Writer writer) throws IOException {
+		List<ConverterDescription> converters = converterManager.describeConverters();
+		int issues = 0;
+		for ( ConverterDescription converter : converters ) {
+			issues += converter.getIssues().isEmpty() ? 0 : 1;
+		}
+		writer.write("Converters: " + converters.size() + ", with issues: " + issues + "\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for ( ConverterDescription converter : converters ) {
+			writer.write("  " + converter + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		for ( Class<?>[] types : explained ) {
+			writer.write(converterManager.explain(types[0], types[1]).toString());
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Writes the report as JSON.
+	 *
+	 * @param writer Writer
+	 * @throws IOException
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		writer.write("{\n  \"converters\": [\n"); //$NON-NLS-1$
+		List<ConverterDescription> converters = converterManager.describeConverters();
+		for ( int i = 0; i < converters.size(); i++ ) {
+			writer.write("    " + converters.get(i).toJson() + (i < converters.size() - 1 ? ",\n" : "\n")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		writer.write("  ],\n  \"explanations\": [\n"); //$NON-NLS-1$
+		for ( int i = 0; i < explained.size(); i++ ) {
+			ConversionExplanation explanation = converterManager.explain(explained.get(i)[0], explained.get(i)[1]);
+			writer.write("    " + explanation.toJson() + (i < explained.size() - 1 ? ",\n" : "\n")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		writer.write("  ]\n}\n"); //$NON-NLS-1$
+		writer.flush();
+	}
+}
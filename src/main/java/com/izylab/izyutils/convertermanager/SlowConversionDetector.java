@@ -0,0 +1,157 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import com.izylab.izyutils.convertermanager.internal.ConverterTypes;
+import com.izylab.izyutils.convertermanager.internal.Message;
+
+/**
+ * Conversion listener logging conversions slower than a threshold.
+ *
+ * <p><pre>
+ * SlowConversionDetector detector = new SlowConversionDetector(50, TimeUnit.MILLISECONDS);
+ * detector.setThreshold(Quote.class, QuoteDto.class, 5, TimeUnit.MILLISECONDS);
+ * converterManager.addConversionListener(detector);
+ * </pre>
+ *
+ * <p>Slow conversions are logged as warnings to the
+ * <code>com.izylab.izyutils.convertermanager.SlowConversionDetector</code>
+ * logger. Each source and target pair is reported at most once per report
+ * interval, conversions skipped in between are counted in the next report.
+ *
+ * <p>A threshold set for the exact source type applies first, then the one
+ * set for the source type the converter was registered for, so a threshold
+ * of an interface or a superclass covers its implementations.
+ */
+public class SlowConversionDetector implements ConversionListener {
+	private static final Logger log = Logger.getLogger(SlowConversionDetector.class);
+
+	private final long defaultThreshold;
+	private final ConcurrentMap<ConverterTypes, Long> thresholds = new ConcurrentHashMap<ConverterTypes, Long>();
+	private final ConcurrentMap<ConverterTypes, Report> reports = new ConcurrentHashMap<ConverterTypes, Report>();
+	private volatile long reportInterval = TimeUnit.SECONDS.toNanos(10);
+
+	/**
+	 * Creates a detector.
+	 *
+	 * @param threshold Threshold used for pairs without their own
+	 * @param unit Threshold unit
+	 * @throws ConverterManagerException
+	 */
+	public SlowConversionDetector(long threshold, TimeUnit unit) {
+		this.defaultThreshold = toNanos(threshold, unit);
+	}
+
+	/**
+	 * Set the threshold of a source and target pair.
+	 *
+	 * @param sourceType Source type
+	 * @param targetType Target type
+	 * @param threshold Threshold
+	 * @param unit Threshold unit
+	 * @throws ConverterManagerException
+	 */
+	public void setThreshold(Class<?> sourceType, Class<?> targetType, long threshold, TimeUnit unit) {
+		thresholds.put(new ConverterTypes(sourceType, targetType), Long.valueOf(toNanos(threshold, unit)));
+	}
+
+	/**
+	 * Set the minimum time between two reports for the same pair.
+	 *
+	 * @param interval Interval, zero logs every slow conversion
+	 * @param unit Interval unit
+	 * @throws ConverterManagerException
+	 */
+	public void setReportInterval(long interval, TimeUnit unit) {
+		this.reportInterval = toNanos(interval, unit);
+	}
+
+	@Override
+	public void beforeConversion(ConversionEvent event) {
+		/* nothing to do until the conversion is done */
+	}
+
+	@Override
+	public void afterConversion(ConversionEvent event, Object result) {
+		check(event, Message.SLOW_CONVERSION);
+	}
+
+	@Override
+	public void conversionFailed(ConversionEvent event, RuntimeException cause) {
+		check(event, Message.SLOW_CONVERSION_FAILED);
+	}
+
+	private void check(ConversionEvent event, Message message) {
+		ConverterTypes types = new ConverterTypes(event.getConverterSourceType(), event.getTargetType());
+		Long pairThreshold = event.isHierarchyFallback()
+				? thresholds.get(new ConverterTypes(event.getSourceType(), event.getTargetType())) : null;
+		if ( pairThreshold == null ) {
+			pairThreshold = thresholds.get(types);
+		}
+		long threshold = pairThreshold == null ? defaultThreshold : pairThreshold.longValue();
+		long elapsed = event.getElapsedNanos();
+		if ( elapsed < threshold || !log.isEnabledFor(Level.WARN) ) {
+			return;
+		}
+
+		Report report = reports.get(types);
+		if ( report == null ) {
+			Report created = new Report(event.getStartNanos() - reportInterval);
+			report = reports.putIfAbsent(types, created);
+			if ( report == null ) {
+				report = created;
+			}
+		}
+		long now = event.getStartNanos() + elapsed;
+		long last = report.lastReport.get();
+		if ( now - last < reportInterval || !report.lastReport.compareAndSet(last, now) ) {
+			report.suppressed.incrementAndGet();
+			return;
+		}
+		log.warn(String.format(message.getString(), event.getSourceType().getName(),
+				event.getTargetType().getName(), event.getConverterClass().getName(),
+				Long.valueOf(TimeUnit.NANOSECONDS.toMillis(elapsed)),
+				Long.valueOf(TimeUnit.NANOSECONDS.toMillis(threshold)),
+				Long.valueOf(report.suppressed.getAndSet(0))));
+	}
+
+	private static long toNanos(long value, TimeUnit unit) {
+		if ( value < 0 || unit == null ) {
+			throw new ConverterManagerException(String.format(Message.INVALID_DURATION.getString(),
+					Long.valueOf(value), unit));
+		}
+		return unit.toNanos(value);
+	}
+
+	// reporting state of a pair
+	private static class Report {
+		final AtomicLong lastReport;
+		final AtomicLong suppressed = new AtomicLong();
+
+		Report(long lastReport) {
+			this.lastReport = new AtomicLong(lastReport);
+		}
+	}
+}
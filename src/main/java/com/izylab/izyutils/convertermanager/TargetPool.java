@@ -0,0 +1,121 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.izylab.izyutils.convertermanager.internal.Message;
+
+/**
+ * Bounded pool of reusable conversion targets.
+ *
+ * <p>Used with <code>ConverterManager.convertPooled</code> to recycle
+ * target objects in conversion loops.
+ *
+ * <p><pre>
+ * TargetPool&lt;QuoteDto&gt; pool = new TargetPool&lt;QuoteDto&gt;(QuoteDto.class, 64);
+ * QuoteDto dto = converterManager.convertPooled(quote, pool);
+ * publish(dto);
+ * pool.release(dto);
+ * </pre>
+ *
+ * <p>New targets are created with the public no argument constructor when
+ * the pool is empty. Released targets beyond the capacity are dropped.
+ *
+ * @param <T> Target type
+ */
+public class TargetPool<T> {
+	private final Class<T> type;
+	private final int capacity;
+	private final Queue<T> idle = new ConcurrentLinkedQueue<T>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Creates a pool.
+	 *
+	 * @param type Target type, must have a public no argument constructor
+	 * @param capacity Maximum number of idle targets kept
+	 * @throws ConverterManagerException
+	 */
+	public TargetPool(Class<T> type, int capacity) {
+		if ( type == null ) {
+			throw new ConversionFailedException(Message.CONV_NULL_TARGET.getString());
+		}
+		if ( capacity < 1 ) {
+			throw new ConverterManagerException(String.format(Message.POOL_INVALID_CAPACITY.getString(),
+					Integer.valueOf(capacity)));
+		}
+		this.type = type;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Takes an idle target, or creates a new one.
+	 *
+	 * @return Target
+	 * @throws ConverterManagerException
+	 */
+	public T acquire() {
+		T target = idle.poll();
+		if ( target != null ) {
+			size.decrementAndGet();
+			return target;
+		}
+		try {
+			return type.newInstance();
+		} catch ( Exception ex ) {
+			throw new ConverterManagerException(String.format(Message.POOL_CANNOT_CREATE.getString(), type), ex);
+		}
+	}
+
+	/**
+	 * Gives a target back to the pool.
+	 *
+	 * @param target Target, ignored when null
+	 */
+	public void release(T target) {
+		if ( target == null ) {
+			return;
+		}
+		// reserve a spot first so the pool never grows past capacity
+		if ( size.incrementAndGet() > capacity ) {
+			size.decrementAndGet();
+			return;
+		}
+		idle.offer(target);
+	}
+
+	/**
+	 * Number of idle targets.
+	 *
+	 * @return Idle targets
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * Target type.
+	 *
+	 * @return Target type
+	 */
+	public Class<T> getType() {
+		return type;
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import com.izylab.izyutils.convertermanager.internal.Message;
+
+/**
+ * Target type with its type parameters.
+ *
+ * <p>Create an anonymous subclass to capture the type.
+ *
+ * <p><pre>
+ * List&lt;OrderDto&gt; dtos = converterManager.convert(orders, new TypeRef&lt;List&lt;OrderDto&gt;&gt;() {});
+ * </pre>
+ *
+ * @param <T> Target type
+ * @see ConverterManager#convert(Object, TypeRef)
+ */
+public abstract class TypeRef<T> {
+	private final Type type;
+
+	/**
+	 * Captures the type argument of the subclass.
+	 *
+	 * @throws ConverterManagerException when the subclass doesn't give the type argument
+	 */
+	protected TypeRef() {
+		Type superclass = getClass().getGenericSuperclass();
+		if ( !(superclass instanceof ParameterizedType) ) {
+			throw new ConverterManagerException(Message.TYPE_REF_NOT_PARAMETERIZED.getString());
+		}
+		this.type = ((ParameterizedType) superclass).getActualTypeArguments()[0];
+	}
+
+	/**
+	 * Get the captured type.
+	 *
+	 * @return Type
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof TypeRef<?> && type.equals(((TypeRef<?>) obj).type);
+	}
+
+	@Override
+	public int hashCode() {
+		return type.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return type.toString();
+	}
+}
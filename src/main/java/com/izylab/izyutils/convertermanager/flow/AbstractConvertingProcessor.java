@@ -0,0 +1,382 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.flow;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.izylab.izyutils.convertermanager.ConversionFailedException;
+import com.izylab.izyutils.convertermanager.ConverterManager;
+import com.izylab.izyutils.convertermanager.ConverterManagerException;
+import com.izylab.izyutils.convertermanager.internal.Message;
+
+/**
+ * Converting processor engine.
+ *
+ * <p>Items are converted on the executor in the order they arrive and
+ * published in that same order. Upstream is only asked for what downstream
+ * requested, and never for more than the in-flight limit.
+ *
+ * @param <R> Conversion target type
+ * @param <O> Published item type
+ */
+abstract class AbstractConvertingProcessor<R, O> implements Flow.Processor<Object, O> {
+	private final ConverterManager converterManager;
+	private final Class<R> targetType;
+	private volatile Object[] args = new Object[0];
+	private final Executor executor;
+	private final int maxInFlight;
+	private final int itemsPerRequest;
+	private volatile ConversionErrorHandler errorHandler;
+
+	// conversions in arrival order, taken off the head once done
+	private final Queue<Slot<R>> slots = new ConcurrentLinkedQueue<Slot<R>>();
+	private final AtomicInteger queued = new AtomicInteger();
+	// items requested upstream but not received yet
+	private final AtomicLong upstreamPending = new AtomicLong();
+	// outstanding downstream demand
+	private final AtomicLong demand = new AtomicLong();
+	// drain loop guard
+	private final AtomicInteger wip = new AtomicInteger();
+
+	private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<Flow.Subscription>();
+	private final AtomicReference<Flow.Subscriber<? super O>> downstream = new AtomicReference<Flow.Subscriber<? super O>>();
+	private volatile boolean upstreamDone;
+	private volatile Throwable upstreamError;
+	private volatile boolean cancelled;
+	// only touched from the drain loop
+	private boolean terminated;
+	private boolean outputReady;
+
+	AbstractConvertingProcessor(ConverterManager converterManager, Class<R> targetType, Executor executor,
+			int maxInFlight, int itemsPerRequest) {
+		if ( converterManager == null ) {
+			throw new ConverterManagerException(Message.STREAM_NULL_MANAGER.getString());
+		}
+		if ( targetType == null ) {
+			throw new ConversionFailedException(Message.CONV_NULL_TARGET.getString());
+		}
+		if ( maxInFlight < 1 ) {
+			throw new ConverterManagerException(String.format(Message.STREAM_INVALID_LIMIT.getString(),
+					Integer.valueOf(maxInFlight)));
+		}
+		this.converterManager = converterManager;
+		this.targetType = targetType;
+		this.executor = executor == null ? new CallerExecutor() : executor;
+		this.maxInFlight = maxInFlight;
+		this.itemsPerRequest = itemsPerRequest;
+	}
+
+	/**
+	 * Sets the side channel for failed conversions.
+	 *
+	 * <p>Without a handler the first failure cancels upstream and is
+	 * published through <code>onError</code>.
+	 *
+	 * @param errorHandler Error handler, or null to fail the stream
+	 */
+	public void setErrorHandler(ConversionErrorHandler errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+
+	/**
+	 * Sets the additional arguments passed to the converter.
+	 *
+	 * @param args Arguments to be passed to the converter
+	 */
+	public void setArgs(Object ... args) {
+		this.args = args == null ? new Object[0] : args;
+	}
+
+	// add a converted value, true when an output item is ready
+	abstract boolean collect(R value);
+
+	// take the ready output item
+	abstract O take();
+
+	// number of converted values held for the next output item
+	abstract int collected();
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super O> subscriber) {
+		if ( subscriber == null ) {
+			throw new NullPointerException();
+		}
+		if ( !downstream.compareAndSet(null, subscriber) ) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+					/* empty */
+				}
+				@Override
+				public void cancel() {
+					/* empty */
+				}
+			});
+			subscriber.onError(new IllegalStateException(Message.STREAM_ALREADY_SUBSCRIBED.getString()));
+			return;
+		}
+		subscriber.onSubscribe(new DownstreamSubscription());
+		drain();
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		if ( subscription == null ) {
+			throw new NullPointerException();
+		}
+		// only one upstream
+		if ( !upstream.compareAndSet(null, subscription) ) {
+			subscription.cancel();
+			return;
+		}
+		drain();
+	}
+
+	@Override
+	public void onNext(final Object item) {
+		if ( item == null ) {
+			throw new NullPointerException();
+		}
+		if ( upstreamDone || cancelled ) {
+			return;
+		}
+		final Slot<R> slot = new Slot<R>();
+		queued.incrementAndGet();
+		slots.offer(slot);
+		upstreamPending.decrementAndGet();
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					convert(slot, item);
+					drain();
+				}
+			});
+		} catch ( RejectedExecutionException ex ) {
+			slot.failure = ex;
+			slot.done = true;
+			drain();
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		if ( throwable == null ) {
+			throw new NullPointerException();
+		}
+		upstreamError = throwable;
+		upstreamDone = true;
+		drain();
+	}
+
+	@Override
+	public void onComplete() {
+		upstreamDone = true;
+		drain();
+	}
+
+	// convert one item, failures go to the handler or to the slot
+	private void convert(Slot<R> slot, Object item) {
+		try {
+			R value = converterManager.convert(item, targetType, args);
+			if ( value == null ) {
+				throw new ConversionFailedException(String.format(Message.CONV_NULL_RESULT.getString(),
+						item.getClass(), targetType));
+			}
+			slot.value = value;
+		} catch ( ConversionFailedException ex ) {
+			ConversionErrorHandler handler = errorHandler;
+			if ( handler == null ) {
+				slot.failure = ex;
+			} else {
+				slot.skipped = true;
+				handler.conversionFailed(item, ex);
+			}
+		} catch ( RuntimeException ex ) {
+			slot.failure = ex;
+		} finally {
+			slot.done = true;
+		}
+	}
+
+	// serialized emission, whoever gets in first does the work for everyone
+	private void drain() {
+		if ( wip.getAndIncrement() != 0 ) {
+			return;
+		}
+		int missed = 1;
+		do {
+			if ( !terminated ) {
+				drainLoop();
+			}
+			missed = wip.addAndGet(-missed);
+		} while ( missed != 0 );
+	}
+
+	private void drainLoop() {
+		Flow.Subscriber<? super O> subscriber = downstream.get();
+		if ( subscriber == null ) {
+			return;
+		}
+		if ( cancelled ) {
+			terminated = true;
+			slots.clear();
+			return;
+		}
+		// publish whatever is converted and requested
+		for (;;) {
+			if ( outputReady ) {
+				if ( demand.get() == 0 ) {
+					break;
+				}
+				outputReady = false;
+				produced();
+				subscriber.onNext(take());
+				if ( cancelled ) {
+					return;
+				}
+				continue;
+			}
+			Slot<R> slot = slots.peek();
+			if ( slot == null || !slot.done ) {
+				break;
+			}
+			slots.poll();
+			queued.decrementAndGet();
+			if ( slot.failure != null ) {
+				terminated = true;
+				slots.clear();
+				Flow.Subscription subscription = upstream.get();
+				if ( subscription != null ) {
+					subscription.cancel();
+				}
+				subscriber.onError(slot.failure);
+				return;
+			}
+			if ( !slot.skipped ) {
+				outputReady = collect(slot.value);
+			}
+		}
+		// upstream finished and everything was published
+		if ( upstreamDone && !outputReady && slots.isEmpty() ) {
+			if ( collected() > 0 ) {
+				if ( demand.get() == 0 ) {
+					return;
+				}
+				produced();
+				subscriber.onNext(take());
+			}
+			terminated = true;
+			if ( upstreamError != null ) {
+				subscriber.onError(upstreamError);
+			} else {
+				subscriber.onComplete();
+			}
+			return;
+		}
+		requestUpstream();
+	}
+
+	// ask upstream for what downstream wants, within the in-flight limit
+	private void requestUpstream() {
+		Flow.Subscription subscription = upstream.get();
+		if ( subscription == null || upstreamDone ) {
+			return;
+		}
+		long requested = demand.get();
+		long wanted = requested > Long.MAX_VALUE / itemsPerRequest ? Long.MAX_VALUE : requested * itemsPerRequest;
+		// values held for the next output item are already converted, they go
+		// toward what downstream wants but not toward the in-flight limit
+		long missing = wanted - collected();
+		long outstanding = queued.get() + upstreamPending.get();
+		long room = Math.min(maxInFlight, missing) - outstanding;
+		if ( room > 0 ) {
+			upstreamPending.addAndGet(room);
+			subscription.request(room);
+		}
+	}
+
+	// one output item published
+	private void produced() {
+		for (;;) {
+			long current = demand.get();
+			if ( current == Long.MAX_VALUE || demand.compareAndSet(current, current - 1) ) {
+				return;
+			}
+		}
+	}
+
+	// subscription handed to downstream
+	private class DownstreamSubscription implements Flow.Subscription {
+		@Override
+		public void request(long n) {
+			if ( n <= 0 ) {
+				cancel();
+				Flow.Subscriber<? super O> subscriber = downstream.get();
+				subscriber.onError(new IllegalArgumentException(String.format(
+						Message.STREAM_INVALID_REQUEST.getString(), Long.valueOf(n))));
+				return;
+			}
+			for (;;) {
+				long current = demand.get();
+				long next = current + n;
+				if ( next < 0 ) {
+					next = Long.MAX_VALUE;
+				}
+				if ( demand.compareAndSet(current, next) ) {
+					break;
+				}
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			if ( cancelled ) {
+				return;
+			}
+			cancelled = true;
+			Flow.Subscription subscription = upstream.get();
+			if ( subscription != null ) {
+				subscription.cancel();
+			}
+			drain();
+		}
+	}
+
+	// a conversion in flight
+	private static class Slot<R> {
+		private R value;
+		private Throwable failure;
+		private boolean skipped;
+		private volatile boolean done;
+	}
+
+	// runs conversions on the thread delivering the item
+	private static class CallerExecutor implements Executor {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	}
+}
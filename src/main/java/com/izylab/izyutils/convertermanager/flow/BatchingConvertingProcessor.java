@@ -0,0 +1,93 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.flow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import com.izylab.izyutils.convertermanager.ConverterManager;
+import com.izylab.izyutils.convertermanager.ConverterManagerException;
+import com.izylab.izyutils.convertermanager.internal.Message;
+
+/**
+ * Processor that converts each item and publishes them in batches.
+ *
+ * <p>Each downstream request is for whole batches of <code>batchSize</code>
+ * converted items. The last batch may be smaller when upstream completes.
+ *
+ * @param <R> Target type
+ */
+public class BatchingConvertingProcessor<R> extends AbstractConvertingProcessor<R, List<R>> {
+	private final int batchSize;
+	private List<R> batch;
+
+	/**
+	 * Creates a batching processor converting on the calling thread.
+	 *
+	 * @param converterManager Converter manager
+	 * @param targetType Type to convert to
+	 * @param batchSize Number of items per batch
+	 */
+	public BatchingConvertingProcessor(ConverterManager converterManager, Class<R> targetType, int batchSize) {
+		this(converterManager, targetType, batchSize, null, batchSize);
+	}
+
+	/**
+	 * Creates a batching processor converting on the given executor.
+	 *
+	 * @param converterManager Converter manager
+	 * @param targetType Type to convert to
+	 * @param batchSize Number of items per batch
+	 * @param executor Executor running the conversions, null for the calling thread
+	 * @param maxInFlight Maximum number of items requested but not yet converted,
+	 *        the ones waiting for their batch to fill don't count
+	 */
+	public BatchingConvertingProcessor(ConverterManager converterManager, Class<R> targetType, int batchSize,
+			Executor executor, int maxInFlight) {
+		super(converterManager, targetType, executor, maxInFlight, checkBatchSize(batchSize));
+		this.batchSize = batchSize;
+		this.batch = new ArrayList<R>(batchSize);
+	}
+
+	// batch size must be positive
+	private static int checkBatchSize(int batchSize) {
+		if ( batchSize < 1 ) {
+			throw new ConverterManagerException(String.format(Message.STREAM_INVALID_BATCH.getString(),
+					Integer.valueOf(batchSize)));
+		}
+		return batchSize;
+	}
+
+	@Override
+	boolean collect(R value) {
+		batch.add(value);
+		return batch.size() == batchSize;
+	}
+
+	@Override
+	List<R> take() {
+		List<R> full = batch;
+		batch = new ArrayList<R>(batchSize);
+		return full;
+	}
+
+	@Override
+	int collected() {
+		return batch.size();
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.flow;
+
+import java.util.concurrent.Executor;
+
+import com.izylab.izyutils.convertermanager.ConverterManager;
+
+/**
+ * Processor that converts each item with a converter manager.
+ *
+ * <p><pre>
+ * ConvertingProcessor&lt;OrderDto&gt; processor =
+ *     new ConvertingProcessor&lt;OrderDto&gt;(converterManager, OrderDto.class);
+ * orderPublisher.subscribe(processor);
+ * processor.subscribe(dtoSubscriber);
+ * </pre>
+ *
+ * <p>Conversions run on the thread delivering the item unless an executor
+ * is given, in which case up to <code>maxInFlight</code> items are converted
+ * concurrently. Items are always published in arrival order.
+ *
+ * @param <R> Target type
+ */
+public class ConvertingProcessor<R> extends AbstractConvertingProcessor<R, R> {
+	private R value;
+
+	/**
+	 * Creates a processor converting on the calling thread.
+	 *
+	 * @param converterManager Converter manager
+	 * @param targetType Type to convert to
+	 */
+	public ConvertingProcessor(ConverterManager converterManager, Class<R> targetType) {
+		this(converterManager, targetType, null, 1);
+	}
+
+	/**
+	 * Creates a processor converting on the given executor.
+	 *
+	 * @param converterManager Converter manager
+	 * @param targetType Type to convert to
+	 * @param executor Executor running the conversions, null for the calling thread
+	 * @param maxInFlight Maximum number of items requested but not yet published
+	 */
+	public ConvertingProcessor(ConverterManager converterManager, Class<R> targetType, Executor executor,
+			int maxInFlight) {
+		super(converterManager, targetType, executor, maxInFlight, 1);
+	}
+
+	@Override
+	boolean collect(R converted) {
+		value = converted;
+		return true;
+	}
+
+	@Override
+	R take() {
+		R converted = value;
+		value = null;
+		return converted;
+	}
+
+	@Override
+	int collected() {
+		return value == null ? 0 : 1;
+	}
+}
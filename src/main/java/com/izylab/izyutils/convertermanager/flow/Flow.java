@@ -0,0 +1,105 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.flow;
+
+/**
+ * Reactive stream interfaces.
+ *
+ * <p>Same shape and contract as <code>java.util.concurrent.Flow</code> and
+ * Reactive Streams, which are not available to the Java 1.6 build. Bridging
+ * to either one only takes a thin adapter that forwards each call.
+ */
+public final class Flow {
+
+	private Flow() {
+		/* empty */
+	}
+
+	/**
+	 * Producer of items received by subscribers.
+	 *
+	 * @param <T> Published item type
+	 */
+	public static interface Publisher<T> {
+		/**
+		 * Adds the subscriber.
+		 *
+		 * @param subscriber Subscriber
+		 */
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * Receiver of items.
+	 *
+	 * @param <T> Subscribed item type
+	 */
+	public static interface Subscriber<T> {
+		/**
+		 * Called before any other method with the subscription.
+		 *
+		 * @param subscription Subscription
+		 */
+		void onSubscribe(Subscription subscription);
+
+		/**
+		 * Called with the next item, never more than requested.
+		 *
+		 * @param item Item
+		 */
+		void onNext(T item);
+
+		/**
+		 * Called when the stream fails, no other method is called afterwards.
+		 *
+		 * @param throwable Error
+		 */
+		void onError(Throwable throwable);
+
+		/**
+		 * Called when the stream completes, no other method is called afterwards.
+		 */
+		void onComplete();
+	}
+
+	/**
+	 * Link between a publisher and a subscriber.
+	 */
+	public static interface Subscription {
+		/**
+		 * Adds the given number of items to the outstanding demand.
+		 *
+		 * @param n Number of items, must be positive
+		 */
+		void request(long n);
+
+		/**
+		 * Stops receiving items.
+		 */
+		void cancel();
+	}
+
+	/**
+	 * Both a subscriber and a publisher.
+	 *
+	 * @param <T> Subscribed item type
+	 * @param <R> Published item type
+	 */
+	public static interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+		/* empty */
+	}
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.internal;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Picks the fastest of a few options, from their measured latency.
+ *
+ * <p>Each option keeps an exponentially weighted moving average of its
+ * latency. The options take turns until each one has a few samples, then
+ * the one with the lowest average leads. A share of the calls, the
+ * exploration rate, still goes to the others in turn so a change in their
+ * speed is noticed.
+ *
+ * <p>An option other than the first one is retired after failing a few
+ * times in a row, it is no longer chosen. The first option is never
+ * retired, its failures are taken to come from the input.
+ *
+ * <p>Every converting thread updates the statistics, they are kept in
+ * atomic arrays, the averages as the bits of a double updated with a
+ * compare and set, so no sample is lost.
+ *
+ * @param <T> Option type
+ */
+public final class AdaptiveChoice<T> {
+	// weight of a new sample in the average
+	private static final double WEIGHT = 0.1;
+	private static final int WARM_UP_SAMPLES = 16;
+	// failures in a row retiring an option
+	private static final int MAX_FAILURES = 4;
+
+	private final Object[] options;
+	// Double.doubleToRawLongBits of the averages
+	private final AtomicLongArray averages;
+	private final AtomicIntegerArray samples;
+	private final AtomicIntegerArray failures;
+	// 1 once retired
+	private final AtomicIntegerArray retired;
+	private final AtomicInteger calls = new AtomicInteger();
+	// -1 while warming up
+	private volatile int leader = -1;
+
+	/**
+	 * Creates a choice.
+	 *
+	 * @param options Options, the first one leads while warming up
+	 */
+	public AdaptiveChoice(List<? extends T> options) {
+		this.options = options.toArray();
+		this.averages = new AtomicLongArray(this.options.length);
+		this.samples = new AtomicIntegerArray(this.options.length);
+		this.failures = new AtomicIntegerArray(this.options.length);
+		this.retired = new AtomicIntegerArray(this.options.length);
+	}
+
+	/**
+	 * Picks the option of a call.
+	 *
+	 * @param explorationPeriod One call out of this many goes to an option that isn't leading, 0 for none
+	 * @return Index of the option
+	 */
+	public int choose(int explorationPeriod) {
+		int call = calls.incrementAndGet() & Integer.MAX_VALUE;
+		int current = leader;
+		if ( current < 0 ) {
+			// the options still warming up in turn
+			for ( int i = 0; i < options.length; i++ ) {
+				int index = (call + i) % options.length;
+				if ( retired.get(index) == 0 && samples.get(index) < WARM_UP_SAMPLES ) {
+					return index;
+				}
+			}
+			return 0;
+		}
+		if ( explorationPeriod > 0 && options.length > 1 && call % explorationPeriod == 0 ) {
+			// the others in turn
+			int other = (current + 1 + (call / explorationPeriod) % (options.length - 1)) % options.length;
+			return retired.get(other) != 0 ? current : other;
+		}
+		return current;
+	}
+
+	/**
+	 * Get an option.
+	 *
+	 * @param index Index of the option
+	 * @return Option
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		return (T) options[index];
+	}
+
+	/**
+	 * Adds a latency sample.
+	 *
+	 * @param index Index of the option
+	 * @param nanos Latency, in nanoseconds
+	 */
+	public void record(int index, long nanos) {
+		if ( retired.get(index) != 0 ) {
+			return;
+		}
+		if ( failures.get(index) != 0 ) {
+			failures.set(index, 0);
+		}
+		while ( true ) {
+			long bits = averages.get(index);
+			double average = Double.longBitsToDouble(bits);
+			double updated = samples.get(index) == 0 ? nanos : average + WEIGHT * (nanos - average);
+			if ( averages.compareAndSet(index, bits, Double.doubleToRawLongBits(updated)) ) {
+				break;
+			}
+		}
+		if ( samples.get(index) < WARM_UP_SAMPLES ) {
+			// may go a little over with concurrent calls, only the warm up limit matters
+			samples.incrementAndGet(index);
+		}
+		updateLeader();
+	}
+
+	/**
+	 * Adds a failed call.
+	 *
+	 * @param index Index of the option
+	 */
+	public void recordFailure(int index) {
+		if ( index == 0 || retired.get(index) != 0 || failures.incrementAndGet(index) < MAX_FAILURES ) {
+			return;
+		}
+		if ( retired.compareAndSet(index, 0, 1) ) {
+			updateLeader();
+		}
+	}
+
+	/**
+	 * Is an option retired after failing.
+	 *
+	 * @param index Index of the option
+	 * @return true if the option is no longer chosen
+	 */
+	public boolean isRetired(int index) {
+		return retired.get(index) != 0;
+	}
+
+	// the fastest option still chosen, once they all warmed up or retired
+	private void updateLeader() {
+		int fastest = 0;
+		double lowest = Double.POSITIVE_INFINITY;
+		for ( int i = 0; i < options.length; i++ ) {
+			if ( retired.get(i) != 0 ) {
+				continue;
+			}
+			if ( samples.get(i) < WARM_UP_SAMPLES ) {
+				return;
+			}
+			double average = Double.longBitsToDouble(averages.get(i));
+			if ( average < lowest ) {
+				fastest = i;
+				lowest = average;
+			}
+		}
+		leader = fastest;
+	}
+
+	/**
+	 * Get the leading option.
+	 *
+	 * @return Option with the lowest average latency, null while warming up
+	 */
+	public T getLeader() {
+		int current = leader;
+		return current < 0 ? null : get(current);
+	}
+
+	/**
+	 * Get the average latency of an option.
+	 *
+	 * @param index Index of the option
+	 * @return Average latency, in nanoseconds, 0 without samples, infinite once retired
+	 */
+	public double getAverageNanos(int index) {
+		return retired.get(index) != 0 ? Double.POSITIVE_INFINITY : Double.longBitsToDouble(averages.get(index));
+	}
+
+	/**
+	 * Number of options.
+	 *
+	 * @return Options
+	 */
+	public int size() {
+		return options.length;
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.internal;
+
+import java.lang.ref.WeakReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.izylab.izyutils.convertermanager.ConverterFactory;
+import com.izylab.izyutils.convertermanager.ConverterManagerException;
+import com.izylab.izyutils.convertermanager.ConverterScope;
+
+/**
+ * Hands out converter instances according to their scope.
+ */
+public abstract class ConverterInstances {
+	// idle pooled instances kept, more callers at once create and drop their own
+	static final int POOL_CAPACITY = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Instance to call the converter method on.
+	 * 
+	 * @return Converter instance
+	 */
+	public abstract Object acquire();
+
+	/**
+	 * Done with the instance.
+	 * 
+	 * @param converter Instance returned by <code>acquire</code>
+	 */
+	public abstract void release(Object converter);
+
+	/**
+	 * Drops the instances kept for later calls, once the converter is
+	 * unregistered. New ones are created if it is still called.
+	 */
+	public void clear() {
+		/* nothing kept */
+	}
+
+	/**
+	 * Always the same instance.
+	 * 
+	 * @param converter Converter
+	 * @return Instances
+	 */
+	public static ConverterInstances singleton(final Object converter) {
+		return new ConverterInstances() {
+			@Override
+			public Object acquire() {
+				return converter;
+			}
+			@Override
+			public void release(Object instance) {
+				/* empty */
+			}
+		};
+	}
+
+	/**
+	 * Instances created by the factory for the given scope.
+	 * 
+	 * @param factory Converter factory
+	 * @param scope Scope
+	 * @return Instances
+	 */
+	public static ConverterInstances create(ConverterFactory<?> factory, ConverterScope scope) {
+		switch ( scope ) {
+		case THREAD_LOCAL:
+			return new ThreadLocalInstances(factory);
+		case POOLED:
+			return new PooledInstances(factory);
+		default:
+			return singleton(newInstance(factory));
+		}
+	}
+
+	// factory must give something back
+	static Object newInstance(ConverterFactory<?> factory) {
+		Object converter = factory.createConverter();
+		if ( converter == null ) {
+			throw new ConverterManagerException(Message.CONVERTER_CANNOT_BE_NULL.getString());
+		}
+		return converter;
+	}
+
+	// one instance per thread, held in a slot that clear can empty from any thread,
+	// the thread locals of other threads can't be removed and would keep the instances
+	private static class ThreadLocalInstances extends ConverterInstances {
+		private final ConverterFactory<?> factory;
+		private final Queue<WeakReference<Slot>> slots = new ConcurrentLinkedQueue<WeakReference<Slot>>();
+		private final ThreadLocal<Slot> instances = new ThreadLocal<Slot>() {
+			@Override
+			protected Slot initialValue() {
+				// the slots of finished threads are collected
+				for ( WeakReference<Slot> reference : slots ) {
+					if ( reference.get() == null ) {
+						slots.remove(reference);
+					}
+				}
+				Slot slot = new Slot();
+				slots.offer(new WeakReference<Slot>(slot));
+				return slot;
+			}
+		};
+
+		ThreadLocalInstances(ConverterFactory<?> factory) {
+			this.factory = factory;
+		}
+
+		@Override
+		public Object acquire() {
+			Slot slot = instances.get();
+			Object converter = slot.converter;
+			if ( converter == null ) {
+				converter = newInstance(factory);
+				slot.converter = converter;
+			}
+			return converter;
+		}
+
+		@Override
+		public void release(Object converter) {
+			/* empty */
+		}
+
+		@Override
+		public void clear() {
+			for ( WeakReference<Slot> reference : slots ) {
+				Slot slot = reference.get();
+				if ( slot != null ) {
+					slot.converter = null;
+				}
+			}
+		}
+	}
+
+	// instance of a thread
+	private static final class Slot {
+		volatile Object converter;
+	}
+
+	// borrowed per call, at most POOL_CAPACITY idle instances are kept
+	private static class PooledInstances extends ConverterInstances {
+		private final ConverterFactory<?> factory;
+		private final Queue<Object> idle = new ConcurrentLinkedQueue<Object>();
+		private final AtomicInteger size = new AtomicInteger();
+
+		PooledInstances(ConverterFactory<?> factory) {
+			this.factory = factory;
+		}
+
+		@Override
+		public Object acquire() {
+			Object converter = idle.poll();
+			if ( converter != null ) {
+				size.decrementAndGet();
+				return converter;
+			}
+			return newInstance(factory);
+		}
+
+		@Override
+		public void release(Object converter) {
+			// reserve a spot first so the pool never grows past capacity
+			if ( size.incrementAndGet() > POOL_CAPACITY ) {
+				size.decrementAndGet();
+				return;
+			}
+			idle.offer(converter);
+		}
+
+		@Override
+		public void clear() {
+			while ( idle.poll() != null ) {
+				size.decrementAndGet();
+			}
+		}
+	}
+}
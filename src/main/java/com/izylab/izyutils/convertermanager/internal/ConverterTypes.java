@@ -0,0 +1,62 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.internal;
+
+/**
+ * Source and target type pair, lookup key for converters.
+ */
+public final class ConverterTypes {
+	private final Class<?> source;
+	private final Class<?> target;
+
+	public ConverterTypes(Class<?> source, Class<?> target) {
+		this.source = source;
+		this.target = target;
+	}
+
+	public Class<?> getSource() {
+		return source;
+	}
+
+	public Class<?> getTarget() {
+		return target;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if ((obj == null) || (obj.getClass() != this.getClass()))
+			return false;
+
+		ConverterTypes other = (ConverterTypes) obj;
+		return (source == other.source || (source != null && source.equals(other.source)))
+				&& (target == other.target || (target != null && target.equals(other.target)));
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 7;
+		hash = 31 * hash + (null == source ? 0 : source.hashCode());
+		hash = 31 * hash + (null == target ? 0 : target.hashCode());
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return source + " -> " + target; //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.izylab.izyutils.convertermanager.ConverterManagerException;
+import com.izylab.izyutils.convertermanager.EnumCode;
+
+/**
+ * Converts between enums, and between enums and strings, by constant code.
+ *
+ * <p>The code of a constant is its {@link EnumCode}, or its name when it has
+ * none. A constant of the source enum becomes the target constant of the same
+ * code, a string the constant of that code or name, and a constant its code.
+ * The lookup tables are built once, converting is an array or hash lookup.
+ * Unknown sources become the fallback value.
+ */
+public final class EnumMapper {
+	private final Class<?> sourceType;
+	private final Class<?> targetType;
+	// targets by source ordinal, for enum sources
+	private final Object[] byOrdinal;
+	// targets by code and name, for string sources
+	private final Map<String, Object> byCode;
+	private final Object fallback;
+
+	private EnumMapper(Class<?> sourceType, Class<?> targetType, Object[] byOrdinal, Map<String, Object> byCode,
+			Object fallback) {
+		this.sourceType = sourceType;
+		this.targetType = targetType;
+		this.byOrdinal = byOrdinal;
+		this.byCode = byCode;
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Can two types be converted by an enum mapper.
+	 *
+	 * @param sourceType Source type
+	 * @param targetType Target type
+	 * @return true for an enum and another enum or a string
+	 */
+	public static boolean canMap(Class<?> sourceType, Class<?> targetType) {
+		Class<?> sourceEnum = getEnumType(sourceType);
+		Class<?> targetEnum = getEnumType(targetType);
+		return sourceEnum != null && (targetEnum != null || targetType == String.class)
+				|| sourceType == String.class && targetEnum != null;
+	}
+
+	/**
+	 * Get the enum of a type, the enum itself or the enum of a constant
+	 * with a body.
+	 *
+	 * @param type Type
+	 * @return Enum class, null if the type is not an enum
+	 */
+	public static Class<?> getEnumType(Class<?> type) {
+		if ( type.isEnum() ) {
+			return type;
+		}
+		Class<?> superclass = type.getSuperclass();
+		return superclass != null && superclass.isEnum() ? superclass : null;
+	}
+
+	/**
+	 * Builds the lookup tables of two types.
+	 *
+	 * @param sourceType Enum, or string
+	 * @param targetType Enum, or string
+	 * @param fallback Target of the unknown sources
+	 * @return Mapper
+	 * @throws ConverterManagerException if two constants of an enum have the same code
+	 * @see #canMap(Class, Class)
+	 */
+	public static EnumMapper create(Class<?> sourceType, Class<?> targetType, Object fallback) {
+		Class<?> sourceEnum = getEnumType(sourceType);
+		Class<?> targetEnum = getEnumType(targetType);
+		Map<String, Object> targets = targetEnum == null ? null : getConstants(targetEnum);
+		if ( sourceEnum == null ) {
+			return new EnumMapper(String.class, targetEnum, null, targets, fallback);
+		}
+		Enum<?>[] constants = (Enum<?>[]) sourceEnum.getEnumConstants();
+		Object[] byOrdinal = new Object[constants.length];
+		for ( Enum<?> constant : constants ) {
+			String code = getCode(constant);
+			byOrdinal[constant.ordinal()] = targets == null ? code : targets.get(code);
+		}
+		return new EnumMapper(sourceEnum, targetEnum == null ? String.class : targetEnum, byOrdinal, null, fallback);
+	}
+
+	/**
+	 * Get the code of a constant.
+	 *
+	 * @param constant Enum constant
+	 * @return Code, the name when it has none
+	 */
+	public static String getCode(Enum<?> constant) {
+		try {
+			EnumCode code = constant.getDeclaringClass().getField(constant.name()).getAnnotation(EnumCode.class);
+			return code == null ? constant.name() : code.value();
+		} catch ( NoSuchFieldException ex ) {
+			// can't happen, every constant is a public field
+			return constant.name();
+		}
+	}
+
+	// constants by name and code, a code wins over a name
+	private static Map<String, Object> getConstants(Class<?> enumType) {
+		Enum<?>[] constants = (Enum<?>[]) enumType.getEnumConstants();
+		Map<String, Object> byName = new HashMap<String, Object>();
+		Map<String, Object> byCode = new HashMap<String, Object>();
+		for ( Enum<?> constant : constants ) {
+			byName.put(constant.name(), constant);
+			if ( byCode.put(getCode(constant), constant) != null ) {
+				throw new ConverterManagerException(String.format(Message.ENUM_DUPLICATE_CODE.getString(),
+						getCode(constant), enumType));
+			}
+		}
+		byName.putAll(byCode);
+		return byName;
+	}
+
+	/**
+	 * Convert a source.
+	 *
+	 * @param source Enum constant or string
+	 * @return Target, the fallback if the source is unknown
+	 */
+	public Object map(Object source) {
+		Object target = byOrdinal != null ? byOrdinal[((Enum<?>) source).ordinal()] : byCode.get(source);
+		return target == null ? fallback : target;
+	}
+
+	/**
+	 * Get the source type.
+	 *
+	 * @return Enum, or string
+	 */
+	public Class<?> getSourceType() {
+		return sourceType;
+	}
+
+	/**
+	 * Get the target type.
+	 *
+	 * @return Enum, or string
+	 */
+	public Class<?> getTargetType() {
+		return targetType;
+	}
+}
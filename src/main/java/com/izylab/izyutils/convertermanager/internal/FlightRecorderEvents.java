@@ -0,0 +1,328 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.internal;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JDK Flight Recorder events for conversions and registry changes.
+ * 
+ * <p>The build targets Java 1.6, so the event types are defined at runtime
+ * through <code>jdk.jfr.EventFactory</code> when it is available (JDK 11
+ * and later), and everything is reached through reflection. Without JFR,
+ * or while nothing is recording, <code>isRecording</code> is false and no
+ * event is ever created.
+ * 
+ * <p>Events:
+ * <ul>
+ * <li><code>com.izylab.izyutils.convertermanager.Conversion</code>: source type,
+ * target type, converter class, duration, outcome and whether the converter
+ * was found through an interface or the superclass</li>
+ * <li><code>com.izylab.izyutils.convertermanager.RegistryChange</code>: action,
+ * converter class and number of registered conversions</li>
+ * </ul>
+ * 
+ * <p>Conversion events are timed, they begin before the converter is called
+ * and end after it returns, so their duration shows on the timeline and
+ * their <code>threshold</code> setting, defaulting to 0 ms, can filter them
+ * from a <code>.jfc</code> file as well. Registry changes are instant.
+ */
+public final class FlightRecorderEvents {
+	/** Conversion returned normally */
+	public static final String SUCCESS = "SUCCESS"; //$NON-NLS-1$
+	/** Conversion threw an exception */
+	public static final String FAILURE = "FAILURE"; //$NON-NLS-1$
+
+	private static final String PACKAGE = "com.izylab.izyutils.convertermanager"; //$NON-NLS-1$
+	private static final String JFR = "jdk.jfr."; //$NON-NLS-1$
+
+	// told when a recording starts or stops, held weakly
+	private static final List<WeakReference<Runnable>> RECORDING_OBSERVERS =
+			new CopyOnWriteArrayList<WeakReference<Runnable>>();
+
+	private static final EventType CONVERSION;
+	private static final EventType REGISTRY_CHANGE;
+	private static volatile boolean recording;
+
+	static {
+		EventType conversion = null;
+		EventType registryChange = null;
+		try {
+			conversion = new EventType(PACKAGE + ".Conversion", "Conversion", //$NON-NLS-1$ //$NON-NLS-2$
+					"Bean conversion done by a converter manager", true, //$NON-NLS-1$
+					field(Class.class, "sourceType", "Source Type", false), //$NON-NLS-1$ //$NON-NLS-2$
+					field(Class.class, "targetType", "Target Type", false), //$NON-NLS-1$ //$NON-NLS-2$
+					field(Class.class, "converterClass", "Converter", false), //$NON-NLS-1$ //$NON-NLS-2$
+					field(long.class, "conversionDuration", "Conversion Duration", true), //$NON-NLS-1$ //$NON-NLS-2$
+					field(String.class, "outcome", "Outcome", false), //$NON-NLS-1$ //$NON-NLS-2$
+					field(boolean.class, "hierarchyFallback", "Hierarchy Fallback", false)); //$NON-NLS-1$ //$NON-NLS-2$
+			registryChange = new EventType(PACKAGE + ".RegistryChange", "Converter Registry Change", //$NON-NLS-1$ //$NON-NLS-2$
+					"Converters registered or cleared", false, //$NON-NLS-1$
+					field(String.class, "action", "Action", false), //$NON-NLS-1$ //$NON-NLS-2$
+					field(Class.class, "converterClass", "Converter", false), //$NON-NLS-1$ //$NON-NLS-2$
+					field(int.class, "registeredConversions", "Registered Conversions", false)); //$NON-NLS-1$ //$NON-NLS-2$
+			listenToRecordings();
+		} catch ( Throwable ex ) {
+			// no flight recorder in this runtime
+			conversion = null;
+			registryChange = null;
+			recording = false;
+		}
+		CONVERSION = conversion;
+		REGISTRY_CHANGE = registryChange;
+	}
+
+	private FlightRecorderEvents() {
+		/* empty */
+	}
+
+	/**
+	 * Test to see if a flight recording is running.
+	 * 
+	 * @return true when events should be emitted
+	 */
+	public static boolean isRecording() {
+		return recording;
+	}
+
+	/**
+	 * Adds an observer run after a recording starts or stops, it should read
+	 * <code>isRecording</code> again. The observer is held weakly, the
+	 * caller keeps it.
+	 * 
+	 * @param observer Observer
+	 * @return The observer
+	 */
+	public static Runnable addRecordingObserver(Runnable observer) {
+		for ( WeakReference<Runnable> reference : RECORDING_OBSERVERS ) {
+			if ( reference.get() == null ) {
+				RECORDING_OBSERVERS.remove(reference);
+			}
+		}
+		RECORDING_OBSERVERS.add(new WeakReference<Runnable>(observer));
+		return observer;
+	}
+
+	/**
+	 * Begins a conversion event, right before the converter is called.
+	 * 
+	 * @return Event, null when not recording
+	 */
+	public static Object beginConversion() {
+		return recording ? CONVERSION.begin() : null;
+	}
+
+	/**
+	 * Ends a conversion event, right after the converter returned or failed.
+	 * 
+	 * @param event Event begun, may be null
+	 */
+	public static void endConversion(Object event) {
+		if ( event != null ) {
+			CONVERSION.end(event);
+		}
+	}
+
+	/**
+	 * Commits a conversion event.
+	 * 
+	 * @param event Event begun and ended, may be null
+	 * @param sourceType Source object type
+	 * @param targetType Target type
+	 * @param converterClass Converter class
+	 * @param durationNanos Conversion duration in nanoseconds
+	 * @param outcome SUCCESS or FAILURE
+	 * @param hierarchyFallback true when the converter was found through an interface or the superclass
+	 */
+	public static void conversion(Object event, Class<?> sourceType, Class<?> targetType, Class<?> converterClass,
+			long durationNanos, String outcome, boolean hierarchyFallback) {
+		if ( event != null ) {
+			CONVERSION.commit(event, sourceType, targetType, converterClass, Long.valueOf(durationNanos), outcome,
+					Boolean.valueOf(hierarchyFallback));
+		}
+	}
+
+	/**
+	 * Emits a registry change event.
+	 * 
+	 * @param action What changed
+	 * @param converterClass Converter class, null when not about one converter
+	 * @param registeredConversions Number of conversions registered afterwards
+	 */
+	public static void registryChange(String action, Class<?> converterClass, int registeredConversions) {
+		if ( recording ) {
+			REGISTRY_CHANGE.commit(REGISTRY_CHANGE.create(), action, converterClass,
+					Integer.valueOf(registeredConversions));
+		}
+	}
+
+	// field description, with a label and a nanosecond timespan when asked
+	private static Object field(Class<?> type, String name, String label, boolean timespan) throws Exception {
+		List<Object> annotations = new ArrayList<Object>();
+		annotations.add(annotation("Label", label)); //$NON-NLS-1$
+		if ( timespan ) {
+			annotations.add(annotation("Timespan", "NANOSECONDS")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return Class.forName(JFR + "ValueDescriptor") //$NON-NLS-1$
+				.getConstructor(Class.class, String.class, List.class)
+				.newInstance(type, name, annotations);
+	}
+
+	// jdk.jfr.AnnotationElement for the given jdk.jfr annotation
+	private static Object annotation(String name, Object value) throws Exception {
+		Constructor<?> constructor = Class.forName(JFR + "AnnotationElement") //$NON-NLS-1$
+				.getConstructor(Class.class, Object.class);
+		return constructor.newInstance(Class.forName(JFR + name), value);
+	}
+
+	// keep the recording flag in line with the recorder state
+	private static void listenToRecordings() throws Exception {
+		final Class<?> recorderType = Class.forName(JFR + "FlightRecorder"); //$NON-NLS-1$
+		Class<?> listenerType = Class.forName(JFR + "FlightRecorderListener"); //$NON-NLS-1$
+		Object listener = Proxy.newProxyInstance(FlightRecorderEvents.class.getClassLoader(),
+				new Class<?>[] { listenerType }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if ( method.getDeclaringClass() == Object.class ) {
+					if ( "equals".equals(method.getName()) ) { //$NON-NLS-1$
+						return Boolean.valueOf(proxy == args[0]);
+					}
+					if ( "hashCode".equals(method.getName()) ) { //$NON-NLS-1$
+						return Integer.valueOf(System.identityHashCode(proxy));
+					}
+					return FlightRecorderEvents.class.getName();
+				}
+				updateRecording(recorderType);
+				return null;
+			}
+		});
+		recorderType.getMethod("addListener", listenerType).invoke(null, listener); //$NON-NLS-1$
+		if ( Boolean.TRUE.equals(recorderType.getMethod("isInitialized").invoke(null)) ) { //$NON-NLS-1$
+			updateRecording(recorderType);
+		}
+	}
+
+	// recording when any recording is running
+	static void updateRecording(Class<?> recorderType) throws Exception {
+		Object recorder = recorderType.getMethod("getFlightRecorder").invoke(null); //$NON-NLS-1$
+		List<?> recordings = (List<?>) recorderType.getMethod("getRecordings").invoke(recorder); //$NON-NLS-1$
+		boolean running = false;
+		for ( Object recording : recordings ) {
+			Object state = recording.getClass().getMethod("getState").invoke(recording); //$NON-NLS-1$
+			if ( "RUNNING".equals(String.valueOf(state)) ) { //$NON-NLS-1$
+				running = true;
+				break;
+			}
+		}
+		if ( recording != running ) {
+			recording = running;
+			for ( WeakReference<Runnable> reference : RECORDING_OBSERVERS ) {
+				Runnable observer = reference.get();
+				if ( observer != null ) {
+					observer.run();
+				}
+			}
+		}
+	}
+
+	// event type defined through jdk.jfr.EventFactory
+	private static class EventType {
+		private final Object factory;
+		private final Method newEvent;
+		private final Method begin;
+		private final Method end;
+		private final Method set;
+		private final Method commit;
+
+		EventType(String name, String label, String description, boolean timed, Object ... fields) throws Exception {
+			List<Object> annotations = new ArrayList<Object>();
+			annotations.add(annotation("Name", name)); //$NON-NLS-1$
+			annotations.add(annotation("Label", label)); //$NON-NLS-1$
+			annotations.add(annotation("Description", description)); //$NON-NLS-1$
+			annotations.add(annotation("Category", new String[] { "Converter Manager" })); //$NON-NLS-1$ //$NON-NLS-2$
+			if ( timed ) {
+				annotations.add(annotation("Threshold", "0 ms")); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			annotations.add(annotation("StackTrace", Boolean.FALSE)); //$NON-NLS-1$
+			Class<?> factoryType = Class.forName(JFR + "EventFactory"); //$NON-NLS-1$
+			this.factory = factoryType.getMethod("create", List.class, List.class) //$NON-NLS-1$
+					.invoke(null, annotations, Collections.unmodifiableList(Arrays.asList(fields)));
+			this.newEvent = factoryType.getMethod("newEvent"); //$NON-NLS-1$
+			Class<?> eventType = Class.forName(JFR + "Event"); //$NON-NLS-1$
+			this.begin = eventType.getMethod("begin"); //$NON-NLS-1$
+			this.end = eventType.getMethod("end"); //$NON-NLS-1$
+			this.set = eventType.getMethod("set", int.class, Object.class); //$NON-NLS-1$
+			this.commit = eventType.getMethod("commit"); //$NON-NLS-1$
+		}
+
+		// events are best effort, none of these fails the caller
+
+		// new event, null if it can't be created
+		Object create() {
+			try {
+				return newEvent.invoke(factory);
+			} catch ( Exception ex ) {
+				return null;
+			}
+		}
+
+		// new event, timed from now
+		Object begin() {
+			Object event = create();
+			try {
+				if ( event != null ) {
+					begin.invoke(event);
+				}
+			} catch ( Exception ex ) {
+				/* untimed */
+			}
+			return event;
+		}
+
+		void end(Object event) {
+			try {
+				end.invoke(event);
+			} catch ( Exception ex ) {
+				/* committing ends it */
+			}
+		}
+
+		// fill and commit an event
+		void commit(Object event, Object ... values) {
+			if ( event == null ) {
+				return;
+			}
+			try {
+				for ( int i = 0; i < values.length; i++ ) {
+					set.invoke(event, Integer.valueOf(i), values[i]);
+				}
+				commit.invoke(event);
+			} catch ( Exception ex ) {
+				/* dropped */
+			}
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.internal;
+
+/**
+ * Helpers to write JSON by hand.
+ */
+public final class Json {
+
+	private Json() {
+		/* static only */
+	}
+
+	/**
+	 * Quotes a string, escaping what JSON requires.
+	 *
+	 * @param value String, null for a JSON null
+	 * @return Quoted string
+	 */
+	public static String quote(String value) {
+		if ( value == null ) {
+			return "null"; //$NON-NLS-1$
+		}
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for ( char c : value.toCharArray() ) {
+			if ( c == '"' || c == '\\' ) {
+				quoted.append('\\').append(c);
+			} else if ( c < ' ' ) {
+				quoted.append(String.format("\\u%04x", Integer.valueOf(c))); //$NON-NLS-1$
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Quotes the name of a class.
+	 *
+	 * @param type Class, null for a JSON null
+	 * @return Quoted name
+	 */
+	public static String quote(Class<?> type) {
+		return quote(type == null ? null : type.getName());
+	}
+}
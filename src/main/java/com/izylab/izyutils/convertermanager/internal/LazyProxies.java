@@ -0,0 +1,64 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.internal;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+
+/**
+ * Creates the proxies of lazy conversions.
+ *
+ * <p>Proxy classes are generated once per interface, their constructors are
+ * kept in a map keyed by interface.
+ */
+public final class LazyProxies {
+	// the proxy class is defined by the class loader of the interface, so the constructor
+	// only keeps that class loader alive, until it is unregistered
+	private static final WeakTypeMap<Constructor<?>> CONSTRUCTORS = new WeakTypeMap<Constructor<?>>();
+
+	private LazyProxies() {
+		/* static only */
+	}
+
+	/**
+	 * Creates a proxy.
+	 *
+	 * @param interfaceType Interface to implement
+	 * @param handler Handler of the calls
+	 * @return Proxy
+	 * @throws Exception when the proxy can't be created
+	 */
+	public static Object newProxy(Class<?> interfaceType, InvocationHandler handler) throws Exception {
+		Constructor<?> constructor = CONSTRUCTORS.get(interfaceType, null);
+		if ( constructor == null ) {
+			constructor = Proxy.getProxyClass(interfaceType.getClassLoader(), interfaceType)
+					.getConstructor(InvocationHandler.class);
+			CONSTRUCTORS.put(interfaceType, null, constructor);
+		}
+		return constructor.newInstance(handler);
+	}
+
+	/**
+	 * Forgets the proxies of the interfaces of a class loader.
+	 *
+	 * @param classLoader Class loader
+	 */
+	public static void removeLoadedBy(ClassLoader classLoader) {
+		CONSTRUCTORS.removeLoadedBy(classLoader);
+	}
+}
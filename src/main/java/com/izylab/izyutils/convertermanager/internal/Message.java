@@ -35,7 +35,58 @@ public enum Message {
 	CONV_FAILED,
 	CONV_MORE_ARGS,
 	CONV_LESS_ARGS,
-	CONV_ARG_MISMATCH;
+	CONV_ARG_MISMATCH,
+	CONV_NULL_RESULT,
+	STREAM_NULL_MANAGER,
+	STREAM_INVALID_LIMIT,
+	STREAM_INVALID_BATCH,
+	STREAM_INVALID_REQUEST,
+	STREAM_ALREADY_SUBSCRIBED,
+	INTO_PRIMITIVE_TARGET,
+	POOL_INVALID_CAPACITY,
+	POOL_CANNOT_CREATE,
+	CONV_LAZY_NOT_INTERFACE,
+	CONVERTER_NO_DEFAULT_CONSTRUCTOR,
+	CONVERTER_CREATION_FAILED,
+	NOT_STATIC,
+	LISTENER_CANNOT_BE_NULL,
+	LISTENER_FAILED,
+	SLOW_CONVERSION,
+	SLOW_CONVERSION_FAILED,
+	INVALID_DURATION,
+	PROFILER_INVALID_SAMPLE_RATE,
+	PROFILER_MBEAN_FAILED,
+	TRACE_IO_ERROR,
+	TRACE_INVALID_FILE,
+	TRACE_INVALID_SAMPLE,
+	TRACE_INVALID_SAMPLE_RATE,
+	TRACE_INVALID_THREADS,
+	TRACE_INVALID_RATE,
+	CACHE_INVALID_SIZE,
+	CACHE_IO_ERROR,
+	CACHE_UNREADABLE,
+	METADATA_IO_ERROR,
+	PARENT_CANNOT_BE_NULL,
+	AUTO_MAPPING_NO_CONSTRUCTOR,
+	AUTO_MAPPING_NO_PROPERTIES,
+	AUTO_MAPPING_MISSING_PROPERTY,
+	AUTO_MAPPING_TYPE_MISMATCH,
+	TYPE_REF_NOT_PARAMETERIZED,
+	CONV_UNSUPPORTED_TYPE,
+	CONV_NOT_A_COLLECTION,
+	PARSE_FAILED,
+	EXPLORATION_RATE_INVALID,
+	EXPLAIN_NULL_TYPE,
+	COLUMN_INVALID_CAPACITY,
+	COLUMN_NOT_FOUND,
+	COLUMN_BATCH_FULL,
+	RESULTS_NO_TARGET,
+	CONV_INTERRUPTED,
+	ENUM_DUPLICATE_CODE,
+	ENUM_TYPE_NULL,
+	CONV_ALSO_FAILED,
+	TRACE_INVALID_CAPACITY,
+	CACHE_DAMAGED;
 	
 	private static final ResourceBundle RESOURCE_BUNDLE =
 			ResourceBundle.getBundle("com/izylab/izyutils/convertermanager/messages"); //$NON-NLS-1$
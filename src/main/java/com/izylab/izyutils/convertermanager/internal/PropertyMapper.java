@@ -0,0 +1,341 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.internal;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.izylab.izyutils.convertermanager.ConverterManagerException;
+
+/**
+ * Converts a bean by copying the properties of the same name.
+ *
+ * <p>Properties are matched once, converting only calls the getters and
+ * setters found, with the access checks turned off.
+ */
+public final class PropertyMapper {
+	private final Class<?> sourceType;
+	private final Class<?> targetType;
+	private final Constructor<?> constructor;
+	private final String[] properties;
+	private final Method[] getters;
+	private final Method[] setters;
+
+	private PropertyMapper(Class<?> sourceType, Class<?> targetType, Constructor<?> constructor,
+			String[] properties, Method[] getters, Method[] setters) {
+		this.sourceType = sourceType;
+		this.targetType = targetType;
+		this.constructor = constructor;
+		this.properties = properties;
+		this.getters = getters;
+		this.setters = setters;
+	}
+
+	/**
+	 * Matches the properties of two bean types.
+	 *
+	 * <p>Every writable property of the target needs a readable property of
+	 * the source with the same name and a compatible type.
+	 *
+	 * @param sourceType Source type
+	 * @param targetType Target type, with a public no argument constructor
+	 * @return Mapper
+	 * @throws ConverterManagerException if the properties don't match
+	 */
+	public static PropertyMapper create(Class<?> sourceType, Class<?> targetType) {
+		Constructor<?> constructor;
+		try {
+			constructor = targetType.getConstructor();
+		} catch ( NoSuchMethodException ex ) {
+			throw new ConverterManagerException(String.format(Message.AUTO_MAPPING_NO_CONSTRUCTOR.getString(),
+					targetType), ex);
+		}
+		if ( !Modifier.isPublic(targetType.getModifiers()) || Modifier.isAbstract(targetType.getModifiers()) ) {
+			throw new ConverterManagerException(String.format(Message.AUTO_MAPPING_NO_CONSTRUCTOR.getString(),
+					targetType));
+		}
+		Map<String, Method> readable = new HashMap<String, Method>();
+		for ( PropertyDescriptor property : getProperties(sourceType) ) {
+			if ( property.getReadMethod() != null ) {
+				readable.put(property.getName(), property.getReadMethod());
+			}
+		}
+		List<String> properties = new ArrayList<String>();
+		List<Method> getters = new ArrayList<Method>();
+		List<Method> setters = new ArrayList<Method>();
+		for ( PropertyDescriptor property : getProperties(targetType) ) {
+			Method setter = property.getWriteMethod();
+			if ( setter == null ) {
+				continue;
+			}
+			Method getter = readable.get(property.getName());
+			if ( getter == null ) {
+				throw new ConverterManagerException(String.format(Message.AUTO_MAPPING_MISSING_PROPERTY.getString(),
+						sourceType, property.getName(), targetType));
+			}
+			// a primitive getter can fill a wrapper setter and the other way around
+			if ( !wrap(setter.getParameterTypes()[0]).isAssignableFrom(wrap(getter.getReturnType())) ) {
+				throw new ConverterManagerException(String.format(Message.AUTO_MAPPING_TYPE_MISMATCH.getString(),
+						property.getName(), sourceType, targetType));
+			}
+			properties.add(property.getName());
+			getters.add(getter);
+			setters.add(setter);
+		}
+		Method[] getterArray = getters.toArray(new Method[getters.size()]);
+		Method[] setterArray = setters.toArray(new Method[setters.size()]);
+		try {
+			AccessibleObject.setAccessible(getterArray, true);
+			AccessibleObject.setAccessible(setterArray, true);
+			constructor.setAccessible(true);
+		} catch ( SecurityException ex ) {
+			// not allowed, calls keep checking access
+		}
+		return new PropertyMapper(sourceType, targetType, constructor,
+				properties.toArray(new String[properties.size()]), getterArray, setterArray);
+	}
+
+	private static PropertyDescriptor[] getProperties(Class<?> type) {
+		try {
+			return Introspector.getBeanInfo(type).getPropertyDescriptors();
+		} catch ( IntrospectionException ex ) {
+			throw new ConverterManagerException(String.format(Message.AUTO_MAPPING_NO_PROPERTIES.getString(), type), ex);
+		}
+	}
+
+	/**
+	 * Boxed type of a primitive type.
+	 *
+	 * @param type Type
+	 * @return Wrapper type of primitives, other types as is
+	 */
+	public static Class<?> wrap(Class<?> type) {
+		if ( !type.isPrimitive() ) {
+			return type;
+		}
+		if ( type == Integer.TYPE ) {
+			return Integer.class;
+		} else if ( type == Long.TYPE ) {
+			return Long.class;
+		} else if ( type == Boolean.TYPE ) {
+			return Boolean.class;
+		} else if ( type == Double.TYPE ) {
+			return Double.class;
+		} else if ( type == Float.TYPE ) {
+			return Float.class;
+		} else if ( type == Short.TYPE ) {
+			return Short.class;
+		} else if ( type == Byte.TYPE ) {
+			return Byte.class;
+		}
+		return Character.class;
+	}
+
+	/**
+	 * Creates a target and copies the properties of the source.
+	 *
+	 * @param source Source
+	 * @return New target
+	 * @throws Exception thrown by the constructor, a getter or a setter
+	 */
+	public Object map(Object source) throws Exception {
+		Object target = constructor.newInstance();
+		for ( int i = 0; i < getters.length; i++ ) {
+			setters[i].invoke(target, getters[i].invoke(source));
+		}
+		return target;
+	}
+
+	/**
+	 * Creates a target from property values already read.
+	 *
+	 * @param values Property values, in the order of <code>getProperties</code>
+	 * @return New target
+	 * @throws Exception thrown by the constructor or a setter
+	 */
+	public Object create(Object[] values) throws Exception {
+		Object target = constructor.newInstance();
+		for ( int i = 0; i < setters.length; i++ ) {
+			setters[i].invoke(target, values[i]);
+		}
+		return target;
+	}
+
+	/**
+	 * Reads the mapped properties of a source.
+	 *
+	 * @param source Source
+	 * @return Property values, in the order <code>apply</code> takes them
+	 * @throws Exception thrown by a getter
+	 */
+	public Object[] read(Object source) throws Exception {
+		return read(source, getters);
+	}
+
+	/**
+	 * Reads a mapped property of a source.
+	 *
+	 * @param source Source
+	 * @param property Index of the property, see <code>indexOf</code>
+	 * @return Property value
+	 * @throws Exception thrown by the getter
+	 */
+	public Object read(Object source, int property) throws Exception {
+		return getters[property].invoke(source);
+	}
+
+	/**
+	 * Get the mapped property names.
+	 *
+	 * @return Names, a copy
+	 */
+	public String[] getProperties() {
+		return properties.clone();
+	}
+
+	/**
+	 * Get the getters of the mapped properties.
+	 *
+	 * @return Getters, in the order of <code>getProperties</code>, a copy
+	 */
+	public Method[] getGetters() {
+		return getters.clone();
+	}
+
+	/**
+	 * Get the setters of the mapped properties.
+	 *
+	 * @return Setters, in the order of <code>getProperties</code>, a copy
+	 */
+	public Method[] getSetters() {
+		return setters.clone();
+	}
+
+	/**
+	 * Finds a mapped property.
+	 *
+	 * @param property Property name
+	 * @return Index of the property, -1 if it isn't mapped
+	 */
+	public int indexOf(String property) {
+		for ( int i = 0; i < properties.length; i++ ) {
+			if ( properties[i].equals(property) ) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets the changed properties of a target.
+	 *
+	 * @param target Target
+	 * @param values Property values read from the source
+	 * @param changed Properties to set
+	 * @throws Exception thrown by a setter
+	 */
+	public void apply(Object target, Object[] values, boolean[] changed) throws Exception {
+		for ( int i = 0; i < setters.length; i++ ) {
+			if ( changed[i] ) {
+				setters[i].invoke(target, values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Finds the readable properties of a type.
+	 *
+	 * @param type Bean type
+	 * @return Getters
+	 * @throws ConverterManagerException
+	 */
+	public static Method[] getReadMethods(Class<?> type) {
+		PropertyDescriptor[] properties = getReadableProperties(type);
+		Method[] getterArray = new Method[properties.length];
+		for ( int i = 0; i < properties.length; i++ ) {
+			getterArray[i] = properties[i].getReadMethod();
+		}
+		try {
+			AccessibleObject.setAccessible(getterArray, true);
+		} catch ( SecurityException ex ) {
+			// not allowed, calls keep checking access
+		}
+		return getterArray;
+	}
+
+	/**
+	 * Finds the readable properties of a type, in the order of
+	 * <code>getReadMethods</code>.
+	 *
+	 * @param type Bean type
+	 * @return Properties
+	 * @throws ConverterManagerException
+	 */
+	public static PropertyDescriptor[] getReadableProperties(Class<?> type) {
+		List<PropertyDescriptor> readable = new ArrayList<PropertyDescriptor>();
+		for ( PropertyDescriptor property : getProperties(type) ) {
+			Method getter = property.getReadMethod();
+			if ( getter != null && getter.getDeclaringClass() != Object.class ) {
+				readable.add(property);
+			}
+		}
+		return readable.toArray(new PropertyDescriptor[readable.size()]);
+	}
+
+	/**
+	 * Reads the properties of a source.
+	 *
+	 * @param source Source
+	 * @param getters Getters
+	 * @return Property values
+	 * @throws Exception thrown by a getter
+	 */
+	public static Object[] read(Object source, Method[] getters) throws Exception {
+		Object[] values = new Object[getters.length];
+		for ( int i = 0; i < getters.length; i++ ) {
+			values[i] = getters[i].invoke(source);
+		}
+		return values;
+	}
+
+	/**
+	 * Get the source type.
+	 *
+	 * @return Source type
+	 */
+	public Class<?> getSourceType() {
+		return sourceType;
+	}
+
+	/**
+	 * Get the target type.
+	 *
+	 * @return Target type
+	 */
+	public Class<?> getTargetType() {
+		return targetType;
+	}
+}
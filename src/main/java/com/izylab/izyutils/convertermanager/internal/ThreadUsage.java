@@ -0,0 +1,122 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.internal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * CPU time and allocated bytes of the current thread.
+ *
+ * <p>CPU time comes from <code>ThreadMXBean</code>. Allocated bytes come from
+ * <code>com.sun.management.ThreadMXBean</code>, which is not part of the Java
+ * 1.6 API. It is only used through a nested class loaded once the bean is
+ * known to implement it, and called directly so reading the bytes doesn't
+ * allocate. Both are turned on when supported, and read as -1 when not.
+ */
+public final class ThreadUsage {
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final boolean CPU_TIME;
+	private static final boolean ALLOCATED_BYTES;
+
+	static {
+		boolean cpuTime = false;
+		try {
+			if ( THREADS.isCurrentThreadCpuTimeSupported() ) {
+				if ( !THREADS.isThreadCpuTimeEnabled() ) {
+					THREADS.setThreadCpuTimeEnabled(true);
+				}
+				cpuTime = true;
+			}
+		} catch ( RuntimeException ex ) {
+			// not allowed, leave it off
+		}
+		CPU_TIME = cpuTime;
+
+		boolean allocatedBytes = false;
+		try {
+			allocatedBytes = Class.forName("com.sun.management.ThreadMXBean").isInstance(THREADS) //$NON-NLS-1$
+					&& SunThreads.enable();
+		} catch ( Exception ex ) {
+			// not a HotSpot compatible JVM, or not allowed
+		} catch ( LinkageError ex ) {
+			// a com.sun.management.ThreadMXBean without allocated memory
+		}
+		ALLOCATED_BYTES = allocatedBytes;
+	}
+
+	private ThreadUsage() {
+		/* empty */
+	}
+
+	/**
+	 * Test to see if CPU time can be measured.
+	 *
+	 * @return true if supported
+	 */
+	public static boolean isCpuTimeSupported() {
+		return CPU_TIME;
+	}
+
+	/**
+	 * Test to see if allocated bytes can be measured.
+	 *
+	 * @return true if supported
+	 */
+	public static boolean isAllocatedBytesSupported() {
+		return ALLOCATED_BYTES;
+	}
+
+	/**
+	 * CPU time used by the current thread.
+	 *
+	 * @return Nanoseconds, -1 if not supported
+	 */
+	public static long cpuTime() {
+		return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : -1;
+	}
+
+	/**
+	 * Bytes allocated by the current thread.
+	 *
+	 * @return Bytes, -1 if not supported
+	 */
+	public static long allocatedBytes() {
+		return ALLOCATED_BYTES ? SunThreads.allocatedBytes() : -1;
+	}
+
+	// only loaded when the bean is a com.sun.management.ThreadMXBean
+	private static final class SunThreads {
+		private static final com.sun.management.ThreadMXBean THREADS =
+				(com.sun.management.ThreadMXBean) ThreadUsage.THREADS;
+
+		// turns the measure on, false when not supported
+		static boolean enable() {
+			if ( !THREADS.isThreadAllocatedMemorySupported() ) {
+				return false;
+			}
+			if ( !THREADS.isThreadAllocatedMemoryEnabled() ) {
+				THREADS.setThreadAllocatedMemoryEnabled(true);
+			}
+			return true;
+		}
+
+		static long allocatedBytes() {
+			return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Concurrent map keyed by object identity, holding the keys weakly.
+ *
+ * <p>Entries go away once the key is garbage collected. The values must
+ * not reference their key, or it never will be.
+ *
+ * @param <V> Value type
+ */
+public final class WeakIdentityMap<V> {
+	private final ConcurrentMap<Object, V> map = new ConcurrentHashMap<Object, V>();
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+	/**
+	 * Get the value of a key.
+	 *
+	 * @param key Key
+	 * @return Value, null if none
+	 */
+	public V get(Object key) {
+		return map.get(new LookupKey(key));
+	}
+
+	/**
+	 * Set the value of a key.
+	 *
+	 * @param key Key
+	 * @param value Value
+	 */
+	public void put(Object key, V value) {
+		expunge();
+		map.put(new WeakKey(key, queue), value);
+	}
+
+	/**
+	 * Removes the value of a key.
+	 *
+	 * @param key Key
+	 * @return true if there was a value
+	 */
+	public boolean remove(Object key) {
+		expunge();
+		return map.remove(new LookupKey(key)) != null;
+	}
+
+	/**
+	 * Removes all the entries.
+	 */
+	public void clear() {
+		map.clear();
+		expunge();
+	}
+
+	/**
+	 * Number of entries, including the ones whose keys were just collected.
+	 *
+	 * @return Entries
+	 */
+	public int size() {
+		expunge();
+		return map.size();
+	}
+
+	private void expunge() {
+		Reference<? extends Object> cleared;
+		while ( (cleared = queue.poll()) != null ) {
+			map.remove(cleared);
+		}
+	}
+
+	// short lived key for lookups
+	private static final class LookupKey {
+		private final Object key;
+
+		LookupKey(Object key) {
+			this.key = key;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(key);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof WeakKey && ((WeakKey) obj).get() == key;
+		}
+	}
+
+	// stored key, a cleared key only equals itself
+	private static final class WeakKey extends WeakReference<Object> {
+		private final int hash;
+
+		WeakKey(Object key, ReferenceQueue<Object> queue) {
+			super(key, queue);
+			this.hash = System.identityHashCode(key);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if ( obj == this ) {
+				return true;
+			}
+			Object key = get();
+			if ( key == null ) {
+				return false;
+			}
+			if ( obj instanceof LookupKey ) {
+				return ((LookupKey) obj).key == key;
+			}
+			return obj instanceof WeakKey && ((WeakKey) obj).get() == key;
+		}
+	}
+}
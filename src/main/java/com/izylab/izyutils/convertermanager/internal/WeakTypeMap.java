@@ -0,0 +1,225 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Concurrent map keyed by a pair of classes, holding the classes weakly.
+ *
+ * <p>An entry goes away once either class is garbage collected, which can
+ * only happen when the value doesn't reference it. Entries whose value
+ * references a key class are only removed by <code>removeLoadedBy</code>,
+ * when the class loader is unregistered.
+ *
+ * <p>Lookups cost the same as a <code>ConcurrentHashMap</code> lookup,
+ * cleared entries are removed on updates.
+ *
+ * @param <V> Value type
+ */
+public final class WeakTypeMap<V> {
+	private final ConcurrentMap<TypePair, V> map = new ConcurrentHashMap<TypePair, V>();
+	private final ReferenceQueue<Class<?>> queue = new ReferenceQueue<Class<?>>();
+
+	/**
+	 * Get the value of a pair.
+	 *
+	 * @param first First class
+	 * @param second Second class, may be null
+	 * @return Value, null if none
+	 */
+	public V get(Class<?> first, Class<?> second) {
+		return map.get(new LookupKey(first, second));
+	}
+
+	/**
+	 * Set the value of a pair.
+	 *
+	 * @param first First class
+	 * @param second Second class, may be null
+	 * @param value Value
+	 */
+	public void put(Class<?> first, Class<?> second, V value) {
+		expunge();
+		map.put(new WeakKey(first, second, queue), value);
+	}
+
+	/**
+	 * Removes the entries of the classes loaded by a class loader, or by its
+	 * child class loaders.
+	 *
+	 * @param classLoader Class loader
+	 */
+	public void removeLoadedBy(ClassLoader classLoader) {
+		for ( Iterator<TypePair> it = map.keySet().iterator(); it.hasNext(); ) {
+			TypePair key = it.next();
+			Class<?> first = key.first();
+			Class<?> second = key.second();
+			if ( first != null && isLoadedBy(first, classLoader) || second != null && isLoadedBy(second, classLoader) ) {
+				it.remove();
+			}
+		}
+		expunge();
+	}
+
+	/**
+	 * Was a class loaded by a class loader, or by one of its child class
+	 * loaders.
+	 *
+	 * @param type Class
+	 * @param classLoader Class loader
+	 * @return true if the class loader is an ancestor of the class loader of the class
+	 */
+	public static boolean isLoadedBy(Class<?> type, ClassLoader classLoader) {
+		for ( ClassLoader loader = type.getClassLoader(); loader != null; loader = loader.getParent() ) {
+			if ( loader == classLoader ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes all the entries.
+	 */
+	public void clear() {
+		map.clear();
+		expunge();
+	}
+
+	/**
+	 * Number of entries, including the ones whose classes were just collected.
+	 *
+	 * @return Entries
+	 */
+	public int size() {
+		expunge();
+		return map.size();
+	}
+
+	private void expunge() {
+		Reference<? extends Class<?>> cleared;
+		while ( (cleared = queue.poll()) != null ) {
+			map.remove(((KeyRef) cleared).key);
+		}
+	}
+
+	// equality of the stored and lookup keys
+	private static abstract class TypePair {
+		abstract Class<?> first();
+		abstract Class<?> second();
+		abstract boolean hasSecond();
+
+		static int hash(Class<?> first, Class<?> second) {
+			return System.identityHashCode(first) * 31 + (second == null ? 0 : System.identityHashCode(second));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if ( obj == this ) {
+				return true;
+			}
+			if ( !(obj instanceof TypePair) ) {
+				return false;
+			}
+			TypePair other = (TypePair) obj;
+			Class<?> first = first();
+			// a cleared key only equals itself
+			return first != null && first == other.first() && hasSecond() == other.hasSecond()
+					&& second() == other.second();
+		}
+	}
+
+	// short lived key for lookups
+	private static final class LookupKey extends TypePair {
+		private final Class<?> first;
+		private final Class<?> second;
+
+		LookupKey(Class<?> first, Class<?> second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		Class<?> first() {
+			return first;
+		}
+
+		@Override
+		Class<?> second() {
+			return second;
+		}
+
+		@Override
+		boolean hasSecond() {
+			return second != null;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash(first, second);
+		}
+	}
+
+	// stored key, both classes weakly referenced
+	private static final class WeakKey extends TypePair {
+		private final KeyRef first;
+		private final KeyRef second;
+		private final int hash;
+
+		WeakKey(Class<?> first, Class<?> second, ReferenceQueue<Class<?>> queue) {
+			this.first = new KeyRef(first, this, queue);
+			this.second = second == null ? null : new KeyRef(second, this, queue);
+			this.hash = hash(first, second);
+		}
+
+		@Override
+		Class<?> first() {
+			return first.get();
+		}
+
+		@Override
+		Class<?> second() {
+			return second == null ? null : second.get();
+		}
+
+		@Override
+		boolean hasSecond() {
+			return second != null;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	// reference to a key class, finds the key back once cleared
+	private static final class KeyRef extends WeakReference<Class<?>> {
+		final WeakKey key;
+
+		KeyRef(Class<?> referent, WeakKey key, ReferenceQueue<Class<?>> queue) {
+			super(referent, queue);
+			this.key = key;
+		}
+	}
+}
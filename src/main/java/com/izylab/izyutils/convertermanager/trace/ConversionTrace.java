@@ -0,0 +1,127 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.trace;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.izylab.izyutils.convertermanager.ConverterManagerException;
+import com.izylab.izyutils.convertermanager.internal.Message;
+
+/**
+ * Conversions read from a trace file written by a recorder.
+ *
+ * @see ConversionTraceRecorder
+ */
+public final class ConversionTrace {
+	private final List<TraceEntry> entries;
+
+	private ConversionTrace(List<TraceEntry> entries) {
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Reads a trace file.
+	 *
+	 * @param file Trace file
+	 * @return Trace
+	 * @throws ConverterManagerException
+	 */
+	public static ConversionTrace read(File file) {
+		try {
+			FileInputStream in = new FileInputStream(file);
+			try {
+				FileChannel channel = in.getChannel();
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				return new ConversionTrace(parse(buffer, file));
+			} finally {
+				in.close();
+			}
+		} catch ( IOException ex ) {
+			throw new ConverterManagerException(String.format(Message.TRACE_IO_ERROR.getString(), file), ex);
+		}
+	}
+
+	private static List<TraceEntry> parse(ByteBuffer buffer, File file) throws IOException {
+		try {
+			if ( buffer.getInt() != ConversionTraceRecorder.MAGIC
+					|| buffer.getShort() != ConversionTraceRecorder.VERSION ) {
+				throw new ConverterManagerException(String.format(Message.TRACE_INVALID_FILE.getString(), file));
+			}
+			Map<Integer, String> names = new HashMap<Integer, String>();
+			List<TraceEntry> entries = new ArrayList<TraceEntry>();
+			while ( buffer.hasRemaining() ) {
+				byte record = buffer.get();
+				if ( record == ConversionTraceRecorder.CLASS_RECORD ) {
+					int id = buffer.getInt();
+					byte[] name = new byte[buffer.getShort() & 0xffff];
+					buffer.get(name);
+					names.put(Integer.valueOf(id), new String(name, "UTF-8")); //$NON-NLS-1$
+				} else if ( record == ConversionTraceRecorder.ENTRY_RECORD ) {
+					String sourceType = names.get(Integer.valueOf(buffer.getInt()));
+					String targetType = names.get(Integer.valueOf(buffer.getInt()));
+					String converterClass = names.get(Integer.valueOf(buffer.getInt()));
+					int argCount = buffer.get();
+					long latency = buffer.getLong();
+					long offset = buffer.getLong();
+					byte flags = buffer.get();
+					byte[] sample = null;
+					if ( (flags & ConversionTraceRecorder.SAMPLED) != 0 ) {
+						sample = new byte[buffer.getInt()];
+						buffer.get(sample);
+					}
+					entries.add(new TraceEntry(sourceType, targetType, converterClass, argCount, latency, offset,
+							(flags & ConversionTraceRecorder.FAILED) != 0, sample));
+				} else {
+					throw new ConverterManagerException(String.format(Message.TRACE_INVALID_FILE.getString(), file));
+				}
+			}
+			return entries;
+		} catch ( BufferUnderflowException ex ) {
+			// truncated, the recorder was not closed
+			throw new ConverterManagerException(String.format(Message.TRACE_INVALID_FILE.getString(), file), ex);
+		}
+	}
+
+	/**
+	 * Get the conversions, in recording order.
+	 *
+	 * @return Entries
+	 */
+	public List<TraceEntry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Number of conversions.
+	 *
+	 * @return Entry count
+	 */
+	public int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,431 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.trace;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.izylab.izyutils.convertermanager.ConversionEvent;
+import com.izylab.izyutils.convertermanager.ConversionListener;
+import com.izylab.izyutils.convertermanager.ConverterManagerException;
+import com.izylab.izyutils.convertermanager.internal.Message;
+
+/**
+ * Conversion listener writing every conversion to a binary trace file.
+ *
+ * <p><pre>
+ * ConversionTraceRecorder recorder = new ConversionTraceRecorder(new File("conversions.trace"));
+ * recorder.setSampleRate(100);
+ * converterManager.addConversionListener(recorder);
+ * ...
+ * converterManager.removeConversionListener(recorder);
+ * recorder.close();
+ * </pre>
+ *
+ * <p>Each entry holds the source type, target type, converter, number of
+ * arguments, latency and start time. With a sample rate, one entry out of
+ * that many also holds the serialized source and arguments, when they are
+ * all serializable. Entries are buffered and written with a
+ * <code>FileChannel</code>, the file is complete once closed.
+ *
+ * <p>Converting threads only capture the entry, serializing the sample
+ * themselves, and hand it to a bounded queue. A single writer thread
+ * drains the queue into the file. When the queue is full the entry is
+ * dropped and counted, conversions never wait for the disk. Write errors
+ * are thrown by {@link #flush()} and {@link #close()}.
+ *
+ * @see ConversionTrace
+ * @see ConversionTraceReplayer
+ */
+public class ConversionTraceRecorder implements ConversionListener, Closeable {
+	static final int MAGIC = 0x434d5452; // CMTR
+	static final short VERSION = 1;
+	static final byte CLASS_RECORD = 1;
+	static final byte ENTRY_RECORD = 2;
+	static final byte FAILED = 1;
+	static final byte SAMPLED = 2;
+
+	/** Default number of entries waiting to be written. */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	// largest entry without a sample: 3 ids, count, 2 longs, flags
+	private static final int ENTRY_SIZE = 1 + 4 * 3 + 1 + 8 * 2 + 1;
+
+	private final File file;
+	private final FileChannel channel;
+	private final BlockingQueue<Entry> queue;
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final long startNanos = System.nanoTime();
+	private volatile int sampleRate;
+	private volatile boolean closed;
+	// written by the writer thread only
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+	private final Map<Class<?>, Integer> classIds = new HashMap<Class<?>, Integer>();
+	private volatile IOException failure;
+
+	/**
+	 * Creates a recorder, replacing the file.
+	 *
+	 * @param file Trace file
+	 * @throws ConverterManagerException
+	 */
+	public ConversionTraceRecorder(File file) {
+		this(file, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a recorder, replacing the file.
+	 *
+	 * @param file Trace file
+	 * @param capacity Number of entries waiting to be written, more are dropped
+	 * @throws ConverterManagerException
+	 */
+	public ConversionTraceRecorder(File file, int capacity) {
+		if ( capacity < 1 ) {
+			throw new ConverterManagerException(String.format(Message.TRACE_INVALID_CAPACITY.getString(),
+					Integer.valueOf(capacity)));
+		}
+		this.file = file;
+		this.queue = new ArrayBlockingQueue<Entry>(capacity);
+		try {
+			this.channel = new FileOutputStream(file).getChannel();
+			buffer.putInt(MAGIC);
+			buffer.putShort(VERSION);
+		} catch ( IOException ex ) {
+			throw new ConverterManagerException(String.format(Message.TRACE_IO_ERROR.getString(), file), ex);
+		}
+		Thread writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "conversion-trace-writer"); //$NON-NLS-1$
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Set how often the source and arguments are saved.
+	 *
+	 * @param sampleRate One entry out of this many holds them, 0 for none
+	 * @throws ConverterManagerException
+	 */
+	public void setSampleRate(int sampleRate) {
+		if ( sampleRate < 0 ) {
+			throw new ConverterManagerException(String.format(Message.TRACE_INVALID_SAMPLE_RATE.getString(),
+					Integer.valueOf(sampleRate)));
+		}
+		this.sampleRate = sampleRate;
+		count.set(0);
+	}
+
+	/**
+	 * Get the number of entries dropped because the queue was full.
+	 *
+	 * @return Dropped entries
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	@Override
+	public void beforeConversion(ConversionEvent event) {
+		/* entries are written once the latency is known */
+	}
+
+	@Override
+	public void afterConversion(ConversionEvent event, Object result) {
+		record(event, false);
+	}
+
+	@Override
+	public void conversionFailed(ConversionEvent event, RuntimeException cause) {
+		record(event, true);
+	}
+
+	// runs on the converting thread, the sample is taken before the source changes
+	private void record(ConversionEvent event, boolean failed) {
+		if ( closed ) {
+			return;
+		}
+		int rate = sampleRate;
+		byte[] sample = null;
+		if ( rate > 0 && (count.getAndIncrement() % rate) == 0 ) {
+			sample = sample(event);
+		}
+		Entry entry = new Entry(event, failed, sample);
+		if ( !queue.offer(entry) ) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	// writer thread, until the close marker
+	private void drain() {
+		List<Entry> entries = new ArrayList<Entry>();
+		while ( true ) {
+			try {
+				entries.add(queue.take());
+			} catch ( InterruptedException ex ) {
+				// only the close marker stops the writer
+				continue;
+			}
+			queue.drainTo(entries);
+			for ( Entry entry : entries ) {
+				if ( entry.done == null ) {
+					write(entry);
+					continue;
+				}
+				try {
+					if ( failure == null ) {
+						flushBuffer();
+					}
+				} catch ( IOException ex ) {
+					failure = ex;
+				}
+				entry.done.countDown();
+				if ( entry.close ) {
+					return;
+				}
+			}
+			entries.clear();
+		}
+	}
+
+	private void write(Entry entry) {
+		if ( failure != null ) {
+			return;
+		}
+		try {
+			int sourceId = classId(entry.sourceType);
+			int targetId = classId(entry.targetType);
+			int converterId = classId(entry.converterClass);
+			reserve(ENTRY_SIZE);
+			buffer.put(ENTRY_RECORD);
+			buffer.putInt(sourceId);
+			buffer.putInt(targetId);
+			buffer.putInt(converterId);
+			buffer.put(entry.argCount);
+			buffer.putLong(entry.elapsedNanos);
+			buffer.putLong(entry.startNanos - startNanos);
+			buffer.put((byte) ((entry.failed ? FAILED : 0) | (entry.sample != null ? SAMPLED : 0)));
+			if ( entry.sample != null ) {
+				reserve(4);
+				buffer.putInt(entry.sample.length);
+				write(entry.sample);
+			}
+		} catch ( IOException ex ) {
+			failure = ex;
+		}
+	}
+
+	// serialized source followed by the arguments, null if any of them can't be
+	private static byte[] sample(ConversionEvent event) {
+		Object[] args = event.getArgs();
+		Object[] values = new Object[args.length + 1];
+		values[0] = event.getSource();
+		System.arraycopy(args, 0, values, 1, args.length);
+		for ( Object value : values ) {
+			if ( value != null && !(value instanceof Serializable) ) {
+				return null;
+			}
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(values);
+			out.close();
+			return bytes.toByteArray();
+		} catch ( IOException ex ) {
+			// a field that isn't serializable
+			return null;
+		}
+	}
+
+	// id of the class, writing its name the first time it is seen
+	private int classId(Class<?> type) throws IOException {
+		Integer id = classIds.get(type);
+		if ( id != null ) {
+			return id.intValue();
+		}
+		byte[] name = type.getName().getBytes("UTF-8"); //$NON-NLS-1$
+		int newId = classIds.size();
+		reserve(1 + 4 + 2);
+		buffer.put(CLASS_RECORD);
+		buffer.putInt(newId);
+		buffer.putShort((short) name.length);
+		write(name);
+		classIds.put(type, Integer.valueOf(newId));
+		return newId;
+	}
+
+	private void reserve(int size) throws IOException {
+		if ( buffer.remaining() < size ) {
+			flushBuffer();
+		}
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		if ( buffer.remaining() < bytes.length ) {
+			flushBuffer();
+		}
+		if ( bytes.length > buffer.capacity() ) {
+			ByteBuffer large = ByteBuffer.wrap(bytes);
+			while ( large.hasRemaining() ) {
+				channel.write(large);
+			}
+		} else {
+			buffer.put(bytes);
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		while ( buffer.hasRemaining() ) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes the buffered entries to the file.
+	 *
+	 * @throws ConverterManagerException
+	 */
+	public synchronized void flush() {
+		if ( closed ) {
+			return;
+		}
+		await(Entry.marker(false));
+		checkFailure();
+	}
+
+	/**
+	 * Writes the buffered entries and closes the file. Later conversions
+	 * are ignored.
+	 *
+	 * @throws ConverterManagerException
+	 */
+	@Override
+	public synchronized void close() {
+		if ( closed ) {
+			return;
+		}
+		closed = true;
+		await(Entry.marker(true));
+		try {
+			channel.close();
+		} catch ( IOException ex ) {
+			if ( failure == null ) {
+				failure = ex;
+			}
+		}
+		checkFailure();
+	}
+
+	// queues a marker behind the entries recorded so far and waits for the writer to reach it
+	private void await(Entry marker) {
+		boolean interrupted = false;
+		try {
+			while ( true ) {
+				try {
+					queue.put(marker);
+					break;
+				} catch ( InterruptedException ex ) {
+					interrupted = true;
+				}
+			}
+			while ( true ) {
+				try {
+					marker.done.await();
+					break;
+				} catch ( InterruptedException ex ) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if ( interrupted ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void checkFailure() {
+		if ( failure != null ) {
+			throw new ConverterManagerException(String.format(Message.TRACE_IO_ERROR.getString(), file), failure);
+		}
+	}
+
+	// a conversion captured on the converting thread, or a flush or close marker
+	private static final class Entry {
+		final Class<?> sourceType;
+		final Class<?> targetType;
+		final Class<?> converterClass;
+		final byte argCount;
+		final long elapsedNanos;
+		final long startNanos;
+		final boolean failed;
+		final byte[] sample;
+		final CountDownLatch done;
+		final boolean close;
+
+		Entry(ConversionEvent event, boolean failed, byte[] sample) {
+			this.sourceType = event.getSourceType();
+			this.targetType = event.getTargetType();
+			this.converterClass = event.getConverterClass();
+			this.argCount = (byte) Math.min(event.getArgCount(), Byte.MAX_VALUE);
+			this.elapsedNanos = event.getElapsedNanos();
+			this.startNanos = event.getStartNanos();
+			this.failed = failed;
+			this.sample = sample;
+			this.done = null;
+			this.close = false;
+		}
+
+		private Entry(boolean close) {
+			this.sourceType = null;
+			this.targetType = null;
+			this.converterClass = null;
+			this.argCount = 0;
+			this.elapsedNanos = 0;
+			this.startNanos = 0;
+			this.failed = false;
+			this.sample = null;
+			this.done = new CountDownLatch(1);
+			this.close = close;
+		}
+
+		static Entry marker(boolean close) {
+			return new Entry(close);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.trace;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.izylab.izyutils.convertermanager.ConverterManager;
+import com.izylab.izyutils.convertermanager.ConverterManagerException;
+import com.izylab.izyutils.convertermanager.internal.Message;
+
+/**
+ * Replays a recorded trace against a converter manager.
+ *
+ * <p><pre>
+ * ConversionTraceReplayer replayer =
+ *     new ConversionTraceReplayer(converterManager, ConversionTrace.read(new File("conversions.trace")));
+ * replayer.setThreads(8);
+ * replayer.setRate(20000);
+ * ReplayResult result = replayer.replay();
+ * </pre>
+ *
+ * <p>Entries are converted in trace order, spread over the threads. Entries
+ * without a saved source come from the sample provider, and are skipped
+ * when there is none or when their target type can't be loaded. The source
+ * and arguments are prepared before the replay starts so they are not part
+ * of the measures.
+ */
+public class ConversionTraceReplayer {
+	private final ConverterManager converterManager;
+	private final ConversionTrace trace;
+	private int threads = 1;
+	private double rate;
+	private TraceSampleProvider sampleProvider;
+	private ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+	/**
+	 * Creates a replayer.
+	 *
+	 * @param converterManager Converter manager to drive
+	 * @param trace Recorded trace
+	 */
+	public ConversionTraceReplayer(ConverterManager converterManager, ConversionTrace trace) {
+		this.converterManager = converterManager;
+		this.trace = trace;
+	}
+
+	/**
+	 * Set the number of converting threads.
+	 *
+	 * @param threads Threads, default 1
+	 * @throws ConverterManagerException
+	 */
+	public void setThreads(int threads) {
+		if ( threads < 1 ) {
+			throw new ConverterManagerException(String.format(Message.TRACE_INVALID_THREADS.getString(),
+					Integer.valueOf(threads)));
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Set the number of conversions started per second, across all threads.
+	 *
+	 * @param rate Conversions per second, 0 for as fast as possible
+	 * @throws ConverterManagerException
+	 */
+	public void setRate(double rate) {
+		if ( rate < 0 || Double.isNaN(rate) ) {
+			throw new ConverterManagerException(String.format(Message.TRACE_INVALID_RATE.getString(),
+					Double.valueOf(rate)));
+		}
+		this.rate = rate;
+	}
+
+	/**
+	 * Set the provider of the entries that were not sampled.
+	 *
+	 * @param sampleProvider Provider, null to skip them
+	 */
+	public void setSampleProvider(TraceSampleProvider sampleProvider) {
+		this.sampleProvider = sampleProvider;
+	}
+
+	/**
+	 * Set the class loader of the target types.
+	 *
+	 * @param classLoader Class loader
+	 */
+	public void setClassLoader(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * Replays the trace once.
+	 *
+	 * @return Measures
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	public ReplayResult replay() throws InterruptedException {
+		final List<Object[]> samples = new ArrayList<Object[]>(trace.size());
+		final List<Class<?>> targets = new ArrayList<Class<?>>(trace.size());
+		int skipped = prepare(samples, targets);
+
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicInteger failures = new AtomicInteger();
+		final AtomicLong totalLatency = new AtomicLong();
+		final AtomicLong maxLatency = new AtomicLong();
+		final long interval = rate == 0 ? 0 : (long) (1000000000L / rate);
+		final long start = System.nanoTime();
+
+		Thread[] workers = new Thread[threads];
+		for ( int i = 0; i < workers.length; i++ ) {
+			workers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					int index;
+					while ( (index = next.getAndIncrement()) < samples.size() ) {
+						if ( interval > 0 ) {
+							long wait;
+							while ( (wait = start + index * interval - System.nanoTime()) > 0 ) {
+								LockSupport.parkNanos(wait);
+							}
+						}
+						Object[] values = samples.get(index);
+						Object[] args = new Object[values.length - 1];
+						System.arraycopy(values, 1, args, 0, args.length);
+						long before = System.nanoTime();
+						try {
+							converterManager.convert(values[0], targets.get(index), args);
+						} catch ( RuntimeException ex ) {
+							failures.incrementAndGet();
+						}
+						long latency = System.nanoTime() - before;
+						totalLatency.addAndGet(latency);
+						long max;
+						while ( latency > (max = maxLatency.get()) && !maxLatency.compareAndSet(max, latency) ) {
+							/* retry */
+						}
+					}
+				}
+			}, "trace-replay-" + i); //$NON-NLS-1$
+			workers[i].start();
+		}
+		for ( Thread worker : workers ) {
+			worker.join();
+		}
+		return new ReplayResult(samples.size(), failures.get(), skipped, System.nanoTime() - start,
+				totalLatency.get(), maxLatency.get());
+	}
+
+	// builds the values and target types to convert, returns the number of skipped entries
+	private int prepare(List<Object[]> samples, List<Class<?>> targets) {
+		Map<String, Class<?>> types = new HashMap<String, Class<?>>();
+		int skipped = 0;
+		for ( TraceEntry entry : trace.getEntries() ) {
+			Class<?> target = types.get(entry.getTargetType());
+			if ( target == null && !types.containsKey(entry.getTargetType()) ) {
+				try {
+					target = Class.forName(entry.getTargetType(), false, classLoader);
+				} catch ( ClassNotFoundException ex ) {
+					target = null;
+				}
+				types.put(entry.getTargetType(), target);
+			}
+			Object[] values = entry.isSampled() ? entry.getSample()
+					: (sampleProvider == null ? null : sampleProvider.createSample(entry));
+			if ( target == null || values == null || values.length == 0 || values[0] == null ) {
+				skipped++;
+				continue;
+			}
+			samples.add(values);
+			targets.add(target);
+		}
+		return skipped;
+	}
+}
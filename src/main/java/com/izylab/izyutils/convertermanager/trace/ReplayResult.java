@@ -0,0 +1,109 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.trace;
+
+/**
+ * Measures of a trace replay.
+ */
+public final class ReplayResult {
+	private final int conversions;
+	private final int failures;
+	private final int skipped;
+	private final long elapsedNanos;
+	private final long totalLatencyNanos;
+	private final long maxLatencyNanos;
+
+	ReplayResult(int conversions, int failures, int skipped, long elapsedNanos,
+			long totalLatencyNanos, long maxLatencyNanos) {
+		this.conversions = conversions;
+		this.failures = failures;
+		this.skipped = skipped;
+		this.elapsedNanos = elapsedNanos;
+		this.totalLatencyNanos = totalLatencyNanos;
+		this.maxLatencyNanos = maxLatencyNanos;
+	}
+
+	/**
+	 * Number of conversions done, including the failed ones.
+	 *
+	 * @return Conversions
+	 */
+	public int getConversions() {
+		return conversions;
+	}
+
+	/**
+	 * Number of conversions that threw an exception.
+	 *
+	 * @return Failures
+	 */
+	public int getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Number of entries that had nothing to convert.
+	 *
+	 * @return Skipped entries
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * Wall clock time of the replay.
+	 *
+	 * @return Nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Average conversion latency.
+	 *
+	 * @return Nanoseconds, 0 without conversions
+	 */
+	public long getAverageLatencyNanos() {
+		return conversions == 0 ? 0 : totalLatencyNanos / conversions;
+	}
+
+	/**
+	 * Longest conversion latency.
+	 *
+	 * @return Nanoseconds
+	 */
+	public long getMaxLatencyNanos() {
+		return maxLatencyNanos;
+	}
+
+	/**
+	 * Conversions per second.
+	 *
+	 * @return Throughput
+	 */
+	public double getThroughput() {
+		return elapsedNanos == 0 ? 0 : conversions * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d conversions, %d failures, %d skipped, %.1f/s, avg %d ns, max %d ns", //$NON-NLS-1$
+				Integer.valueOf(conversions), Integer.valueOf(failures), Integer.valueOf(skipped),
+				Double.valueOf(getThroughput()), Long.valueOf(getAverageLatencyNanos()), Long.valueOf(maxLatencyNanos));
+	}
+}
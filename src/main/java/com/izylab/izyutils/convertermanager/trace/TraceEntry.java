@@ -0,0 +1,149 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.trace;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+import com.izylab.izyutils.convertermanager.ConverterManagerException;
+import com.izylab.izyutils.convertermanager.internal.Message;
+
+/**
+ * Conversion read from a trace file.
+ *
+ * <p>Types are kept by name so a trace can be read without the converters
+ * that recorded it.
+ */
+public final class TraceEntry {
+	private final String sourceType;
+	private final String targetType;
+	private final String converterClass;
+	private final int argCount;
+	private final long latencyNanos;
+	private final long offsetNanos;
+	private final boolean failed;
+	private final byte[] sample;
+
+	TraceEntry(String sourceType, String targetType, String converterClass, int argCount,
+			long latencyNanos, long offsetNanos, boolean failed, byte[] sample) {
+		this.sourceType = sourceType;
+		this.targetType = targetType;
+		this.converterClass = converterClass;
+		this.argCount = argCount;
+		this.latencyNanos = latencyNanos;
+		this.offsetNanos = offsetNanos;
+		this.failed = failed;
+		this.sample = sample;
+	}
+
+	/**
+	 * Name of the source type.
+	 *
+	 * @return Class name
+	 */
+	public String getSourceType() {
+		return sourceType;
+	}
+
+	/**
+	 * Name of the target type.
+	 *
+	 * @return Class name
+	 */
+	public String getTargetType() {
+		return targetType;
+	}
+
+	/**
+	 * Name of the converter class.
+	 *
+	 * @return Class name
+	 */
+	public String getConverterClass() {
+		return converterClass;
+	}
+
+	/**
+	 * Number of additional arguments.
+	 *
+	 * @return Argument count
+	 */
+	public int getArgCount() {
+		return argCount;
+	}
+
+	/**
+	 * Time the recorded conversion took.
+	 *
+	 * @return Nanoseconds
+	 */
+	public long getLatencyNanos() {
+		return latencyNanos;
+	}
+
+	/**
+	 * Time between the start of the recording and the start of the conversion.
+	 *
+	 * @return Nanoseconds
+	 */
+	public long getOffsetNanos() {
+		return offsetNanos;
+	}
+
+	/**
+	 * Test to see if the recorded conversion failed.
+	 *
+	 * @return true if it failed
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * Test to see if the source and arguments were saved.
+	 *
+	 * @return true if sampled
+	 */
+	public boolean isSampled() {
+		return sample != null;
+	}
+
+	/**
+	 * Reads a new copy of the saved source and arguments.
+	 *
+	 * @return Source followed by the arguments, null if not sampled
+	 * @throws ConverterManagerException
+	 */
+	public Object[] getSample() {
+		if ( sample == null ) {
+			return null;
+		}
+		try {
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(sample));
+			try {
+				return (Object[]) in.readObject();
+			} finally {
+				in.close();
+			}
+		} catch ( IOException ex ) {
+			throw new ConverterManagerException(String.format(Message.TRACE_INVALID_SAMPLE.getString(), sourceType), ex);
+		} catch ( ClassNotFoundException ex ) {
+			throw new ConverterManagerException(String.format(Message.TRACE_INVALID_SAMPLE.getString(), sourceType), ex);
+		}
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.trace;
+
+/**
+ * Creates the source and arguments of trace entries that were not sampled.
+ *
+ * @see ConversionTraceReplayer#setSampleProvider(TraceSampleProvider)
+ */
+public interface TraceSampleProvider {
+	/**
+	 * Creates the values to convert for an entry.
+	 *
+	 * @param entry Trace entry
+	 * @return Source followed by the arguments, null to skip the entry
+	 */
+	Object[] createSample(TraceEntry entry);
+}
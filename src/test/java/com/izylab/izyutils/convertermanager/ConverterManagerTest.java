@@ -17,32 +17,89 @@
 package com.izylab.izyutils.convertermanager;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import javax.management.ObjectName;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 import com.izylab.izyutils.convertermanager.ConverterManager;
+import com.izylab.izyutils.convertermanager.classes.IsolatedBean;
+import com.izylab.izyutils.convertermanager.classes.IsolatedDate;
+import com.izylab.izyutils.convertermanager.classes.IsolatedStatus;
+import com.izylab.izyutils.convertermanager.classes.LegacyStatus;
 import com.izylab.izyutils.convertermanager.classes.MyChildClass;
 import com.izylab.izyutils.convertermanager.classes.MyConcreteClass;
+import com.izylab.izyutils.convertermanager.classes.MyHolderClass;
 import com.izylab.izyutils.convertermanager.classes.MyImplementationClass;
 import com.izylab.izyutils.convertermanager.classes.MyMultiImplementationClass;
 import com.izylab.izyutils.convertermanager.classes.MyObjectClass;
+import com.izylab.izyutils.convertermanager.classes.OrderStatus;
+import com.izylab.izyutils.convertermanager.classes.PersonContact;
+import com.izylab.izyutils.convertermanager.classes.PersonEntity;
+import com.izylab.izyutils.convertermanager.classes.PersonRow;
+import com.izylab.izyutils.convertermanager.classes.PersonSummary;
+import com.izylab.izyutils.convertermanager.classes.PersonView;
+import com.izylab.izyutils.convertermanager.converter.BrokenLongConverter;
+import com.izylab.izyutils.convertermanager.converter.CandidateLongConverter;
+import com.izylab.izyutils.convertermanager.converter.CountingSequenceConverter;
+import com.izylab.izyutils.convertermanager.converter.DateStringConverter;
 import com.izylab.izyutils.convertermanager.converter.EmptyConverter;
+import com.izylab.izyutils.convertermanager.converter.HexLongConverter;
+import com.izylab.izyutils.convertermanager.converter.IsolatedConverter;
+import com.izylab.izyutils.convertermanager.converter.IterableStringConverter;
 import com.izylab.izyutils.convertermanager.converter.NoArgsConverter;
+import com.izylab.izyutils.convertermanager.converter.NoDefaultConstructorConverter;
 import com.izylab.izyutils.convertermanager.converter.NoReturnConverter;
+import com.izylab.izyutils.convertermanager.converter.OrderStatusConverter;
+import com.izylab.izyutils.convertermanager.converter.PersonViewConverter;
+import com.izylab.izyutils.convertermanager.converter.PrimitiveTargetConverter;
 import com.izylab.izyutils.convertermanager.converter.PrivateMethodConverter;
+import com.izylab.izyutils.convertermanager.converter.PureConverter;
 import com.izylab.izyutils.convertermanager.converter.SameTypeConverter;
+import com.izylab.izyutils.convertermanager.converter.SlowLongConverter;
+import com.izylab.izyutils.convertermanager.converter.StringHolderConverter;
 import com.izylab.izyutils.convertermanager.converter.StringNumberConverter;
 import com.izylab.izyutils.convertermanager.converter.StringLongDuplicateConverter;
+import com.izylab.izyutils.convertermanager.internal.ConverterInstances;
 import com.izylab.izyutils.convertermanager.internal.Message;
 
 @SuppressWarnings("nls")
@@ -53,6 +110,9 @@ public class ConverterManagerTest {
 	@Rule
 	public ExpectedException expectedEx = ExpectedException.none();
 	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
 	@Before
 	public void setup() {
 		cm.clearConverters();
@@ -312,6 +372,1307 @@ public class ConverterManagerTest {
 		assertThat(value, is("100"));
 	}
 	
+	@Test
+	public void testConvertInto() {
+		cm.registerConverter(new StringHolderConverter());
+		MyHolderClass holder = new MyHolderClass();
+		MyHolderClass filled = cm.convertInto("20", holder);
+		assertTrue(holder == filled);
+		assertThat(holder.getValue(), is(20L));
+		
+		cm.convertInto(10L, holder, 5L);
+		assertThat(holder.getValue(), is(15L));
+	}
+	
+	@Test
+	public void testConvertIntoNullSource() {
+		MyHolderClass holder = new MyHolderClass();
+		assertThat(cm.convertInto(null, holder), is(sameInstance(holder)));
+	}
+	
+	@Test
+	public void testConvertIntoNoConverter() {
+	    expectedEx.expect(ConversionFailedException.class);
+	    expectedEx.expectMessage(String.format(Message.CONV_NO_CONVERTER.getString(), String.class, MyHolderClass.class));
+		cm.registerConverter(new StringNumberConverter());
+		cm.convertInto("20", new MyHolderClass());
+	}
+	
+	@Test
+	public void testConvertIntoMoreArgs() {
+	    expectedEx.expect(ConversionFailedException.class);
+	    expectedEx.expectMessage(String.format(Message.CONV_MORE_ARGS.getString(),
+	    		String.class, MyHolderClass.class, StringHolderConverter.class));
+		cm.registerConverter(new StringHolderConverter());
+		cm.convertInto("20", new MyHolderClass(), 1L);
+	}
+	
+	@Test
+	public void testIntoPrimitiveTarget() {
+	    expectedEx.expect(ConverterManagerException.class);
+	    expectedEx.expectMessage(Message.INTO_PRIMITIVE_TARGET.getString());
+		cm.registerConverter(new PrimitiveTargetConverter());
+	}
+	
+	@Test
+	public void testConvertPooled() {
+		cm.registerConverter(new StringHolderConverter());
+		TargetPool<MyHolderClass> pool = new TargetPool<MyHolderClass>(MyHolderClass.class, 1);
+		MyHolderClass first = cm.convertPooled("1", pool);
+		assertThat(first.getValue(), is(1L));
+		pool.release(first);
+		pool.release(new MyHolderClass());
+		assertThat(pool.size(), is(1));
+		
+		MyHolderClass second = cm.convertPooled("2", pool);
+		assertThat(second, is(sameInstance(first)));
+		assertThat(second.getValue(), is(2L));
+		assertThat(pool.size(), is(0));
+	}
+	
+	@Test
+	public void testConvertLazy() {
+		CountingSequenceConverter converter = new CountingSequenceConverter();
+		cm.registerConverter(converter);
+		CharSequence lazy = cm.convertLazy(120L, CharSequence.class);
+		assertThat(lazy, is(notNullValue()));
+		assertThat(converter.getCalls(), is(0));
+		
+		assertThat(lazy.length(), is(3));
+		assertThat(lazy.charAt(0), is('1'));
+		assertThat(lazy.toString(), is("120"));
+		assertThat(converter.getCalls(), is(1));
+	}
+	
+	@Test
+	public void testConvertLazyNotInterface() {
+	    expectedEx.expect(ConversionFailedException.class);
+	    expectedEx.expectMessage(String.format(Message.CONV_LAZY_NOT_INTERFACE.getString(), String.class));
+		cm.registerConverter(new StringNumberConverter());
+		cm.convertLazy(20L, String.class);
+	}
+	
+	@Test
+	public void testConvertLazyNoConverter() {
+	    expectedEx.expect(ConversionFailedException.class);
+	    expectedEx.expectMessage(String.format(Message.CONV_NO_CONVERTER.getString(), Long.class, CharSequence.class));
+		cm.convertLazy(20L, CharSequence.class);
+	}
+	
+	@Test
+	public void testThreadLocalScope() throws InterruptedException {
+		DateStringConverter.INSTANCES.set(0);
+		cm.registerConverter(DateStringConverter.class, ConverterScope.THREAD_LOCAL);
+		assertThat(DateStringConverter.INSTANCES.get(), is(0));
+		
+		assertThat(cm.convert(new Date(0), String.class), is("1970-01-01"));
+		Thread other = new Thread() {
+			@Override
+			public void run() {
+				cm.convert(new Date(0), String.class);
+			}
+		};
+		other.start();
+		other.join();
+		cm.convert(new Date(0), String.class);
+		assertThat(DateStringConverter.INSTANCES.get(), is(2));
+	}
+	
+	@Test
+	public void testPooledScope() {
+		DateStringConverter.INSTANCES.set(0);
+		cm.registerConverter(DateStringConverter.class, new ConverterFactory<DateStringConverter>() {
+			@Override
+			public DateStringConverter createConverter() {
+				return new DateStringConverter();
+			}
+		}, ConverterScope.POOLED);
+		cm.convert(new Date(0), String.class);
+		cm.convert(new Date(0), String.class);
+		assertThat(DateStringConverter.INSTANCES.get(), is(1));
+	}
+	
+	@Test
+	public void testPooledScopeIsBounded() {
+		DateStringConverter.INSTANCES.set(0);
+		ConverterInstances instances = ConverterInstances.create(new ConverterFactory<DateStringConverter>() {
+			@Override
+			public DateStringConverter createConverter() {
+				return new DateStringConverter();
+			}
+		}, ConverterScope.POOLED);
+		int capacity = Runtime.getRuntime().availableProcessors();
+		List<Object> borrowed = new ArrayList<Object>();
+		for ( int i = 0; i < capacity + 2; i++ ) {
+			borrowed.add(instances.acquire());
+		}
+		for ( Object converter : borrowed ) {
+			instances.release(converter);
+		}
+		borrowed.clear();
+		// the extra ones were dropped
+		for ( int i = 0; i < capacity + 2; i++ ) {
+			borrowed.add(instances.acquire());
+		}
+		assertThat(DateStringConverter.INSTANCES.get(), is(capacity + 4));
+	}
+	
+	@Test
+	public void testSingletonScope() {
+		DateStringConverter.INSTANCES.set(0);
+		cm.registerConverter(DateStringConverter.class, ConverterScope.SINGLETON);
+		assertThat(DateStringConverter.INSTANCES.get(), is(1));
+		cm.convert(new Date(0), String.class);
+		assertThat(DateStringConverter.INSTANCES.get(), is(1));
+	}
+	
+	@Test
+	public void testScopedStaticMethods() {
+		cm.registerConverter(StringNumberConverter.class, ConverterScope.THREAD_LOCAL);
+		assertThat(cm.convert("20", Long.class), is(20L));
+	}
+	
+	@Test
+	public void testScopedNoDefaultConstructor() {
+	    expectedEx.expect(ConverterManagerException.class);
+	    expectedEx.expectMessage(Message.CONVERTER_NO_DEFAULT_CONSTRUCTOR.getString());
+		cm.registerConverter(NoDefaultConstructorConverter.class, ConverterScope.POOLED);
+	}
+	
+	@Test
+	public void testStaticClass() {
+		cm.registerConverter(StringNumberConverter.class);
+		assertThat(cm.convert("20", Long.class), is(20L));
+		assertThat(cm.convert(20, String.class, true), is("20"));
+	}
+	
+	@Test
+	public void testStaticClassNotStatic() {
+	    expectedEx.expect(ConverterManagerException.class);
+	    expectedEx.expectMessage(Message.NOT_STATIC.getString());
+		cm.registerConverter(MyObjectClass.class);
+	}
+	
+	@Test
+	public void testStaticClassDoubleRegister() {
+	    expectedEx.expect(ConverterManagerException.class);
+	    expectedEx.expectMessage(Message.CONVERTER_ALREADY_REGISTERED.getString());
+		cm.registerConverter(StringNumberConverter.class);
+		cm.registerConverter(new StringNumberConverter());
+	}
+	
+	@Test
+	public void testStaticClassSimilarRegister() {
+	    expectedEx.expect(ConverterManagerException.class);
+	    expectedEx.expectMessage(String.format(Message.CONVERTER_SIMILAR_FOUND.getString(),
+	    		StringLongDuplicateConverter.class, StringNumberConverter.class));
+		cm.registerConverter(StringNumberConverter.class);
+		cm.registerConverter(StringLongDuplicateConverter.class);
+	}
+	
+	@Test
+	public void testStaticClassNull() {
+	    expectedEx.expect(ConverterManagerException.class);
+	    expectedEx.expectMessage(Message.CONVERTER_CANNOT_BE_NULL.getString());
+		cm.registerConverter((Class<?>) null);
+	}
+	
+	@Test
+	public void testSetConvertersStaticClass() {
+		List<Object> converters = Arrays.asList(new Object[] { StringNumberConverter.class });
+		
+		cm.setConverters(converters);
+		assertThat(cm.canConvert(String.class, Long.class), is(true));
+	}
+	
+	@Test
+	public void testConversionListener() {
+		cm.registerConverter(new StringNumberConverter());
+		final List<String> calls = new ArrayList<String>();
+		ConversionListener listener = new ConversionListener() {
+			@Override
+			public void beforeConversion(ConversionEvent event) {
+				calls.add("before " + event.getSourceType().getSimpleName() + " " + event.getElapsedNanos());
+			}
+			@Override
+			public void afterConversion(ConversionEvent event, Object result) {
+				calls.add("after " + result + " " + event.getConverterClass().getSimpleName());
+			}
+			@Override
+			public void conversionFailed(ConversionEvent event, RuntimeException cause) {
+				calls.add("failed " + cause.getClass().getSimpleName());
+			}
+		};
+		cm.addConversionListener(listener);
+		assertThat(cm.convert("12", Long.class), is(12L));
+		try {
+			cm.convert("x", Long.class);
+		} catch ( ConversionFailedException ex ) {
+			// expected
+		}
+		assertThat(cm.removeConversionListener(listener), is(true));
+		cm.convert("13", Long.class);
+		assertThat(calls, is(Arrays.asList("before String -1", "after 12 StringNumberConverter",
+				"before String -1", "failed ConversionFailedException")));
+	}
+	
+	@Test
+	public void testConversionListenerFailureIgnored() {
+		cm.registerConverter(new StringNumberConverter());
+		cm.addConversionListener(new ConversionListener() {
+			@Override
+			public void beforeConversion(ConversionEvent event) {
+				throw new IllegalStateException();
+			}
+			@Override
+			public void afterConversion(ConversionEvent event, Object result) {
+				throw new IllegalStateException();
+			}
+			@Override
+			public void conversionFailed(ConversionEvent event, RuntimeException cause) {
+				throw new IllegalStateException();
+			}
+		});
+		assertThat(cm.convert("12", Long.class), is(12L));
+	}
+	
+	@Test
+	public void testNullConversionListener() {
+	    expectedEx.expect(ConverterManagerException.class);
+	    expectedEx.expectMessage(Message.LISTENER_CANNOT_BE_NULL.getString());
+		cm.addConversionListener(null);
+	}
+	
+	@Test
+	public void testSlowConversionDetector() {
+		cm.registerConverter(new StringNumberConverter());
+		cm.registerConverter(new DateStringConverter());
+		SlowConversionDetector detector = new SlowConversionDetector(1, TimeUnit.HOURS);
+		detector.setThreshold(String.class, Long.class, 0, TimeUnit.NANOSECONDS);
+		detector.setReportInterval(1, TimeUnit.HOURS);
+		cm.addConversionListener(detector);
+		
+		final List<String> logged = new ArrayList<String>();
+		AppenderSkeleton appender = new AppenderSkeleton() {
+			@Override
+			protected void append(LoggingEvent event) {
+				logged.add(event.getRenderedMessage());
+			}
+			@Override
+			public boolean requiresLayout() {
+				return false;
+			}
+			@Override
+			public void close() {
+				/* empty */
+			}
+		};
+		Logger logger = Logger.getLogger(SlowConversionDetector.class);
+		logger.addAppender(appender);
+		try {
+			cm.convert("1", Long.class);
+			cm.convert("2", Long.class);
+			cm.convert(new Date(0), String.class);
+		} finally {
+			logger.removeAppender(appender);
+		}
+		assertThat(logged.size(), is(1));
+		assertTrue(logged.get(0).contains(StringNumberConverter.class.getName()));
+		assertTrue(logged.get(0).contains("'java.lang.String' to 'java.lang.Long'"));
+	}
+	
+	@Test
+	public void testSlowConversionDetectorRegisteredSourceType() {
+		cm.registerConverter(new DateStringConverter());
+		SlowConversionDetector detector = new SlowConversionDetector(1, TimeUnit.HOURS);
+		// the converter takes a java.util.Date
+		detector.setThreshold(Date.class, String.class, 0, TimeUnit.NANOSECONDS);
+		detector.setReportInterval(0, TimeUnit.NANOSECONDS);
+		cm.addConversionListener(detector);
+		
+		final List<String> logged = new ArrayList<String>();
+		AppenderSkeleton appender = new AppenderSkeleton() {
+			@Override
+			protected void append(LoggingEvent event) {
+				logged.add(event.getRenderedMessage());
+			}
+			@Override
+			public boolean requiresLayout() {
+				return false;
+			}
+			@Override
+			public void close() {
+				/* empty */
+			}
+		};
+		Logger logger = Logger.getLogger(SlowConversionDetector.class);
+		logger.addAppender(appender);
+		try {
+			cm.convert(new java.sql.Date(0), String.class);
+			detector.setThreshold(java.sql.Date.class, String.class, 1, TimeUnit.HOURS);
+			cm.convert(new java.sql.Date(0), String.class);
+		} finally {
+			logger.removeAppender(appender);
+		}
+		// the exact source type wins once it has its own
+		assertThat(logged.size(), is(1));
+		assertTrue(logged.get(0).contains("'java.sql.Date' to 'java.lang.String'"));
+	}
+	
+	@Test
+	public void testConversionEventExcludesListeners() {
+		cm.registerConverter(new StringNumberConverter());
+		final List<ConversionEvent> events = new ArrayList<ConversionEvent>();
+		cm.addConversionListener(new ConversionListener() {
+			@Override
+			public void beforeConversion(ConversionEvent event) {
+				try {
+					Thread.sleep(50);
+				} catch ( InterruptedException ex ) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			
+			@Override
+			public void afterConversion(ConversionEvent event, Object result) {
+				events.add(event);
+			}
+			
+			@Override
+			public void conversionFailed(ConversionEvent event, RuntimeException cause) {
+				/* nothing */
+			}
+		});
+		long before = System.nanoTime();
+		cm.convert("1", Long.class);
+		assertThat(events.size(), is(1));
+		assertTrue(events.get(0).getStartNanos() - before >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertTrue(events.get(0).getElapsedNanos() < TimeUnit.MILLISECONDS.toNanos(50));
+		assertThat(events.get(0).getConverterSourceType(), is((Object) String.class));
+	}
+	
+	@Test
+	public void testConversionProfiler() {
+		cm.registerConverter(new StringNumberConverter());
+		cm.registerConverter(new DateStringConverter());
+		ConversionProfiler profiler = new ConversionProfiler(2);
+		cm.addConversionListener(profiler);
+		for ( int i = 0; i < 10; i++ ) {
+			cm.convert(String.valueOf(i), Long.class);
+		}
+		cm.convert(new Date(0), String.class);
+		
+		List<ConversionProfile> top = profiler.getTop(1, ConversionProfiler.Order.SAMPLES);
+		assertThat(top.size(), is(1));
+		assertThat(top.get(0).getSamples(), is(5L));
+		assertThat(top.get(0).getSourceType(), sameInstance((Object) String.class));
+		assertThat(top.get(0).getConverterClass(), sameInstance((Object) StringNumberConverter.class));
+		assertThat(profiler.getProfiles().size(), is(2));
+		if ( profiler.isAllocatedBytesSupported() ) {
+			assertTrue(top.get(0).getAllocatedBytes() > 0);
+		}
+		profiler.reset();
+		assertThat(profiler.getProfiles().size(), is(0));
+	}
+	
+	@Test
+	public void testConversionProfilerMBean() throws Exception {
+		cm.registerConverter(new StringNumberConverter());
+		ConversionProfiler profiler = new ConversionProfiler(1);
+		cm.addConversionListener(profiler);
+		cm.convert("1", Long.class);
+		String name = "com.izylab.izyutils.convertermanager:type=ConversionProfiler,name=test";
+		profiler.registerMBean(name);
+		try {
+			String[] lines = (String[]) ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName(name),
+					"topByCpuTime", new Object[] { 5 }, new String[] { "int" });
+			assertThat(lines.length, is(1));
+			assertTrue(lines[0].startsWith("java.lang.String -> java.lang.Long"));
+		} finally {
+			profiler.unregisterMBean(name);
+		}
+	}
+	
+	@Test
+	public void testConversionProfilerInvalidRate() {
+	    expectedEx.expect(ConverterManagerException.class);
+	    expectedEx.expectMessage(String.format(Message.PROFILER_INVALID_SAMPLE_RATE.getString(), 0));
+		new ConversionProfiler(0);
+	}
+	
+	@Test
+	public void testResultCacheSurvivesRestart() throws Exception {
+		File file = folder.newFile("results.cache");
+		PureConverter converter = new PureConverter();
+		cm.registerConverter(converter);
+		PersistentResultCache cache = new PersistentResultCache(file, 64 * 1024);
+		cm.setResultCache(cache);
+		assertThat(cm.convert("40", Long.class, 2L), is(42L));
+		assertThat(cm.convert("40", Long.class, 2L), is(42L));
+		assertThat(cm.convert("40", Long.class, 3L), is(43L));
+		cm.convert(1L, Date.class);
+		cm.convert(1L, Date.class);
+		assertThat(converter.getCalls(), is(4));
+		assertThat(cache.getHits(), is(1L));
+		cache.close();
+		
+		ConverterManager restarted = new ConverterManager();
+		PureConverter other = new PureConverter();
+		restarted.registerConverter(other);
+		cache = new PersistentResultCache(file, 64 * 1024);
+		restarted.setResultCache(cache);
+		assertThat(cache.size(), is(2));
+		assertThat(restarted.convert("40", Long.class, 2L), is(42L));
+		assertThat(restarted.convert("40", Long.class, 3L), is(43L));
+		assertThat(other.getCalls(), is(0));
+		cache.close();
+	}
+	
+	@Test
+	public void testResultCacheChecksConverterVersion() throws Exception {
+		PersistentResultCache cache = new PersistentResultCache(folder.newFile("results.cache"), 64 * 1024);
+		byte[] key = PersistentResultCache.key(PureConverter.class, Long.class, "1", new Object[0]);
+		cache.put(key, PureConverter.class, 1L);
+		assertThat(cache.get(key, PureConverter.class), is((Object) 1L));
+		assertThat(cache.get(key, StringNumberConverter.class), sameInstance(PersistentResultCache.MISS));
+		cache.close();
+	}
+	
+	@Test
+	public void testResultCacheEvictsOldest() throws Exception {
+		File file = folder.newFile("results.cache");
+		PersistentResultCache cache = new PersistentResultCache(file, 4096);
+		for ( long i = 0; i < 500; i++ ) {
+			byte[] key = PersistentResultCache.key(PureConverter.class, Long.class, String.valueOf(i), new Object[0]);
+			cache.put(key, PureConverter.class, i);
+		}
+		assertTrue(cache.size() < 500);
+		assertTrue(cache.size() > 0);
+		byte[] newest = PersistentResultCache.key(PureConverter.class, Long.class, "499", new Object[0]);
+		byte[] oldest = PersistentResultCache.key(PureConverter.class, Long.class, "0", new Object[0]);
+		assertThat(cache.get(newest, PureConverter.class), is((Object) 499L));
+		assertThat(cache.get(oldest, PureConverter.class), sameInstance(PersistentResultCache.MISS));
+		int size = cache.size();
+		cache.close();
+		
+		cache = new PersistentResultCache(file, 4096);
+		assertThat(cache.size(), is(size));
+		assertThat(cache.get(newest, PureConverter.class), is((Object) 499L));
+		cache.close();
+	}
+	
+	@Test
+	public void testResultCacheDropsDamagedEntries() throws Exception {
+		File file = folder.newFile("results.cache");
+		PersistentResultCache cache = new PersistentResultCache(file, 4096);
+		byte[][] keys = new byte[3][];
+		for ( int i = 0; i < keys.length; i++ ) {
+			keys[i] = PersistentResultCache.key(PureConverter.class, Long.class, String.valueOf(i), new Object[0]);
+			cache.put(keys[i], PureConverter.class, Long.valueOf(i));
+		}
+		cache.close();
+		
+		// a torn write of the newest entry: its last byte, right before the head
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(16);
+		long head = raf.readLong();
+		raf.seek(40 + head - 1);
+		int last = raf.read();
+		raf.seek(40 + head - 1);
+		raf.write(last ^ 0xff);
+		raf.close();
+		cache = new PersistentResultCache(file, 4096);
+		assertThat(cache.size(), is(2));
+		assertThat(cache.get(keys[1], PureConverter.class), is((Object) 1L));
+		assertThat(cache.get(keys[2], PureConverter.class), sameInstance(PersistentResultCache.MISS));
+		cache.close();
+		
+		// a header counting entries that were never written
+		raf = new RandomAccessFile(file, "rw");
+		raf.seek(32);
+		raf.writeLong(1000);
+		raf.close();
+		cache = new PersistentResultCache(file, 4096);
+		assertThat(cache.size(), is(2));
+		assertThat(cache.get(keys[0], PureConverter.class), is((Object) 0L));
+		byte[] key = PersistentResultCache.key(PureConverter.class, Long.class, "3", new Object[0]);
+		cache.put(key, PureConverter.class, 3L);
+		assertThat(cache.get(key, PureConverter.class), is((Object) 3L));
+		cache.close();
+	}
+	
+	@Test
+	public void testWarmUp() {
+		cm.registerConverter(new StringNumberConverter());
+		cm.registerConverter(new DateStringConverter());
+		cm.registerConverter(new StringHolderConverter());
+		cm.warmUp(java.sql.Date.class);
+		assertThat(cm.convert(new java.sql.Date(0), String.class), is("1970-01-01"));
+		assertThat(cm.convert("5", Long.class), is(5L));
+	}
+	
+	@Test
+	public void testResolvedConvertersReset() {
+		cm.registerConverter(new DateStringConverter());
+		assertThat(cm.convert(new java.sql.Date(0), String.class), is("1970-01-01"));
+		cm.clearConverters();
+		expectedEx.expect(ConversionFailedException.class);
+		cm.convert(new java.sql.Date(0), String.class);
+	}
+	
+	@Test
+	public void testNativeImageMetadata() throws Exception {
+		cm.registerConverter(new StringNumberConverter());
+		cm.registerConverter(StringHolderConverter.class);
+		cm.registerConverter(new CountingSequenceConverter());
+		cm.registerAutoMapping(PersonEntity.class, PersonView.class);
+		NativeImageMetadata metadata = new NativeImageMetadata(cm);
+		StringWriter reflectConfig = new StringWriter();
+		metadata.writeReflectConfig(reflectConfig);
+		String json = reflectConfig.toString();
+		assertTrue(json.startsWith("[\n  {\n    \"name\": \"com.izylab.izyutils.convertermanager.Converter\""));
+		assertTrue(json.contains("\"name\": \"" + StringNumberConverter.class.getName() + "\""));
+		assertTrue(json.contains("{ \"name\": \"<init>\", \"parameterTypes\": [] }"));
+		assertTrue(json.contains("{ \"name\": \"fill\", \"parameterTypes\": [ \"java.lang.String\", \""
+				+ MyHolderClass.class.getName() + "\" ] }"));
+		// the properties of the auto mappings
+		assertTrue(json.contains("\"name\": \"" + PersonEntity.class.getName() + "\""));
+		assertTrue(json.contains("{ \"name\": \"getAge\", \"parameterTypes\": [] }"));
+		assertTrue(json.contains("{ \"name\": \"setAge\", \"parameterTypes\": [ \"java.lang.Integer\" ] }"));
+		// the interfaces of lazy conversions
+		assertTrue(json.contains("{ \"name\": \"length\", \"parameterTypes\": [] }"));
+		StringWriter proxyConfig = new StringWriter();
+		metadata.writeProxyConfig(proxyConfig);
+		assertThat(proxyConfig.toString(), is("[\n  { \"interfaces\": [ \"java.lang.CharSequence\" ] }\n]\n"));
+		StringWriter reachability = new StringWriter();
+		metadata.writeReachabilityMetadata(reachability);
+		assertTrue(reachability.toString().contains("\"type\": \"" + StringHolderConverter.class.getName() + "\""));
+		assertTrue(reachability.toString().contains("{ \"type\": { \"proxy\": [ \"java.lang.CharSequence\" ] } }\n"));
+		
+		File directory = new File(folder.getRoot(), "META-INF/native-image");
+		metadata.export(directory, NativeImageMetadata.Format.REFLECT_CONFIG);
+		assertTrue(new File(directory, NativeImageMetadata.REFLECT_CONFIG).length() > 0);
+		assertTrue(new File(directory, NativeImageMetadata.PROXY_CONFIG).length() > 0);
+		assertThat(new File(directory, NativeImageMetadata.REACHABILITY_METADATA).exists(), is(false));
+		File reachabilityDirectory = new File(folder.getRoot(), "reachability");
+		metadata.export(reachabilityDirectory, NativeImageMetadata.Format.REACHABILITY_METADATA);
+		assertThat(reachabilityDirectory.list(), is(new String[] { NativeImageMetadata.REACHABILITY_METADATA }));
+	}
+	
+	@Test
+	public void testUnregisteredClassLoaderIsCollected() throws Exception {
+		cm.registerConverter(new DateStringConverter());
+		WeakReference<ClassLoader> module = useModule(true);
+		assertThat(isCollected(module), is(true));
+		assertThat(cm.convert(new Date(0), String.class), is("1970-01-01"));
+	}
+	
+	@Test
+	public void testResolvedClassLoaderIsCollected() throws Exception {
+		cm.registerConverter(new DateStringConverter());
+		WeakReference<ClassLoader> module = useModule(false);
+		assertThat(isCollected(module), is(true));
+	}
+	
+	@Test
+	public void testUnregisterConvertedClassLoader() throws Exception {
+		cm.registerConverter(new DateStringConverter());
+		ClassLoader loader = new IsolatingClassLoader(IsolatedDate.class.getName());
+		Class<?> dateClass = loader.loadClass(IsolatedDate.class.getName());
+		assertThat(cm.convert(dateClass.newInstance(), String.class), is("1970-01-01"));
+		assertThat(cm.explain(dateClass, String.class).isCached(), is(true));
+		// no converter of its own, what was found for its classes still goes
+		assertThat(cm.unregisterConverters(loader), is(0));
+		assertThat(cm.explain(dateClass, String.class).isCached(), is(false));
+	}
+	
+	@Test
+	public void testGeneratedClassLoaderIsCollected() throws Exception {
+		cm.setEnumConversion(true);
+		WeakReference<ClassLoader> module = useEnumModule();
+		assertThat(isCollected(module), is(true));
+	}
+	
+	@Test
+	public void testThreadLocalClassLoaderIsCollected() throws Exception {
+		// the thread that holds an instance outlives the module
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			WeakReference<ClassLoader> module = useThreadLocalModule(executor);
+			assertThat(isCollected(module), is(true));
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testTypeConvertedClassLoaderIsCollected() throws Exception {
+		cm.registerConverter(new DateStringConverter());
+		WeakReference<ClassLoader> module = useTypeModule();
+		assertThat(isCollected(module), is(true));
+	}
+	
+	@Test
+	public void testUnregisterConverter() {
+		cm.registerConverter(new StringNumberConverter());
+		cm.registerConverter(new DateStringConverter());
+		assertThat(cm.unregisterConverter(StringNumberConverter.class), is(true));
+		assertThat(cm.unregisterConverter(StringNumberConverter.class), is(false));
+		assertThat(cm.canConvert(String.class, Long.class), is(false));
+		assertThat(cm.canConvert(Date.class, String.class), is(true));
+	}
+	
+	// converts classes of a throw away class loader, returning a weak reference to it
+	private WeakReference<ClassLoader> useModule(boolean register) throws Exception {
+		ClassLoader loader = new IsolatingClassLoader(IsolatedBean.class.getName(),
+				IsolatedDate.class.getName(), IsolatedConverter.class.getName());
+		Class<?> dateClass = loader.loadClass(IsolatedDate.class.getName());
+		assertThat(dateClass == IsolatedDate.class, is(false));
+		cm.warmUp(dateClass);
+		assertThat(cm.convert(dateClass.newInstance(), String.class), is("1970-01-01"));
+		if ( register ) {
+			cm.registerConverter(loader.loadClass(IsolatedConverter.class.getName()).newInstance());
+			Object bean = loader.loadClass(IsolatedBean.class.getName()).newInstance();
+			assertThat(cm.convert(bean, String.class), is("isolated"));
+			assertThat(cm.unregisterConverters(loader), is(1));
+		}
+		return new WeakReference<ClassLoader>(loader);
+	}
+	
+	// converts on another thread with a thread local converter of a throw away class loader
+	private WeakReference<ClassLoader> useThreadLocalModule(ExecutorService executor) throws Exception {
+		ClassLoader loader = new IsolatingClassLoader(IsolatedBean.class.getName(), IsolatedConverter.class.getName());
+		cm.registerConverter(loader.loadClass(IsolatedConverter.class.getName()), ConverterScope.THREAD_LOCAL);
+		final Object bean = loader.loadClass(IsolatedBean.class.getName()).newInstance();
+		Future<String> converted = executor.submit(new Callable<String>() {
+			@Override
+			public String call() {
+				return cm.convert(bean, String.class);
+			}
+		});
+		assertThat(converted.get(), is("isolated"));
+		assertThat(cm.unregisterConverters(loader), is(1));
+		return new WeakReference<ClassLoader>(loader);
+	}
+	
+	// converts an enum of a throw away class loader and unregisters it
+	private WeakReference<ClassLoader> useEnumModule() throws Exception {
+		ClassLoader loader = new IsolatingClassLoader(IsolatedStatus.class.getName());
+		Class<?> statusClass = loader.loadClass(IsolatedStatus.class.getName());
+		assertThat(cm.convert("ACTIVE", statusClass).getClass() == statusClass, is(true));
+		assertThat(cm.convert(statusClass.getEnumConstants()[1], String.class), is("INACTIVE"));
+		assertThat(cm.unregisterConverters(loader), is(0));
+		return new WeakReference<ClassLoader>(loader);
+	}
+	
+	// converts a list of a throw away class loader's objects and unregisters it
+	private WeakReference<ClassLoader> useTypeModule() throws Exception {
+		ClassLoader loader = new IsolatingClassLoader(IsolatedDate.class.getName());
+		Object date = loader.loadClass(IsolatedDate.class.getName()).newInstance();
+		List<String> converted = cm.convert(Arrays.asList(date), new TypeRef<List<String>>() {});
+		assertThat(converted, is(Arrays.asList("1970-01-01")));
+		assertThat(cm.unregisterConverters(loader), is(0));
+		return new WeakReference<ClassLoader>(loader);
+	}
+	
+	private static boolean isCollected(WeakReference<?> reference) throws InterruptedException {
+		for ( int i = 0; i < 100 && reference.get() != null; i++ ) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		return reference.get() == null;
+	}
+	
+	// defines its own copy of the given classes
+	static class IsolatingClassLoader extends ClassLoader {
+		private final Set<String> names;
+		IsolatingClassLoader(String ... names) {
+			super(ConverterManagerTest.class.getClassLoader());
+			this.names = new HashSet<String>(Arrays.asList(names));
+		}
+		@Override
+		protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if ( !names.contains(name) ) {
+				return super.loadClass(name, resolve);
+			}
+			Class<?> type = findLoadedClass(name);
+			if ( type == null ) {
+				try {
+					InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+					ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					byte[] chunk = new byte[4096];
+					int read;
+					while ( (read = in.read(chunk)) > 0 ) {
+						bytes.write(chunk, 0, read);
+					}
+					in.close();
+					type = defineClass(name, bytes.toByteArray(), 0, bytes.size());
+				} catch ( Exception ex ) {
+					throw new ClassNotFoundException(name, ex);
+				}
+			}
+			return type;
+		}
+	}
+	
+	@Test
+	public void testChildNull() {
+	    expectedEx.expect(ConverterManagerException.class);
+	    expectedEx.expectMessage(Message.PARENT_CANNOT_BE_NULL.getString());
+		new ConverterManager(null);
+	}
+	
+	@Test
+	public void testChildInherits() {
+		cm.registerConverter(new StringNumberConverter());
+		ConverterManager child = cm.createChild();
+		assertThat(child.getParent(), is(cm));
+		assertThat(child.convert("12", Long.class), is(12L)); //$NON-NLS-1$
+		child.registerConverter(new DateStringConverter());
+		assertThat(child.canConvert(Date.class, String.class), is(true));
+		assertThat(cm.canConvert(Date.class, String.class), is(false));
+	}
+	
+	@Test
+	public void testChildOverrides() {
+		cm.registerConverter(new StringNumberConverter());
+		ConverterManager child = cm.createChild();
+		child.registerConverter(new HexLongConverter());
+		assertThat(child.convert(255L, String.class), is("ff")); //$NON-NLS-1$
+		assertThat(cm.convert(255L, String.class), is("255")); //$NON-NLS-1$
+		ConverterManager grandChild = child.createChild();
+		assertThat(grandChild.convert(255L, String.class), is("ff")); //$NON-NLS-1$
+		assertThat(grandChild.convert("12", Long.class), is(12L)); //$NON-NLS-1$
+		// back to the inherited converter
+		child.clearConverters();
+		assertThat(child.convert(255L, String.class), is("255")); //$NON-NLS-1$
+		assertThat(grandChild.convert(255L, String.class), is("255")); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void testChildSeesParentChanges() {
+		cm.registerConverter(new StringNumberConverter());
+		ConverterManager child = cm.createChild();
+		child.registerConverter(new HexLongConverter());
+		cm.registerConverter(new DateStringConverter());
+		assertThat(child.canConvert(Date.class, String.class), is(true));
+		cm.unregisterConverter(StringNumberConverter.class);
+		assertThat(child.canConvert(String.class, Long.class), is(false));
+		assertThat(child.convert(255L, String.class), is("ff")); //$NON-NLS-1$
+		// the child doesn't remove inherited converters
+		assertThat(child.unregisterConverter(DateStringConverter.class), is(false));
+		assertThat(child.canConvert(Date.class, String.class), is(true));
+	}
+	
+	@Test
+	public void testAutoMapping() {
+		assertThat(cm.canConvert(PersonEntity.class, PersonView.class), is(false));
+		cm.registerAutoMapping(PersonEntity.class, PersonView.class);
+		assertThat(cm.canConvert(PersonEntity.class, PersonView.class), is(true));
+		PersonEntity person = new PersonEntity();
+		person.setName("Ada"); //$NON-NLS-1$
+		person.setAge(36);
+		PersonView view = cm.convert(person, PersonView.class);
+		assertThat(view.getName(), is("Ada")); //$NON-NLS-1$
+		assertThat(view.getAge(), is(36));
+		// a registered converter comes first
+		cm.registerConverter(PersonViewConverter.class);
+		assertThat(cm.convert(person, PersonView.class).getName(), is("ADA")); //$NON-NLS-1$
+		assertThat(cm.convert(person, PersonView.class).getAge(), is((Integer) null));
+	}
+	
+	@Test
+	public void testAutoMappingMissingProperty() {
+	    expectedEx.expect(ConverterManagerException.class);
+	    expectedEx.expectMessage(String.format(Message.AUTO_MAPPING_MISSING_PROPERTY.getString(),
+	    		PersonEntity.class, "email", PersonContact.class)); //$NON-NLS-1$
+		cm.registerAutoMapping(PersonEntity.class, PersonContact.class);
+	}
+	
+	@Test
+	public void testAutoMappingTypeMismatch() {
+	    expectedEx.expect(ConverterManagerException.class);
+	    expectedEx.expectMessage(String.format(Message.AUTO_MAPPING_TYPE_MISMATCH.getString(),
+	    		"age", PersonEntity.class, PersonSummary.class)); //$NON-NLS-1$
+		cm.registerAutoMapping(PersonEntity.class, PersonSummary.class);
+	}
+	
+	@Test
+	public void testIncrementalAutoMapping() {
+		cm.registerAutoMapping(PersonEntity.class, PersonView.class);
+		cm.registerIncremental(PersonEntity.class, PersonView.class);
+		PersonEntity person = new PersonEntity();
+		person.setName("Ada"); //$NON-NLS-1$
+		person.setAge(36);
+		PersonView view = cm.convert(person, PersonView.class);
+		assertThat(cm.convert(person, PersonView.class), is(sameInstance(view)));
+		// only the changed property is set again
+		view.setName("kept"); //$NON-NLS-1$
+		person.setAge(37);
+		assertThat(cm.convert(person, PersonView.class), is(sameInstance(view)));
+		assertThat(view.getAge(), is(37));
+		assertThat(view.getName(), is("kept")); //$NON-NLS-1$
+		// full conversion once invalidated
+		assertThat(cm.invalidateIncremental(person), is(true));
+		PersonView converted = cm.convert(person, PersonView.class);
+		assertThat(converted, is(not(sameInstance(view))));
+		assertThat(converted.getName(), is("Ada")); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void testIncrementalConverter() {
+		cm.registerConverter(PersonViewConverter.class);
+		cm.registerIncremental(PersonEntity.class, PersonView.class);
+		PersonEntity person = new PersonEntity();
+		person.setName("Ada"); //$NON-NLS-1$
+		PersonView view = cm.convert(person, PersonView.class);
+		assertThat(cm.convert(person, PersonView.class), is(sameInstance(view)));
+		person.setName("Grace"); //$NON-NLS-1$
+		PersonView converted = cm.convert(person, PersonView.class);
+		assertThat(converted, is(not(sameInstance(view))));
+		assertThat(converted.getName(), is("GRACE")); //$NON-NLS-1$
+		// other sources are converted as usual
+		PersonEntity other = new PersonEntity();
+		other.setName("Grace"); //$NON-NLS-1$
+		assertThat(cm.convert(other, PersonView.class), is(not(sameInstance(converted))));
+	}
+	
+	@Test
+	public void testConvertList() {
+		cm.registerConverter(new StringNumberConverter());
+		List<String> strings = cm.convert(Arrays.asList(1L, 2L, 3L), new TypeRef<List<String>>() {});
+		assertThat(strings, is(Arrays.asList("1", "2", "3"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertTrue(strings instanceof ArrayList<?>);
+		// elements already of the element type are kept
+		assertThat(cm.convert(Arrays.<Object>asList("1", 2L), new TypeRef<List<String>>() {}), //$NON-NLS-1$
+				is(Arrays.asList("1", "2"))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+	
+	@Test
+	public void testConvertNested() {
+		cm.registerConverter(new StringNumberConverter());
+		List<Set<Long>> numbers = cm.convert(new String[][] { { "1", "2" }, { "3", "3" } }, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				new TypeRef<List<Set<Long>>>() {});
+		assertThat(numbers.size(), is(2));
+		assertThat(numbers.get(0), is((Set<Long>) new LinkedHashSet<Long>(Arrays.asList(1L, 2L))));
+		assertThat(numbers.get(1), is((Set<Long>) new LinkedHashSet<Long>(Arrays.asList(3L))));
+	}
+	
+	@Test
+	public void testConvertMap() {
+		cm.registerConverter(new StringNumberConverter());
+		Map<String, Long> source = new LinkedHashMap<String, Long>();
+		source.put("2", 20L); //$NON-NLS-1$
+		source.put("1", 10L); //$NON-NLS-1$
+		SortedMap<Long, String> sorted = cm.convert(source, new TypeRef<SortedMap<Long, String>>() {});
+		assertTrue(sorted instanceof TreeMap<?, ?>);
+		assertThat(sorted.firstKey(), is(1L));
+		assertThat(sorted.get(2L), is("20")); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void testConvertArray() {
+		cm.registerConverter(new StringNumberConverter());
+		long[] numbers = cm.convert(Arrays.asList("1", "2"), new TypeRef<long[]>() {}); //$NON-NLS-1$ //$NON-NLS-2$
+		assertThat(numbers.length, is(2));
+		assertThat(numbers[1], is(2L));
+		String[] strings = cm.convert(new long[] { 5L }, new TypeRef<String[]>() {});
+		assertThat(strings[0], is("5")); //$NON-NLS-1$
+	}
+	
+	@Test
+	public void testConvertNotCollection() {
+		cm.registerConverter(new StringNumberConverter());
+	    expectedEx.expect(ConversionFailedException.class);
+	    expectedEx.expectMessage("is not a collection"); //$NON-NLS-1$
+		cm.convert(5L, new TypeRef<List<String>>() {});
+	}
+	
+	@Test
+	@SuppressWarnings("rawtypes")
+	public void testRawTypeRef() {
+	    expectedEx.expect(ConverterManagerException.class);
+	    expectedEx.expectMessage(Message.TYPE_REF_NOT_PARAMETERIZED.getString());
+		new TypeRef() { /* no type argument */ };
+	}
+	
+	@Test
+	public void testPriorityConverters() {
+		cm.registerConverter(StringNumberConverter.class);
+		cm.registerConverter(SlowLongConverter.class);
+		assertThat(cm.getSelectedConverter(String.class, Long.class), is((Object) SlowLongConverter.class));
+		assertThat(cm.convert("12", Long.class), is(12L));
+		// the other one is used again
+		cm.unregisterConverter(SlowLongConverter.class);
+		assertThat(cm.getSelectedConverter(String.class, Long.class), is((Object) StringNumberConverter.class));
+	}
+	
+	@Test
+	public void testAdaptiveSelection() {
+		cm.registerConverter(SlowLongConverter.class);
+		cm.registerConverter(CandidateLongConverter.class);
+		assertThat(cm.getSelectedConverter(String.class, Long.class), is((Object) SlowLongConverter.class));
+		cm.setAdaptiveSelection(true);
+		cm.setExplorationRate(0);
+		for ( int i = 0; i < 40; i++ ) {
+			assertThat(cm.convert(String.valueOf(i), Long.class), is((long) i));
+		}
+		assertThat(cm.getSelectedConverter(String.class, Long.class), is((Object) CandidateLongConverter.class));
+		// kill switch
+		cm.setAdaptiveSelection(false);
+		assertThat(cm.getSelectedConverter(String.class, Long.class), is((Object) SlowLongConverter.class));
+	}
+	
+	@Test
+	public void testAdaptiveSelectionRetiresFailingCandidate() {
+		cm.registerConverter(SlowLongConverter.class);
+		cm.registerConverter(BrokenLongConverter.class);
+		cm.setAdaptiveSelection(true);
+		cm.setExplorationRate(0.5);
+		int failed = 0;
+		for ( int i = 0; i < 60; i++ ) {
+			try {
+				assertThat(cm.convert(String.valueOf(i), Long.class), is((long) i));
+			} catch ( ConversionFailedException ex ) {
+				failed++;
+			}
+		}
+		// failed a few times while warming up, then never used
+		assertThat(failed, is(4));
+		assertThat(cm.getSelectedConverter(String.class, Long.class), is((Object) SlowLongConverter.class));
+	}
+	
+	@Test
+	public void testAdaptiveSelectionMeasuresOnlyTheConverter() {
+		cm.registerConverter(SlowLongConverter.class);
+		cm.registerConverter(CandidateLongConverter.class);
+		cm.setAdaptiveSelection(true);
+		cm.setExplorationRate(0);
+		// a listener slower than the slow converter, only around the fast one
+		cm.addConversionListener(new ConversionListener() {
+			@Override
+			public void beforeConversion(ConversionEvent event) {
+				if ( event.getConverterClass() == CandidateLongConverter.class ) {
+					try {
+						Thread.sleep(3);
+					} catch ( InterruptedException ex ) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+			
+			@Override
+			public void afterConversion(ConversionEvent event, Object result) {
+				/* nothing */
+			}
+			
+			@Override
+			public void conversionFailed(ConversionEvent event, RuntimeException cause) {
+				/* nothing */
+			}
+		});
+		for ( int i = 0; i < 40; i++ ) {
+			cm.convert(String.valueOf(i), Long.class);
+		}
+		assertThat(cm.getSelectedConverter(String.class, Long.class), is((Object) CandidateLongConverter.class));
+	}
+	
+	@Test
+	public void testAdaptiveSelectionFromManyThreads() throws Exception {
+		cm.registerConverter(SlowLongConverter.class);
+		cm.registerConverter(CandidateLongConverter.class);
+		cm.setAdaptiveSelection(true);
+		cm.setExplorationRate(0);
+		Thread[] threads = new Thread[8];
+		for ( int i = 0; i < threads.length; i++ ) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for ( int j = 0; j < 40; j++ ) {
+						cm.convert(String.valueOf(j), Long.class);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for ( Thread thread : threads ) {
+			thread.join();
+		}
+		assertThat(cm.getSelectedConverter(String.class, Long.class), is((Object) CandidateLongConverter.class));
+	}
+	
+	@Test
+	public void testInvalidExplorationRate() {
+		expectedEx.expect(ConverterManagerException.class);
+		expectedEx.expectMessage(String.format(Message.EXPLORATION_RATE_INVALID.getString(), 1.5));
+		cm.setExplorationRate(1.5);
+	}
+	
+	@Test
+	public void testDescribeConverters() {
+		cm.registerConverter(StringNumberConverter.class);
+		cm.registerConverter(SlowLongConverter.class);
+		int shadowed = 0;
+		for ( ConverterDescription converter : cm.describeConverters() ) {
+			if ( converter.getSourceType() == String.class && converter.getTargetType() == Long.class ) {
+				boolean lower = converter.getConverterClass() == StringNumberConverter.class;
+				assertThat(converter.getIssues().contains(ConverterDescription.Issue.SHADOWED), is(lower));
+				shadowed += lower ? 1 : 0;
+			}
+		}
+		assertThat(shadowed, is(1));
+	}
+	
+	@Test
+	public void testDescribeReplacedConverters() {
+		cm.registerConverter(StringNumberConverter.class);
+		ConverterManager child = cm.createChild();
+		child.registerConverter(SlowLongConverter.class);
+		ConverterManager grandchild = child.createChild();
+		grandchild.registerConverter(HexLongConverter.class);
+		assertThat(replacedDetail(child), is("replaced by converter " + SlowLongConverter.class.getName()
+				+ " of this manager"));
+		assertThat(replacedDetail(grandchild), is("replaced by converter " + SlowLongConverter.class.getName()
+				+ " of the parent manager"));
+	}
+	
+	// detail of the root converter of strings to longs
+	private static String replacedDetail(ConverterManager manager) {
+		for ( ConverterDescription converter : manager.describeConverters() ) {
+			if ( converter.getConverterClass() == StringNumberConverter.class
+					&& converter.getSourceType() == String.class && converter.getTargetType() == Long.class ) {
+				return converter.getDetail();
+			}
+		}
+		return null;
+	}
+	
+	@Test
+	public void testExplain() {
+		cm.registerConverter(new MyChildClass());
+		cm.registerConverter(IterableStringConverter.class);
+		ConversionExplanation explanation = cm.explain(MyChildClass.class, String.class);
+		assertThat(explanation.getLookups(), is(2));
+		assertThat(explanation.getSteps().get(0).getLookup(), is(ConversionExplanation.Lookup.EXACT));
+		assertThat(explanation.getSteps().get(0).getConverter(), is(nullValue()));
+		assertThat(explanation.getSteps().get(1).getLookup(), is(ConversionExplanation.Lookup.SUPERCLASS));
+		assertThat(explanation.getConverter().getConverterClass(), is((Object) MyChildClass.class));
+		assertThat(explanation.isCached(), is(false));
+		cm.convert(new MyChildClass(), String.class);
+		assertThat(cm.explain(MyChildClass.class, String.class).isCached(), is(true));
+		
+		// only the direct interfaces are looked up, not their super interfaces
+		explanation = cm.explain(ArrayList.class, String.class);
+		assertThat(explanation.getConverter(), is(nullValue()));
+		assertThat(explanation.getUnreachable().get(0).getConverterClass(), is((Object) IterableStringConverter.class));
+	}
+	
+	@Test
+	public void testRegistryReport() throws Exception {
+		cm.registerConverter(StringNumberConverter.class);
+		RegistryReport report = new RegistryReport(cm).explain(String.class, Long.class);
+		StringWriter text = new StringWriter();
+		report.writeText(text);
+		assertTrue(text.toString().startsWith("Converters: 3, with issues: 0\n"));
+		assertTrue(text.toString().contains("java.lang.String -> java.lang.Long: "
+				+ StringNumberConverter.class.getName() + ", 1 lookups\n  1. EXACT java.lang.String: "));
+		StringWriter json = new StringWriter();
+		report.writeJson(json);
+		assertTrue(json.toString().contains("{ \"source\": \"java.lang.String\", \"target\": \"java.lang.Long\", "
+				+ "\"converter\": \"" + StringNumberConverter.class.getName() + "\", \"method\": \"revert\""));
+		assertTrue(json.toString().contains("\"cached\": false, \"lookups\": 1, \"steps\": [{ \"lookup\": \"EXACT\""));
+	}
+	
+	@Test
+	public void testConvertColumns() {
+		cm.registerAutoMapping(PersonEntity.class, PersonRow.class);
+		PersonEntity ann = new PersonEntity();
+		ann.setName("Ann");
+		ann.setAge(31);
+		ColumnBatch batch = cm.convertColumns(Arrays.asList(ann, null), PersonRow.class);
+		assertThat(batch.getColumnNames(), is(Arrays.asList("age", "internalId", "name")));
+		assertThat(((int[]) batch.getArray("age"))[0], is(31));
+		assertThat(((long[]) batch.getArray("internalId"))[0], is(42L));
+		assertThat(((Object[]) batch.getArray("name"))[0], is((Object) "Ann"));
+		// a null source is a row of zeros and nulls
+		assertThat(batch.get(1, "age"), is((Object) 0));
+		assertThat(batch.get(1, "name"), is(nullValue()));
+		
+		ColumnBatch direct = ColumnBatch.direct(PersonRow.class, 4);
+		cm.convertColumns(Arrays.asList(ann, ann), direct);
+		ByteBuffer ages = direct.getBuffer("age");
+		assertThat(ages.remaining(), is(8));
+		assertThat(ages.getInt(4), is(31));
+		assertThat(direct.getArray("age"), is(nullValue()));
+		assertThat(direct.get(1, "name"), is((Object) "Ann"));
+	}
+	
+	@Test
+	public void testConvertColumnsWithConverter() {
+		cm.registerConverter(PersonViewConverter.class);
+		PersonEntity ann = new PersonEntity();
+		ann.setName("Ann");
+		ColumnBatch batch = ColumnBatch.heap(PersonView.class, 1);
+		cm.convertColumns(Arrays.asList(ann), batch);
+		assertThat(batch.get(0, "name"), is((Object) "ANN"));
+		expectedEx.expect(ConversionFailedException.class);
+		expectedEx.expectMessage(String.format(Message.COLUMN_BATCH_FULL.getString(), 1, PersonView.class));
+		cm.convertColumns(Arrays.asList(ann), batch);
+	}
+	
+	@Test
+	public void testConvertToMany() {
+		cm.registerAutoMapping(PersonEntity.class, PersonRow.class);
+		cm.registerConverter(PersonViewConverter.class);
+		PersonEntity ann = new PersonEntity();
+		ann.setName("Ann");
+		ann.setAge(31);
+		ConversionResults results = cm.convertToMany(ann, PersonView.class, PersonRow.class, PersonEntity.class);
+		assertThat(results.get(PersonView.class).getName(), is("ANN"));
+		assertThat(results.get(PersonRow.class).getAge(), is(31));
+		assertThat(results.get(PersonEntity.class), is(sameInstance(ann)));
+		assertThat(cm.convertToMany(null, PersonRow.class).get(PersonRow.class), is(nullValue()));
+		expectedEx.expect(ConverterManagerException.class);
+		expectedEx.expectMessage(String.format(Message.RESULTS_NO_TARGET.getString(), String.class));
+		results.get(String.class);
+	}
+	
+	@Test
+	public void testConvertToManyMissingConverter() {
+		cm.registerAutoMapping(PersonEntity.class, PersonRow.class);
+		expectedEx.expect(ConversionFailedException.class);
+		expectedEx.expectMessage(String.format(Message.CONV_NO_CONVERTER.getString(), PersonEntity.class, PersonView.class));
+		cm.convertToMany(new PersonEntity(), PersonRow.class, PersonView.class);
+	}
+	
+	@Test
+	public void testConvertAllToManyConcurrently() {
+		cm.registerAutoMapping(PersonEntity.class, PersonRow.class);
+		cm.registerAutoMapping(PersonEntity.class, PersonView.class);
+		PersonEntity ann = new PersonEntity();
+		ann.setName("Ann");
+		PersonEntity bob = new PersonEntity();
+		bob.setName("Bob");
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<ConversionResults> results = cm.convertAllToMany(Arrays.asList(ann, null, bob), executor,
+					PersonRow.class, PersonView.class);
+			assertThat(results.size(), is(3));
+			assertThat(results.get(0).get(PersonView.class).getName(), is("Ann"));
+			assertThat(results.get(1).get(PersonRow.class), is(nullValue()));
+			assertThat(results.get(2).get(PersonRow.class).getName(), is("Bob"));
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testConvertToManyCancelsOnFailure() {
+		cm.registerConverter(new StringNumberConverter());
+		final List<Runnable> queued = new ArrayList<Runnable>();
+		Executor later = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				queued.add(command);
+			}
+		};
+		try {
+			cm.convertToMany("x", later, Long.class, String.class, Long.class);
+			fail();
+		} catch ( ConversionFailedException ex ) {
+			// converted on the calling thread
+		}
+		assertThat(queued.size(), is(2));
+		for ( Runnable task : queued ) {
+			assertThat(((Future<?>) task).isCancelled(), is(true));
+		}
+	}
+	
+	@Test
+	public void testConvertAllDuplicates() {
+		CountingSequenceConverter counter = new CountingSequenceConverter();
+		cm.registerConverter(counter);
+		List<Long> numbers = new ArrayList<Long>();
+		for ( int i = 0; i < 100; i++ ) {
+			numbers.add(new Long(i % 3));
+		}
+		List<CharSequence> converted = cm.convertAll(numbers, CharSequence.class, DuplicateDetection.EQUALS);
+		assertThat(converted.size(), is(100));
+		assertThat(converted.get(99), is((CharSequence) "0"));
+		assertThat(converted.get(3), is(sameInstance(converted.get(0))));
+		assertThat(counter.getCalls(), is(3));
+		// equal but not the same
+		cm.convertAll(numbers, CharSequence.class, DuplicateDetection.IDENTITY);
+		assertThat(counter.getCalls(), is(103));
+	}
+	
+	@Test
+	public void testConvertAllFewDuplicates() {
+		CountingSequenceConverter counter = new CountingSequenceConverter();
+		cm.registerConverter(counter);
+		List<Long> numbers = new ArrayList<Long>();
+		for ( int i = 0; i < 100; i++ ) {
+			numbers.add(Long.valueOf(i < 64 ? i : 0));
+		}
+		cm.convertAll(numbers, CharSequence.class, DuplicateDetection.EQUALS);
+		// no duplicates in the first ones, the rest aren't looked up
+		assertThat(counter.getCalls(), is(100));
+	}
+	
+	@Test
+	public void testConvertAllCopies() {
+		cm.registerAutoMapping(PersonEntity.class, PersonView.class);
+		PersonEntity ann = new PersonEntity();
+		ann.setName("Ann");
+		List<PersonView> views = cm.convertAll(Arrays.asList(ann, ann, null), PersonView.class,
+				DuplicateDetection.IDENTITY, true);
+		assertThat(views.get(1), is(not(sameInstance(views.get(0)))));
+		assertThat(views.get(1).getName(), is("Ann"));
+		assertThat(views.get(2), is(nullValue()));
+	}
+	
+	@Test
+	public void testEnumConversion() {
+		assertThat(cm.canConvert(OrderStatus.class, LegacyStatus.class), is(false));
+		cm.setEnumConversion(true);
+		assertThat(cm.canConvert(OrderStatus.class, LegacyStatus.class), is(true));
+		assertThat(cm.convert(OrderStatus.NEW, LegacyStatus.class), is(LegacyStatus.NEW));
+		assertThat(cm.convert(OrderStatus.SHIPPED, LegacyStatus.class), is(LegacyStatus.SENT));
+		assertThat(cm.convert(LegacyStatus.SENT, OrderStatus.class), is(OrderStatus.SHIPPED));
+		// a constant with a body
+		assertThat(cm.convert(OrderStatus.RETURNED, String.class), is("RETURNED"));
+		assertThat(cm.convert(OrderStatus.SHIPPED, String.class), is("S"));
+		// by code or by name
+		assertThat(cm.convert("S", OrderStatus.class), is(OrderStatus.SHIPPED));
+		assertThat(cm.convert("SHIPPED", OrderStatus.class), is(OrderStatus.SHIPPED));
+		// generated once, then found like a registered converter
+		assertThat(cm.explain(OrderStatus.class, LegacyStatus.class).isCached(), is(true));
+	}
+	
+	@Test
+	public void testEnumFallback() {
+		cm.setEnumConversion(true);
+		assertThat(cm.convert(OrderStatus.RETURNED, LegacyStatus.class), is(nullValue()));
+		assertThat(cm.convert("X", OrderStatus.class), is(nullValue()));
+		cm.setEnumFallback(LegacyStatus.class, LegacyStatus.UNKNOWN);
+		assertThat(cm.convert(OrderStatus.RETURNED, LegacyStatus.class), is(LegacyStatus.UNKNOWN));
+		assertThat(cm.convert("X", LegacyStatus.class), is(LegacyStatus.UNKNOWN));
+		ConverterManager child = cm.createChild();
+		assertThat(child.convert("X", LegacyStatus.class), is(LegacyStatus.UNKNOWN));
+		child.setEnumConversion(false);
+		assertThat(child.canConvert(String.class, LegacyStatus.class), is(false));
+		assertThat(cm.canConvert(String.class, LegacyStatus.class), is(true));
+	}
+	
+	@Test
+	public void testEnumConverterPrecedence() {
+		cm.setEnumConversion(true);
+		assertThat(cm.convert(OrderStatus.NEW, String.class), is("NEW"));
+		cm.registerConverter(OrderStatusConverter.class);
+		assertThat(cm.convert(OrderStatus.NEW, String.class), is("new"));
+		assertThat(cm.convert(OrderStatus.RETURNED, String.class), is("returned"));
+	}
+	
 	class PrivateConverter {
 		/* empty */
 	}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+@SuppressWarnings("nls")
+public class ParsingConvertersTest {
+
+	private ConverterManager cm = new ConverterManager();
+
+	@Rule
+	public ExpectedException expectedEx = ExpectedException.none();
+
+	@Before
+	public void setup() {
+		cm.clearConverters();
+		cm.registerConverter(ParsingConverters.class);
+	}
+
+	@Test
+	public void testTextSlice() {
+		assertThat(cm.convertSlice("id=-1234;", 3, 5, Long.class), is(-1234L));
+		assertThat(cm.convertSlice("[+42]", 1, 3, Integer.class), is(42));
+		// a string is a char sequence too
+		assertThat(cm.convert("7", Short.class), is((short) 7));
+		CharSlice slice = new CharSlice();
+		assertThat(cm.convert(slice.reset("a,true", 2, 4), Boolean.class), is(true));
+		assertThat(cm.convert(slice.reset("FALSE".toCharArray(), 0, 5), Boolean.class), is(false));
+	}
+
+	@Test
+	public void testByteSlice() throws Exception {
+		byte[] record = "12|3.25|2012-02-29".getBytes("ISO-8859-1");
+		ByteBuffer heap = ByteBuffer.wrap(record);
+		ByteBuffer direct = ByteBuffer.allocateDirect(record.length);
+		direct.put(record);
+		for ( ByteBuffer buffer : new ByteBuffer[] { heap, direct } ) {
+			assertThat(cm.convertSlice(buffer, 0, 2, Byte.class), is((byte) 12));
+			assertThat(cm.convertSlice(buffer, 3, 4, Double.class), is(3.25));
+			assertThat(cm.convertSlice(buffer, 8, 10, Date.class), is(utc("2012-02-29T00:00:00.000")));
+		}
+		assertThat(direct.position(), is(record.length));
+	}
+
+	@Test
+	public void testLongLimits() {
+		assertThat(cm.convert("-9223372036854775808", Long.class), is(Long.MIN_VALUE));
+		assertThat(cm.convert("9223372036854775807", Long.class), is(Long.MAX_VALUE));
+		expectedEx.expect(ConversionFailedException.class);
+		expectedEx.expectMessage("9223372036854775808");
+		cm.convert("9223372036854775808", Long.class);
+	}
+
+	@Test
+	public void testByteOverflow() {
+		expectedEx.expect(ConversionFailedException.class);
+		expectedEx.expectMessage("128");
+		cm.convert("128", Byte.class);
+	}
+
+	@Test
+	public void testDecimals() {
+		String[] values = { "0", "-0.0", "0.1", "3.14159", "1e-5", "123.456E2", "+12.5e+3", "9007199254740993",
+				"0.30000000000000004", "1.7976931348623157e308", "4.9e-324", "NaN", "-Infinity", "1e23" };
+		for ( String value : values ) {
+			assertThat(value, cm.convert(value, Double.class), is(Double.valueOf(value)));
+			assertThat(value, cm.convert(value, Float.class), is(Float.valueOf(value)));
+		}
+	}
+
+	@Test
+	public void testInvalidDecimal() {
+		expectedEx.expect(ConversionFailedException.class);
+		expectedEx.expectMessage("1.5e");
+		cm.convert("1.5e", Double.class);
+	}
+
+	@Test
+	public void testDates() throws Exception {
+		assertThat(cm.convert("2012-02-29T13:45:30.123Z", Date.class), is(utc("2012-02-29T13:45:30.123")));
+		assertThat(cm.convert("1969-12-31T23:59:59", Date.class), is(utc("1969-12-31T23:59:59.000")));
+		assertThat(cm.convert("1600-03-01", Date.class), is(utc("1600-03-01T00:00:00.000")));
+	}
+
+	@Test
+	public void testInvalidDate() {
+		expectedEx.expect(ConversionFailedException.class);
+		expectedEx.expectMessage("2011-02-29");
+		cm.convert("2011-02-29", Date.class);
+	}
+
+	private static Date utc(String date) throws Exception {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return format.parse(date);
+	}
+}
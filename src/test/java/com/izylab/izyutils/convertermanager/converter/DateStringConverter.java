@@ -0,0 +1,37 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.converter;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.izylab.izyutils.convertermanager.Converter;
+
+public class DateStringConverter {
+	public static final AtomicInteger INSTANCES = new AtomicInteger();
+	private final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd"); //$NON-NLS-1$
+	public DateStringConverter() {
+		INSTANCES.incrementAndGet();
+		format.setTimeZone(TimeZone.getTimeZone("UTC")); //$NON-NLS-1$
+	}
+	@Converter
+	public String convert(Date date) {
+		return format.format(date);
+	}
+}
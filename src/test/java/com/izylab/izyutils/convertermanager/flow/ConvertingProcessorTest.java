@@ -0,0 +1,254 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.flow;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.izylab.izyutils.convertermanager.ConversionFailedException;
+import com.izylab.izyutils.convertermanager.ConverterManager;
+import com.izylab.izyutils.convertermanager.converter.StringNumberConverter;
+
+@SuppressWarnings("nls")
+public class ConvertingProcessorTest {
+
+	private ConverterManager cm = new ConverterManager();
+
+	@Before
+	public void setup() {
+		cm.clearConverters();
+		cm.registerConverter(new StringNumberConverter());
+	}
+
+	@Test
+	public void testRespectsDemand() {
+		ListPublisher publisher = new ListPublisher("1", "2", "3", "4");
+		ConvertingProcessor<Long> processor = new ConvertingProcessor<Long>(cm, Long.class);
+		RecordingSubscriber<Long> subscriber = new RecordingSubscriber<Long>();
+		publisher.subscribe(processor);
+		processor.subscribe(subscriber);
+
+		assertThat(publisher.requested, is(0L));
+		subscriber.subscription.request(2);
+		assertThat(subscriber.items, is(Arrays.asList(1L, 2L)));
+		assertThat(publisher.requested, is(2L));
+		assertThat(subscriber.completed, is(false));
+
+		subscriber.subscription.request(10);
+		assertThat(subscriber.items, is(Arrays.asList(1L, 2L, 3L, 4L)));
+		assertThat(subscriber.completed, is(true));
+	}
+
+	@Test
+	public void testBatches() {
+		ListPublisher publisher = new ListPublisher("1", "2", "3", "4", "5");
+		BatchingConvertingProcessor<Long> processor = new BatchingConvertingProcessor<Long>(cm, Long.class, 2);
+		RecordingSubscriber<List<Long>> subscriber = new RecordingSubscriber<List<Long>>();
+		publisher.subscribe(processor);
+		processor.subscribe(subscriber);
+
+		subscriber.subscription.request(1);
+		assertThat(subscriber.items.size(), is(1));
+		assertThat(subscriber.items.get(0), is(Arrays.asList(1L, 2L)));
+
+		subscriber.subscription.request(5);
+		assertThat(subscriber.items.size(), is(3));
+		assertThat(subscriber.items.get(2), is(Arrays.asList(5L)));
+		assertThat(subscriber.completed, is(true));
+	}
+
+	@Test
+	public void testBatchesLargerThanLimit() throws InterruptedException {
+		String[] values = new String[25];
+		for ( int i = 0; i < values.length; i++ ) {
+			values[i] = String.valueOf(i);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for ( Executor converting : new Executor[] { null, executor } ) {
+				ListPublisher publisher = new ListPublisher((Object[]) values);
+				BatchingConvertingProcessor<Long> processor =
+						new BatchingConvertingProcessor<Long>(cm, Long.class, 10, converting, 3);
+				RecordingSubscriber<List<Long>> subscriber = new RecordingSubscriber<List<Long>>();
+				publisher.subscribe(processor);
+				processor.subscribe(subscriber);
+
+				subscriber.subscription.request(Long.MAX_VALUE);
+				assertThat(subscriber.done.await(10, TimeUnit.SECONDS), is(true));
+				assertThat(subscriber.items.size(), is(3));
+				assertThat(subscriber.items.get(1).get(0), is(10L));
+				assertThat(subscriber.items.get(2).size(), is(5));
+				assertThat(publisher.maxSingleRequest <= 3, is(true));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailureGoesToOnError() {
+		ListPublisher publisher = new ListPublisher("1", "x", "3");
+		ConvertingProcessor<Long> processor = new ConvertingProcessor<Long>(cm, Long.class);
+		RecordingSubscriber<Long> subscriber = new RecordingSubscriber<Long>();
+		publisher.subscribe(processor);
+		processor.subscribe(subscriber);
+
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertThat(subscriber.items, is(Arrays.asList(1L)));
+		assertThat(subscriber.error, instanceOf(ConversionFailedException.class));
+		assertThat(publisher.cancelled, is(true));
+	}
+
+	@Test
+	public void testFailureGoesToHandler() {
+		ListPublisher publisher = new ListPublisher("1", "x", "3");
+		ConvertingProcessor<Long> processor = new ConvertingProcessor<Long>(cm, Long.class);
+		final List<Object> failed = new ArrayList<Object>();
+		processor.setErrorHandler(new ConversionErrorHandler() {
+			@Override
+			public void conversionFailed(Object item, ConversionFailedException exception) {
+				failed.add(item);
+			}
+		});
+		RecordingSubscriber<Long> subscriber = new RecordingSubscriber<Long>();
+		publisher.subscribe(processor);
+		processor.subscribe(subscriber);
+
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertThat(subscriber.items, is(Arrays.asList(1L, 3L)));
+		assertThat(failed, is(Arrays.<Object>asList("x")));
+		assertThat(subscriber.error, is(nullValue()));
+		assertThat(subscriber.completed, is(true));
+	}
+
+	@Test
+	public void testExecutorKeepsOrderAndLimit() throws InterruptedException {
+		String[] values = new String[200];
+		for ( int i = 0; i < values.length; i++ ) {
+			values[i] = String.valueOf(i);
+		}
+		ListPublisher publisher = new ListPublisher((Object[]) values);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ConvertingProcessor<Long> processor = new ConvertingProcessor<Long>(cm, Long.class, executor, 8);
+			RecordingSubscriber<Long> subscriber = new RecordingSubscriber<Long>();
+			publisher.subscribe(processor);
+			processor.subscribe(subscriber);
+
+			subscriber.subscription.request(Long.MAX_VALUE);
+			assertThat(subscriber.done.await(10, TimeUnit.SECONDS), is(true));
+			assertThat(subscriber.items.size(), is(values.length));
+			for ( int i = 0; i < values.length; i++ ) {
+				assertThat(subscriber.items.get(i), is(Long.valueOf(i)));
+			}
+			assertThat(publisher.maxSingleRequest <= 8, is(true));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	// synchronous publisher over a fixed list
+	static class ListPublisher implements Flow.Publisher<Object> {
+		private final List<Object> values;
+		private int index;
+		long requested;
+		long maxSingleRequest;
+		volatile boolean cancelled;
+
+		ListPublisher(Object ... values) {
+			this.values = Arrays.asList(values);
+		}
+
+		@Override
+		public void subscribe(final Flow.Subscriber<? super Object> subscriber) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				private long pending;
+				private boolean emitting;
+
+				@Override
+				public synchronized void request(long n) {
+					requested += n;
+					maxSingleRequest = Math.max(maxSingleRequest, n);
+					pending += n;
+					if ( emitting ) {
+						return;
+					}
+					emitting = true;
+					while ( pending > 0 && index < values.size() && !cancelled ) {
+						pending--;
+						subscriber.onNext(values.get(index++));
+					}
+					if ( index == values.size() && !cancelled ) {
+						index++;
+						subscriber.onComplete();
+					}
+					emitting = false;
+				}
+
+				@Override
+				public void cancel() {
+					cancelled = true;
+				}
+			});
+		}
+	}
+
+	// records everything it receives
+	static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+		final List<T> items = new ArrayList<T>();
+		final CountDownLatch done = new CountDownLatch(1);
+		Flow.Subscription subscription;
+		Throwable error;
+		boolean completed;
+
+		@Override
+		public void onSubscribe(Flow.Subscription s) {
+			this.subscription = s;
+		}
+
+		@Override
+		public synchronized void onNext(T item) {
+			items.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+			done.countDown();
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.izylab.izyutils.convertermanager.ConverterManager;
+import com.izylab.izyutils.convertermanager.classes.MyChildClass;
+import com.izylab.izyutils.convertermanager.converter.StringNumberConverter;
+
+// jdk.jfr is not part of the Java 1.6 API, the recording is driven through reflection
+@SuppressWarnings("nls")
+public class FlightRecorderEventsTest {
+
+	private ConverterManager cm = new ConverterManager();
+	private Class<?> recordingType;
+
+	@Before
+	public void setup() {
+		try {
+			recordingType = Class.forName("jdk.jfr.Recording");
+		} catch ( ClassNotFoundException ex ) {
+			recordingType = null;
+		}
+		Assume.assumeTrue(recordingType != null);
+	}
+
+	@Test
+	public void testNotRecording() {
+		assertThat(FlightRecorderEvents.isRecording(), is(false));
+	}
+
+	@Test
+	public void testConversionEvents() throws Exception {
+		Object recording = recordingType.newInstance();
+		File file = File.createTempFile("converter-manager", ".jfr");
+		try {
+			call(recording, "start");
+			assertThat(FlightRecorderEvents.isRecording(), is(true));
+
+			cm.registerConverter(new StringNumberConverter());
+			cm.registerConverter(new MyChildClass());
+			cm.convert("20", Long.class);
+			cm.convert(new MyChildClass(), String.class);
+			cm.setFlightRecorderThreshold(Long.MAX_VALUE);
+			cm.convert("30", Long.class);
+
+			call(recording, "stop");
+			assertThat(FlightRecorderEvents.isRecording(), is(false));
+			Object path = File.class.getMethod("toPath").invoke(file);
+			call(recording, "dump", path);
+		} finally {
+			call(recording, "close");
+		}
+
+		Object path = File.class.getMethod("toPath").invoke(file);
+		List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+				.getMethod("readAllEvents", Class.forName("java.nio.file.Path")).invoke(null, path);
+		file.delete();
+
+		int conversions = 0;
+		int fallbacks = 0;
+		int registrations = 0;
+		for ( Object event : events ) {
+			String name = (String) call(call(event, "getEventType"), "getName");
+			if ( "com.izylab.izyutils.convertermanager.Conversion".equals(name) ) {
+				conversions++;
+				assertThat(call(event, "getString", "outcome"), is((Object) FlightRecorderEvents.SUCCESS));
+				// timed around the converter call
+				assertThat(call(call(event, "getDuration"), "isZero"), is((Object) Boolean.FALSE));
+				if ( Boolean.TRUE.equals(call(event, "getBoolean", "hierarchyFallback")) ) {
+					fallbacks++;
+				}
+			} else if ( "com.izylab.izyutils.convertermanager.RegistryChange".equals(name) ) {
+				registrations++;
+			}
+		}
+		assertThat(conversions, is(2));
+		assertThat(fallbacks, is(1));
+		assertThat(registrations, is(2));
+	}
+
+	@Test
+	public void testThresholdSetting() throws Exception {
+		Object recording = recordingType.newInstance();
+		File file = File.createTempFile("converter-manager", ".jfr");
+		try {
+			Map<String, String> settings = new HashMap<String, String>();
+			settings.put("com.izylab.izyutils.convertermanager.Conversion#enabled", "true");
+			settings.put("com.izylab.izyutils.convertermanager.Conversion#threshold", "1 h");
+			call(recording, "setSettings", settings);
+			call(recording, "start");
+			cm.registerConverter(new StringNumberConverter());
+			cm.convert("20", Long.class);
+			call(recording, "stop");
+			Object path = File.class.getMethod("toPath").invoke(file);
+			call(recording, "dump", path);
+		} finally {
+			call(recording, "close");
+		}
+
+		Object path = File.class.getMethod("toPath").invoke(file);
+		List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+				.getMethod("readAllEvents", Class.forName("java.nio.file.Path")).invoke(null, path);
+		file.delete();
+		for ( Object event : events ) {
+			String name = (String) call(call(event, "getEventType"), "getName");
+			assertThat(name, "com.izylab.izyutils.convertermanager.Conversion".equals(name), is(false));
+		}
+	}
+
+	// call a public method by name, matching on argument count
+	private static Object call(Object target, String name, Object ... args) throws Exception {
+		for ( java.lang.reflect.Method method : target.getClass().getMethods() ) {
+			if ( method.getName().equals(name) && method.getParameterTypes().length == args.length ) {
+				method.setAccessible(true);
+				return method.invoke(target, args);
+			}
+		}
+		throw new NoSuchMethodException(name);
+	}
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2012 Juan D Frias <jfrias at boxfi.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package com.izylab.izyutils.convertermanager.trace;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izylab.izyutils.convertermanager.ConversionFailedException;
+import com.izylab.izyutils.convertermanager.ConverterManager;
+import com.izylab.izyutils.convertermanager.ConverterManagerException;
+import com.izylab.izyutils.convertermanager.converter.DateStringConverter;
+import com.izylab.izyutils.convertermanager.converter.StringNumberConverter;
+
+@SuppressWarnings("nls")
+public class ConversionTraceTest {
+
+	private ConverterManager cm = new ConverterManager();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setup() {
+		cm.clearConverters();
+		cm.registerConverter(new StringNumberConverter());
+		cm.registerConverter(new DateStringConverter());
+	}
+
+	@Test
+	public void testRecordAndRead() throws Exception {
+		File file = folder.newFile("conversions.trace");
+		ConversionTraceRecorder recorder = new ConversionTraceRecorder(file);
+		recorder.setSampleRate(2);
+		cm.addConversionListener(recorder);
+		cm.convert("1", Long.class);
+		cm.convert(new Date(0), String.class);
+		cm.convert("3", Long.class);
+		try {
+			cm.convert("x", Long.class);
+		} catch ( ConversionFailedException ex ) {
+			// expected
+		}
+		cm.removeConversionListener(recorder);
+		recorder.close();
+
+		ConversionTrace trace = ConversionTrace.read(file);
+		assertThat(trace.size(), is(4));
+		TraceEntry first = trace.getEntries().get(0);
+		assertThat(first.getSourceType(), is("java.lang.String"));
+		assertThat(first.getTargetType(), is("java.lang.Long"));
+		assertThat(first.getConverterClass(), is(StringNumberConverter.class.getName()));
+		assertThat(first.getArgCount(), is(0));
+		assertTrue(first.getLatencyNanos() >= 0);
+		assertThat(Arrays.asList(first.getSample()), is(Arrays.<Object>asList("1")));
+		assertThat(trace.getEntries().get(1).isSampled(), is(false));
+		assertThat(trace.getEntries().get(1).getSourceType(), is("java.util.Date"));
+		assertThat(trace.getEntries().get(3).isFailed(), is(true));
+		assertTrue(trace.getEntries().get(3).getOffsetNanos() >= first.getOffsetNanos());
+	}
+
+	@Test
+	public void testRecordFromManyThreads() throws Exception {
+		File file = folder.newFile("conversions.trace");
+		final ConversionTraceRecorder recorder = new ConversionTraceRecorder(file, 16);
+		recorder.setSampleRate(3);
+		cm.addConversionListener(recorder);
+		Thread[] threads = new Thread[4];
+		for ( int i = 0; i < threads.length; i++ ) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for ( int j = 0; j < 500; j++ ) {
+						cm.convert(String.valueOf(j), Long.class);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for ( Thread thread : threads ) {
+			thread.join();
+		}
+		cm.removeConversionListener(recorder);
+		recorder.close();
+
+		// every conversion is either written or counted as dropped
+		ConversionTrace trace = ConversionTrace.read(file);
+		assertThat(trace.size() + recorder.getDroppedCount(), is(2000L));
+		for ( TraceEntry entry : trace.getEntries() ) {
+			assertThat(entry.getTargetType(), is("java.lang.Long"));
+		}
+	}
+
+	@Test
+	public void testReplay() throws Exception {
+		File file = folder.newFile("conversions.trace");
+		ConversionTraceRecorder recorder = new ConversionTraceRecorder(file);
+		recorder.setSampleRate(1);
+		cm.addConversionListener(recorder);
+		for ( int i = 0; i < 50; i++ ) {
+			cm.convert(String.valueOf(i), Long.class);
+		}
+		cm.convert(new Date(0), String.class);
+		cm.removeConversionListener(recorder);
+		recorder.close();
+
+		ConversionTraceReplayer replayer = new ConversionTraceReplayer(cm, ConversionTrace.read(file));
+		replayer.setThreads(4);
+		ReplayResult result = replayer.replay();
+		assertThat(result.getConversions(), is(51));
+		assertThat(result.getFailures(), is(0));
+		assertThat(result.getSkipped(), is(0));
+	}
+
+	@Test
+	public void testReplaySampleProviderAndRate() throws Exception {
+		File file = folder.newFile("conversions.trace");
+		ConversionTraceRecorder recorder = new ConversionTraceRecorder(file);
+		cm.addConversionListener(recorder);
+		for ( int i = 0; i < 10; i++ ) {
+			cm.convert(String.valueOf(i), Long.class);
+		}
+		cm.convert(new Date(0), String.class);
+		cm.removeConversionListener(recorder);
+		recorder.close();
+
+		ConversionTraceReplayer replayer = new ConversionTraceReplayer(cm, ConversionTrace.read(file));
+		replayer.setRate(200);
+		replayer.setSampleProvider(new TraceSampleProvider() {
+			@Override
+			public Object[] createSample(TraceEntry entry) {
+				return entry.getSourceType().equals("java.lang.String") ? new Object[] { "42" } : null;
+			}
+		});
+		ReplayResult result = replayer.replay();
+		assertThat(result.getConversions(), is(10));
+		assertThat(result.getSkipped(), is(1));
+		// 10 conversions at 200 per second
+		assertTrue(result.getElapsedNanos() >= 40000000L);
+	}
+
+	@Test(expected = ConverterManagerException.class)
+	public void testTruncatedFile() throws Exception {
+		File file = folder.newFile("conversions.trace");
+		ConversionTraceRecorder recorder = new ConversionTraceRecorder(file);
+		cm.addConversionListener(recorder);
+		cm.convert("1", Long.class);
+		recorder.close();
+		RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+		truncated.setLength(truncated.length() - 3);
+		truncated.close();
+		ConversionTrace.read(file);
+	}
+}